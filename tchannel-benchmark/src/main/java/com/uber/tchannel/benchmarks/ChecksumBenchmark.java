@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.benchmarks;
+
+import com.uber.tchannel.checksum.ChecksumType;
+import com.uber.tchannel.checksum.Checksums;
+import com.uber.tchannel.frames.CallRequestFrame;
+import com.uber.tchannel.tracing.Trace;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checksums the payload of call frames with {@link Checksums}. {@code NoChecksum} measures the copy of the payload
+ * that comes before the checksum itself. Run with the GC profiler ({@code -prof gc}) to see the bytes allocated per
+ * frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChecksumBenchmark {
+
+    @Param({"NoChecksum", "Adler32"})
+    private ChecksumType checksumType;
+
+    @Param({"16", "1024", "65000"})
+    private int payloadSize;
+
+    private CallRequestFrame frame;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(".*" + ChecksumBenchmark.class.getSimpleName() + ".*")
+            .addProfiler(GCProfiler.class)
+            .warmupIterations(10)
+            .measurementIterations(20)
+            .forks(1)
+            .build();
+        new Runner(options).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] payload = new byte[payloadSize];
+        new Random(42).nextBytes(payload);
+        frame = new CallRequestFrame(
+            42,
+            (byte) 0,
+            1000,
+            new Trace(0, 0, 0, (byte) 0),
+            "service",
+            new HashMap<String, String>(),
+            checksumType,
+            0,
+            Unpooled.wrappedBuffer(payload)
+        );
+    }
+
+    @Benchmark
+    public long calculateChecksum() {
+        return Checksums.calculateChecksum(frame);
+    }
+
+    @Benchmark
+    public boolean verifyChecksum() {
+        return Checksums.verifyChecksum(frame);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        frame.release();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.benchmarks;
+
+import com.uber.tchannel.codecs.CodecUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link CodecUtils} that every call frame goes through: the transport headers, in their 1 byte (call frames) and
+ * 2 byte (init frames) length forms, and the slicing of the args into the payload of a frame and back. Run with the GC
+ * profiler ({@code -prof gc}) to see the bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CodecUtilsBenchmark {
+
+    private static final ByteBufAllocator ALLOCATOR = PooledByteBufAllocator.DEFAULT;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(".*" + CodecUtilsBenchmark.class.getSimpleName() + ".*")
+            .addProfiler(GCProfiler.class)
+            .warmupIterations(10)
+            .measurementIterations(20)
+            .forks(1)
+            .build();
+        new Runner(options).run();
+    }
+
+    @Benchmark
+    public int encodeHeaders(Headers headers) {
+        ByteBuf buffer = ALLOCATOR.buffer();
+        CodecUtils.encodeHeaders(headers.headers, buffer);
+        int size = buffer.readableBytes();
+        buffer.release();
+        return size;
+    }
+
+    @Benchmark
+    public Map<String, String> decodeHeaders(Headers headers) {
+        return CodecUtils.decodeHeaders(headers.encoded.duplicate());
+    }
+
+    @Benchmark
+    public int encodeSmallHeaders(Headers headers) {
+        ByteBuf buffer = ALLOCATOR.buffer();
+        CodecUtils.encodeSmallHeaders(headers.headers, buffer);
+        int size = buffer.readableBytes();
+        buffer.release();
+        return size;
+    }
+
+    @Benchmark
+    public Map<String, String> decodeSmallHeaders(Headers headers) {
+        return CodecUtils.decodeSmallHeaders(headers.encodedSmall.duplicate());
+    }
+
+    @Benchmark
+    public int writeArgs(Args args) {
+        ByteBuf payload = CodecUtils.writeArgs(ALLOCATOR, Unpooled.EMPTY_BUFFER, args.duplicates());
+        int size = payload.readableBytes();
+        payload.release();
+        return size;
+    }
+
+    @Benchmark
+    public int writeArgsCopy(Args args) {
+        ByteBuf payload = CodecUtils.writeArgsCopy(ALLOCATOR, Unpooled.EMPTY_BUFFER, args.duplicates());
+        int size = payload.readableBytes();
+        payload.release();
+        return size;
+    }
+
+    @Benchmark
+    public int readArgs(Args args) {
+        List<ByteBuf> read = new ArrayList<>(3);
+        CodecUtils.readArgs(read, args.encoded.duplicate());
+        for (ByteBuf arg : read) {
+            arg.release();
+        }
+        return read.size();
+    }
+
+    @State(Scope.Thread)
+    public static class Headers {
+
+        @Param({"0", "4", "16"})
+        private int headerCount;
+
+        private final Map<String, String> headers = new HashMap<>();
+        private ByteBuf encoded;
+        private ByteBuf encodedSmall;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            for (int i = 0; i < headerCount; i++) {
+                headers.put("header-" + i, "value-" + i);
+            }
+            encoded = Unpooled.buffer();
+            CodecUtils.encodeHeaders(headers, encoded);
+            encodedSmall = Unpooled.buffer();
+            CodecUtils.encodeSmallHeaders(headers, encodedSmall);
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            encoded.release();
+            encodedSmall.release();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Args {
+
+        /** The size of arg2 and arg3; the three args fit in a single frame. */
+        @Param({"16", "1024", "16384"})
+        private int argSize;
+
+        private final List<ByteBuf> args = new ArrayList<>(3);
+        private ByteBuf encoded;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(42);
+            args.add(Unpooled.wrappedBuffer("endpoint".getBytes(StandardCharsets.UTF_8)));
+            for (int i = 0; i < 2; i++) {
+                byte[] bytes = new byte[argSize];
+                random.nextBytes(bytes);
+                args.add(Unpooled.wrappedBuffer(bytes));
+            }
+            ByteBuf payload = CodecUtils.writeArgs(ALLOCATOR, Unpooled.EMPTY_BUFFER, duplicates());
+            encoded = Unpooled.copiedBuffer(payload);
+            payload.release();
+        }
+
+        /** The args to write, that writing consumes. */
+        List<ByteBuf> duplicates() {
+            List<ByteBuf> duplicates = new ArrayList<>(args.size());
+            for (ByteBuf arg : args) {
+                duplicates.add(arg.duplicate());
+            }
+            return duplicates;
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            for (ByteBuf arg : args) {
+                arg.release();
+            }
+            encoded.release();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.benchmarks;
+
+import com.uber.tchannel.api.SubChannel;
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.api.TFuture;
+import com.uber.tchannel.api.handlers.JSONRequestHandler;
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.api.handlers.ThriftRequestHandler;
+import com.uber.tchannel.messages.JsonRequest;
+import com.uber.tchannel.messages.JsonResponse;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import com.uber.tchannel.messages.ThriftRequest;
+import com.uber.tchannel.messages.ThriftResponse;
+import com.uber.tchannel.messages.generated.ThriftIDLs;
+import io.jaegertracing.internal.JaegerTracer;
+import io.jaegertracing.internal.reporters.NoopReporter;
+import io.jaegertracing.internal.samplers.ConstSampler;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.opentracing.Tracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of the same logical call, a body of {@code payloadSize} characters and {@code headerCount} application
+ * headers, in each encoding, on the same pair of channels: throughput, the distribution of the latencies, and, with
+ * the GC profiler ({@code -prof gc}), the bytes allocated per call, on the client and the server together.
+ *
+ * The JSON and Thrift calls carry a {@link JsonIDLs} and a {@link ThriftIDLs} holding the body, and their headers as
+ * a map; the server decodes both and sends them back, and the client decodes the response. The raw calls carry the
+ * same characters as is, with the headers as {@code key:value} lines in arg2, and the server echoes their args.
+ *
+ * {@code tracing} runs the channels without a tracer, with a tracer that samples none of the calls, and with one that
+ * samples all of them (and reports their spans nowhere).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncodingBenchmark {
+
+    public enum Encoding {
+        RAW, JSON, THRIFT
+    }
+
+    public enum Tracing {
+        NONE, UNSAMPLED, SAMPLED
+    }
+
+    @Param({"RAW", "JSON", "THRIFT"})
+    private Encoding encoding;
+
+    @Param({"16", "1024", "16384"})
+    private int payloadSize;
+
+    @Param({"0", "4", "16"})
+    private int headerCount;
+
+    @Param({"NONE", "UNSAMPLED", "SAMPLED"})
+    private Tracing tracing;
+
+    private TChannel channel;
+    private TChannel client;
+    private SubChannel subClient;
+    private int port;
+    private InetAddress host;
+
+    private final Map<String, String> headers = new HashMap<>();
+    private String rawHeaders;
+    private String body;
+    private Map<String, String> idls;
+
+    private final NioEventLoopGroup bossGroup = new NioEventLoopGroup(1);
+    private final NioEventLoopGroup childGroup = new NioEventLoopGroup();
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(".*" + EncodingBenchmark.class.getSimpleName() + ".*")
+            .addProfiler(GCProfiler.class)
+            .warmupIterations(10)
+            .measurementIterations(20)
+            .forks(1)
+            .build();
+        new Runner(options).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        StringBuilder contents = new StringBuilder(payloadSize);
+        for (int i = 0; i < payloadSize; i++) {
+            contents.append((char) ('a' + random.nextInt(26)));
+        }
+        body = contents.toString();
+        idls = Collections.singletonMap("file0.thrift", body);
+
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put("header-" + i, "value-" + i);
+            raw.append("header-").append(i).append(':').append("value-").append(i).append('\n');
+        }
+        rawHeaders = raw.toString();
+
+        this.host = InetAddress.getByName(null);
+        this.channel = new TChannel.Builder("ping-server")
+            .setServerHost(host)
+            .setBossGroup(bossGroup)
+            .setChildGroup(childGroup)
+            .setTracer(newTracer("ping-server"))
+            .build();
+        channel.makeSubChannel("ping-server")
+            .register("raw", new RawEchoHandler())
+            .register("json", new JsonEchoHandler())
+            .register("Echo::echo", new ThriftEchoHandler());
+        channel.listen();
+        this.port = this.channel.getListeningPort();
+
+        this.client = new TChannel.Builder("ping-client")
+            .setBossGroup(bossGroup)
+            .setChildGroup(childGroup)
+            .setTracer(newTracer("ping-client"))
+            .build();
+        this.subClient = this.client.makeSubChannel("ping-server");
+        this.client.listen();
+    }
+
+    private Tracer newTracer(String serviceName) {
+        if (tracing == Tracing.NONE) {
+            return null;
+        }
+        return new JaegerTracer.Builder(serviceName)
+            .withReporter(new NoopReporter())
+            .withSampler(new ConstSampler(tracing == Tracing.SAMPLED))
+            .build();
+    }
+
+    @Benchmark
+    public Object call() throws Exception {
+        switch (encoding) {
+            case RAW:
+                return callRaw();
+            case JSON:
+                return callJson();
+            case THRIFT:
+                return callThrift();
+            default:
+                throw new IllegalStateException("Unknown encoding " + encoding);
+        }
+    }
+
+    private String callRaw() throws Exception {
+        RawRequest request = new RawRequest.Builder("ping-server", "raw")
+            .setHeader(rawHeaders)
+            .setBody(body)
+            .setTimeout(20000)
+            .build();
+        RawResponse response = subClient.send(request, host, port).get();
+        String result = response.getBody();
+        response.release();
+        return result;
+    }
+
+    private JsonIDLs callJson() throws Exception {
+        JsonRequest<JsonIDLs> request = new JsonRequest.Builder<JsonIDLs>("ping-server", "json")
+            .setHeaders(headers)
+            .setBody(new JsonIDLs(idls, "file0.thrift"))
+            .setTimeout(20000)
+            .build();
+        TFuture<JsonResponse<JsonIDLs>> future = subClient.send(request, host, port);
+        JsonResponse<JsonIDLs> response = future.get();
+        response.getHeaders();
+        JsonIDLs result = response.getBody(JsonIDLs.class);
+        response.release();
+        return result;
+    }
+
+    private ThriftIDLs callThrift() throws Exception {
+        ThriftRequest<ThriftIDLs> request = new ThriftRequest.Builder<ThriftIDLs>("ping-server", "Echo::echo")
+            .setHeaders(headers)
+            .setBody(new ThriftIDLs(idls, "file0.thrift"))
+            .setTimeout(20000)
+            .build();
+        TFuture<ThriftResponse<ThriftIDLs>> future = subClient.send(request, host, port);
+        ThriftResponse<ThriftIDLs> response = future.get();
+        response.getHeaders();
+        ThriftIDLs result = response.getBody(ThriftIDLs.class);
+        response.release();
+        return result;
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        this.client.shutdown(false);
+        this.channel.shutdown(false);
+    }
+
+    public static class RawEchoHandler implements RequestHandler {
+
+        @Override
+        public Response handle(Request request) {
+            return new RawResponse.Builder(request)
+                .setArg2(request.getArg2() == null ? Unpooled.EMPTY_BUFFER : request.getArg2().retain())
+                .setArg3(request.getArg3().retain())
+                .build();
+        }
+    }
+
+    public static class JsonEchoHandler extends JSONRequestHandler<JsonIDLs, JsonIDLs> {
+
+        @Override
+        public JsonResponse<JsonIDLs> handleImpl(JsonRequest<JsonIDLs> request) {
+            return new JsonResponse.Builder<JsonIDLs>(request)
+                .setHeaders(request.getHeaders())
+                .setBody(request.getBody(JsonIDLs.class))
+                .build();
+        }
+    }
+
+    public static class ThriftEchoHandler extends ThriftRequestHandler<ThriftIDLs, ThriftIDLs> {
+
+        @Override
+        public ThriftResponse<ThriftIDLs> handleImpl(ThriftRequest<ThriftIDLs> request) {
+            return new ThriftResponse.Builder<ThriftIDLs>(request)
+                .setHeaders(request.getHeaders())
+                .setBody(request.getBody(ThriftIDLs.class))
+                .build();
+        }
+    }
+}
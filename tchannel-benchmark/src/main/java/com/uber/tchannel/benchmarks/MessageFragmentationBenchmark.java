@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.benchmarks;
+
+import com.uber.tchannel.handlers.MessageDefragmenter;
+import com.uber.tchannel.handlers.MessageFragmenter;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.Request;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits requests into frames with {@link MessageFragmenter}, and puts them back together with
+ * {@link MessageDefragmenter}, each in an {@link EmbeddedChannel}, from a single frame up to the 17 frames of a 1MB
+ * body. Run with the GC profiler ({@code -prof gc}) to see the bytes allocated per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageFragmentationBenchmark {
+
+    @Param({"1", "1024", "65536", "1048576"})
+    private int payloadSize;
+
+    private EmbeddedChannel fragmenter;
+    private EmbeddedChannel defragmenter;
+    private ByteBuf payload;
+    private final List<ByteBuf> frames = new ArrayList<>();
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(".*" + MessageFragmentationBenchmark.class.getSimpleName() + ".*")
+            .addProfiler(GCProfiler.class)
+            .warmupIterations(10)
+            .measurementIterations(20)
+            .forks(1)
+            .build();
+        new Runner(options).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] bytes = new byte[payloadSize];
+        new Random(42).nextBytes(bytes);
+        payload = Unpooled.wrappedBuffer(bytes);
+        fragmenter = new EmbeddedChannel(new MessageFragmenter());
+        defragmenter = new EmbeddedChannel(new MessageDefragmenter());
+
+        RawRequest request = newRequest();
+        fragmenter.writeOutbound(request);
+        ByteBuf frame;
+        while ((frame = fragmenter.readOutbound()) != null) {
+            frames.add(Unpooled.copiedBuffer(frame));
+            frame.release();
+        }
+        request.release();
+    }
+
+    @Benchmark
+    public int fragment() {
+        RawRequest request = newRequest();
+        fragmenter.writeOutbound(request);
+        int count = 0;
+        ByteBuf frame;
+        while ((frame = fragmenter.readOutbound()) != null) {
+            count++;
+            frame.release();
+        }
+        request.release();
+        return count;
+    }
+
+    @Benchmark
+    public long defragment() {
+        for (ByteBuf frame : frames) {
+            defragmenter.writeInbound(frame.retainedDuplicate());
+        }
+        Request request = defragmenter.readInbound();
+        long id = request.getId();
+        request.release();
+        return id;
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        fragmenter.finishAndReleaseAll();
+        defragmenter.finishAndReleaseAll();
+        for (ByteBuf frame : frames) {
+            frame.release();
+        }
+        payload.release();
+    }
+
+    private RawRequest newRequest() {
+        return new RawRequest.Builder("service", "endpoint")
+            .setHeader("header")
+            .setArg3(payload.retainedDuplicate())
+            .setId(42)
+            .setTimeout(1000)
+            .build();
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.benchmarks;
+
+import com.uber.tchannel.api.SubChannel;
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.api.TFuture;
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.api.handlers.TFutureCallback;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import com.uber.tchannel.metrics.LatencyHistogram;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.nio.NioEventLoopGroup;
+
+import java.net.InetAddress;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop latency benchmark: sends raw calls at a fixed rate, whether the previous calls completed or not, over
+ * {@code connections} client channels to each of {@code peers} servers, and reports the distribution of their
+ * latencies, rate after rate, until the client or the servers cannot keep up.
+ *
+ * The latency of a call is measured from when it was scheduled to be sent, not from when it was sent: a stall of the
+ * sender, or of the client, then counts against all the calls it delayed rather than silently pushing them back, which
+ * is the coordinated omission of closed-loop benchmarks such as the JMH ones next to this one. The p99 measured from
+ * the actual send is reported next to it, to show how much the correction adds.
+ *
+ * Configured with system properties, e.g.
+ * {@code java -Drates=1000,10000,50000 -Dpeers=2 -Dconnections=4 -cp "target/*"
+ * com.uber.tchannel.benchmarks.OpenLoopLatencyBenchmark}:
+ * <ul>
+ *     <li>{@code rates}: the calls per second to send, in increasing order;</li>
+ *     <li>{@code peers}: the number of servers;</li>
+ *     <li>{@code connections}: the number of client channels, each of which connects to every server;</li>
+ *     <li>{@code seconds} and {@code warmupSeconds}: how long each rate is measured, after a warm up at that rate;</li>
+ *     <li>{@code payloadSize}: the bytes of arg3, echoed back by the servers;</li>
+ *     <li>{@code timeoutMillis}: the timeout of the calls.</li>
+ * </ul>
+ * A rate saturates when fewer than 95% of its calls complete successfully within its measurement; it is the last one.
+ */
+public final class OpenLoopLatencyBenchmark {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final NioEventLoopGroup bossGroup = new NioEventLoopGroup(1);
+    private final NioEventLoopGroup childGroup = new NioEventLoopGroup();
+
+    private final InetAddress host;
+    private final TChannel[] servers;
+    private final int[] ports;
+    private final TChannel[] clients;
+    private final SubChannel[] subClients;
+    private final ByteBuf payload;
+    private final long timeoutMillis;
+
+    private OpenLoopLatencyBenchmark(int peers, int connections, int payloadSize, long timeoutMillis) throws Exception {
+        this.host = InetAddress.getByName(null);
+        this.timeoutMillis = timeoutMillis;
+
+        servers = new TChannel[peers];
+        ports = new int[peers];
+        for (int i = 0; i < peers; i++) {
+            servers[i] = new TChannel.Builder("ping-server")
+                .setServerHost(host)
+                .setBossGroup(bossGroup)
+                .setChildGroup(childGroup)
+                .build();
+            servers[i].makeSubChannel("ping-server").register("ping", new EchoRequestHandler());
+            servers[i].listen();
+            ports[i] = servers[i].getListeningPort();
+        }
+
+        clients = new TChannel[connections];
+        subClients = new SubChannel[connections];
+        for (int i = 0; i < connections; i++) {
+            clients[i] = new TChannel.Builder("ping-client")
+                .setClientMaxPendingRequests(Integer.MAX_VALUE)
+                .setBossGroup(bossGroup)
+                .setChildGroup(childGroup)
+                .build();
+            subClients[i] = clients[i].makeSubChannel("ping-server");
+            clients[i].listen();
+        }
+
+        byte[] bytes = new byte[payloadSize];
+        new Random(42).nextBytes(bytes);
+        payload = Unpooled.wrappedBuffer(bytes);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] rates = System.getProperty("rates", "1000,2000,5000,10000,20000,50000,100000,200000").split(",");
+        OpenLoopLatencyBenchmark benchmark = new OpenLoopLatencyBenchmark(
+            Integer.getInteger("peers", 2),
+            Integer.getInteger("connections", 4),
+            Integer.getInteger("payloadSize", 64),
+            Long.getLong("timeoutMillis", 1000)
+        );
+        long seconds = Long.getLong("seconds", 10);
+        long warmupSeconds = Long.getLong("warmupSeconds", 5);
+
+        try {
+            System.out.printf(
+                "%10s %10s %8s %10s %10s %10s %10s %18s%n",
+                "rate", "achieved", "errors", "p50 (us)", "p99 (us)", "p99.9 (us)", "max (us)", "uncorrected p99"
+            );
+            for (String rate : rates) {
+                int callsPerSecond = Integer.parseInt(rate.trim());
+                benchmark.run(callsPerSecond, warmupSeconds);
+                Result result = benchmark.run(callsPerSecond, seconds);
+                result.print();
+                if (result.isSaturated()) {
+                    System.out.println("saturated at " + callsPerSecond + " calls per second");
+                    break;
+                }
+            }
+        } finally {
+            benchmark.shutdown();
+        }
+    }
+
+    private Result run(int callsPerSecond, long seconds) throws InterruptedException {
+        final Result result = new Result(callsPerSecond, seconds);
+        long start = System.nanoTime();
+        final long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long calls = callsPerSecond * seconds;
+
+        for (long call = 0; call < calls; call++) {
+            // computed from the start, so that the schedule does not drift with rounding or with a late sender
+            long intendedNanos = start + call * NANOS_PER_SECOND / callsPerSecond;
+            long now;
+            while ((now = System.nanoTime()) < intendedNanos) {
+                LockSupport.parkNanos(intendedNanos - now);
+            }
+            send(call, intendedNanos, end, result);
+        }
+
+        // let the calls still in flight complete, or time out
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) + NANOS_PER_SECOND;
+        while (result.outstanding.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return result;
+    }
+
+    private void send(long call, final long intendedNanos, final long end, final Result result) {
+        // every connection of every client, in turn
+        int connection = (int) (call % subClients.length);
+        int peer = (int) (call / subClients.length % ports.length);
+        RawRequest request = new RawRequest.Builder("ping-server", "ping")
+            .setArg3(payload.retainedDuplicate())
+            .setTimeout(timeoutMillis)
+            .build();
+
+        result.outstanding.incrementAndGet();
+        final long sentNanos = System.nanoTime();
+        TFuture<RawResponse> future = subClients[connection].send(request, host, ports[peer]);
+        future.addCallback(new TFutureCallback<RawResponse>() {
+            @Override
+            public void onResponse(RawResponse response) {
+                long completedNanos = System.nanoTime();
+                result.corrected.record(completedNanos - intendedNanos, TimeUnit.NANOSECONDS);
+                result.uncorrected.record(completedNanos - sentNanos, TimeUnit.NANOSECONDS);
+                if (response.isError()) {
+                    result.errors.incrementAndGet();
+                } else if (completedNanos <= end) {
+                    result.succeeded.incrementAndGet();
+                }
+                result.outstanding.decrementAndGet();
+            }
+        });
+    }
+
+    private void shutdown() {
+        for (TChannel client : clients) {
+            client.shutdown(false);
+        }
+        for (TChannel server : servers) {
+            server.shutdown(false);
+        }
+        payload.release();
+        bossGroup.shutdownGracefully();
+        childGroup.shutdownGracefully();
+    }
+
+    private static final class Result {
+
+        private final int callsPerSecond;
+        private final long seconds;
+        private final LatencyHistogram corrected = new LatencyHistogram();
+        private final LatencyHistogram uncorrected = new LatencyHistogram();
+        private final AtomicLong outstanding = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        // the successful calls completed within the measurement, for the rate achieved
+        private final AtomicLong succeeded = new AtomicLong();
+
+        Result(int callsPerSecond, long seconds) {
+            this.callsPerSecond = callsPerSecond;
+            this.seconds = seconds;
+        }
+
+        long achieved() {
+            return succeeded.get() / seconds;
+        }
+
+        boolean isSaturated() {
+            return achieved() < callsPerSecond * 0.95;
+        }
+
+        void print() {
+            LatencyHistogram.Snapshot latencies = corrected.snapshot();
+            System.out.printf(
+                "%10d %10d %8d %10d %10d %10d %10d %18d%n",
+                callsPerSecond,
+                achieved(),
+                errors.get(),
+                latencies.getValueAtPercentile(50),
+                latencies.getValueAtPercentile(99),
+                latencies.getValueAtPercentile(99.9),
+                latencies.getMax(),
+                uncorrected.snapshot().getValueAtPercentile(99)
+            );
+        }
+    }
+
+    public static class EchoRequestHandler implements RequestHandler {
+
+        @Override
+        public Response handle(Request request) {
+            return new RawResponse.Builder(request)
+                .setArg3(request.getArg3().retain())
+                .build();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.benchmarks;
+
+import com.uber.tchannel.api.SubChannel;
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of small raw calls, one at a time, to keep track of how much each call allocates on the client and the
+ * server. Run with the GC profiler ({@code -prof gc}) and compare {@code gc.alloc.rate.norm}, the bytes allocated per
+ * call, across changes to the request path.
+ */
+@State(Scope.Thread)
+public class RequestAllocationBenchmark {
+
+    private TChannel channel;
+    private TChannel client;
+    private SubChannel subClient;
+    private int port;
+    private InetAddress host;
+
+    private final NioEventLoopGroup bossGroup = new NioEventLoopGroup(1);
+    private final NioEventLoopGroup childGroup = new NioEventLoopGroup();
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(".*" + RequestAllocationBenchmark.class.getSimpleName() + ".*")
+            .addProfiler(GCProfiler.class)
+            .warmupIterations(10)
+            .measurementIterations(20)
+            .forks(1)
+            .build();
+        new Runner(options).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.host = InetAddress.getByName(null);
+        this.channel = new TChannel.Builder("ping-server")
+            .setServerHost(host)
+            .setBossGroup(bossGroup)
+            .setChildGroup(childGroup)
+            .build();
+        channel.makeSubChannel("ping-server").register("ping", new PingRequestHandler());
+        channel.listen();
+        this.port = this.channel.getListeningPort();
+
+        this.client = new TChannel.Builder("ping-client")
+            .setBossGroup(bossGroup)
+            .setChildGroup(childGroup)
+            .build();
+        this.subClient = this.client.makeSubChannel("ping-server");
+        this.client.listen();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String benchmark() throws Exception {
+        RawRequest request = new RawRequest.Builder("ping-server", "ping")
+            .setHeader("ping")
+            .setBody("ping?")
+            .setTimeout(20000)
+            .build();
+
+        RawResponse response = this.subClient
+            .send(
+                request,
+                this.host,
+                this.port
+            ).get();
+        String body = response.getBody();
+        response.release();
+        return body;
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        this.client.shutdown(false);
+        this.channel.shutdown(false);
+    }
+
+    public static class PingRequestHandler implements RequestHandler {
+
+        @Override
+        public Response handle(Request request) {
+            return new RawResponse.Builder(request)
+                .setHeader("pong")
+                .setBody("pong!")
+                .build();
+        }
+    }
+}
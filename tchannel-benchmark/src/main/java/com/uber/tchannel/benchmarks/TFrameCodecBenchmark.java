@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.benchmarks;
+
+import com.uber.tchannel.codecs.TFrame;
+import com.uber.tchannel.codecs.TFrameCodec;
+import com.uber.tchannel.frames.FrameType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes the 16 byte header of a frame around payloads up to the largest one a frame can hold, with
+ * {@link TFrameCodec} called directly. Run with the GC profiler ({@code -prof gc}) to see the bytes allocated per
+ * frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TFrameCodecBenchmark {
+
+    @Param({"16", "1024", "65000"})
+    private int payloadSize;
+
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+    private ByteBuf payload;
+    private ByteBuf encoded;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(".*" + TFrameCodecBenchmark.class.getSimpleName() + ".*")
+            .addProfiler(GCProfiler.class)
+            .warmupIterations(10)
+            .measurementIterations(20)
+            .forks(1)
+            .build();
+        new Runner(options).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] bytes = new byte[payloadSize];
+        new Random(42).nextBytes(bytes);
+        payload = Unpooled.wrappedBuffer(bytes);
+
+        ByteBuf frame = TFrameCodec.encode(allocator, newFrame());
+        encoded = Unpooled.copiedBuffer(frame);
+        frame.release();
+    }
+
+    @Benchmark
+    public int encode() {
+        ByteBuf frame = TFrameCodec.encode(allocator, newFrame());
+        int size = frame.readableBytes();
+        frame.release();
+        return size;
+    }
+
+    @Benchmark
+    public TFrame decode() {
+        return TFrameCodec.decode(encoded.duplicate());
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        payload.release();
+        encoded.release();
+    }
+
+    private TFrame newFrame() {
+        return new TFrame(payloadSize, FrameType.CallRequest, 42, payload.retainedDuplicate());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.benchmarks;
+
+import com.uber.tchannel.headers.ThriftProtocol;
+import com.uber.tchannel.messages.ThriftSerializer;
+import com.uber.tchannel.messages.generated.ThriftIDLs;
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the binary and compact Thrift protocols on a payload-heavy struct: encode and decode throughput, and the
+ * number of bytes each one puts on the wire ({@code encodedBytes} divided by the number of operations).
+ */
+@State(Scope.Thread)
+public class ThriftProtocolBenchmark {
+
+    @Param({"BINARY", "COMPACT"})
+    private ThriftProtocol protocol;
+
+    private final ThriftSerializer serializer = new ThriftSerializer();
+    private ThriftIDLs body;
+    private ByteBuf encoded;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(".*" + ThriftProtocolBenchmark.class.getSimpleName() + ".*")
+            .warmupIterations(10)
+            .measurementIterations(20)
+            .forks(1)
+            .build();
+        new Runner(options).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        Map<String, String> idls = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            StringBuilder contents = new StringBuilder();
+            for (int j = 0; j < 200; j++) {
+                contents.append((char) ('a' + random.nextInt(26)));
+            }
+            idls.put("file" + i + ".thrift", contents.toString());
+        }
+        body = new ThriftIDLs(idls, "file0.thrift");
+        encoded = serializer.encodeBody(body, protocol);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public int encode(AdditionalCounters counters) {
+        ByteBuf buf = serializer.encodeBody(body, protocol);
+        int size = buf.readableBytes();
+        counters.encodedBytes += size;
+        buf.release();
+        return size;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public ThriftIDLs decode() {
+        return serializer.decodeBody(encoded.duplicate(), ThriftIDLs.class, protocol);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        encoded.release();
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class AdditionalCounters {
+        private long encodedBytes = 0;
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            encodedBytes = 0;
+        }
+
+        public long encodedBytes() {
+            return encodedBytes;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-endpoint execution options (a bulkhead) passed to {@link SubChannel#register(String,
+ * com.uber.tchannel.api.handlers.RequestHandler, EndpointOptions)}.
+ *
+ * They isolate an endpoint from the others sharing the same {@link TChannel}, so a slow endpoint cannot take the
+ * whole server down with it:
+ *   - a dedicated {@link ExecutorService} runs the endpoint's handler instead of the channel's shared one;
+ *   - at most {@code maxConcurrency} requests are handled at the same time;
+ *   - at most {@code maxQueueLength} further requests wait for a free slot. Anything beyond that is answered
+ *     with a {@code Busy} error right away, which lets the caller retry on another peer.
+ *
+ * An idempotent endpoint can also cache its successful responses by their arg2 and arg3 with
+ * {@link Builder#setResponseCache}; hits are answered by the router without running the handler.
+ *
+ * {@link com.uber.tchannel.api.handlers.InlineRequestHandler}s run on the event loop rather than the executor, and
+ * only the concurrency and queue limits are ignored for them: the response cache applies all the same.
+ */
+public final class EndpointOptions {
+
+    public static final int UNLIMITED = 0;
+
+    private final @Nullable ExecutorService executorService;
+    private final int maxConcurrency;
+    private final int maxQueueLength;
+    private final long cacheMaxBytes;
+    private final long cacheTtlNanos;
+
+    private EndpointOptions(@NotNull Builder builder) {
+        this.executorService = builder.executorService;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.maxQueueLength = builder.maxQueueLength;
+        this.cacheMaxBytes = builder.cacheMaxBytes;
+        this.cacheTtlNanos = builder.cacheTtlNanos;
+    }
+
+    public @Nullable ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    /** @return whether the responses of the endpoint are cached */
+    public boolean isResponseCacheEnabled() {
+        return cacheMaxBytes > 0 && cacheTtlNanos > 0;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public long getCacheTtlNanos() {
+        return cacheTtlNanos;
+    }
+
+    public static class Builder {
+
+        private @Nullable ExecutorService executorService = null;
+        private int maxConcurrency = UNLIMITED;
+        private int maxQueueLength = 0;
+        private long cacheMaxBytes = 0;
+        private long cacheTtlNanos = 0;
+
+        /**
+         * Run the endpoint's handler (and the callbacks on its result) on this executor instead of the one shared by
+         * the {@link TChannel}. The executor is owned by the caller.
+         */
+        public @NotNull Builder setExecutorService(@Nullable ExecutorService executorService) {
+            this.executorService = executorService;
+            return this;
+        }
+
+        /**
+         * Maximum number of requests handled at the same time.
+         *
+         * Default value: {@link #UNLIMITED}
+         */
+        public @NotNull Builder setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Maximum number of requests waiting for one of the {@code maxConcurrency} slots. Requests arriving when the
+         * queue is full are rejected with a {@code Busy} error.
+         *
+         * Default value: 0 (reject as soon as {@code maxConcurrency} requests are in flight)
+         */
+        public @NotNull Builder setMaxQueueLength(int maxQueueLength) {
+            this.maxQueueLength = maxQueueLength;
+            return this;
+        }
+
+        /**
+         * Cache the successful responses of the endpoint, keyed by the arg2 and arg3 of their request. Only use it
+         * for idempotent endpoints whose response depends on nothing but these args.
+         *
+         * Default value: no cache
+         *
+         * @param maxBytes upper bound of the size of the cached keys and response args
+         * @param ttl how long a response is served from the cache
+         * @param unit unit of {@code ttl}
+         */
+        public @NotNull Builder setResponseCache(long maxBytes, long ttl, @NotNull TimeUnit unit) {
+            this.cacheMaxBytes = maxBytes;
+            this.cacheTtlNanos = unit.toNanos(ttl);
+            return this;
+        }
+
+        public @NotNull EndpointOptions build() {
+            if (maxConcurrency < 0) {
+                throw new IllegalArgumentException("invariant violation: maxConcurrency < 0");
+            }
+            if (maxQueueLength < 0) {
+                throw new IllegalArgumentException("invariant violation: maxQueueLength < 0");
+            }
+            if (cacheMaxBytes < 0) {
+                throw new IllegalArgumentException("invariant violation: cacheMaxBytes < 0");
+            }
+            if (cacheTtlNanos < 0) {
+                throw new IllegalArgumentException("invariant violation: cacheTtl < 0");
+            }
+            return new EndpointOptions(this);
+        }
+    }
+}
@@ -21,7 +21,7 @@
  */
 package com.uber.tchannel.api;
 
-import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.uber.tchannel.api.errors.TChannelConnectionTimeout;
 import com.uber.tchannel.api.errors.TChannelError;
 import com.uber.tchannel.api.errors.TChannelNoPeerAvailable;
@@ -31,11 +31,16 @@ import com.uber.tchannel.channels.Connection;
 import com.uber.tchannel.channels.PeerManager;
 import com.uber.tchannel.channels.SubPeer;
 import com.uber.tchannel.errors.ErrorType;
+import com.uber.tchannel.handlers.EndpointBulkhead;
 import com.uber.tchannel.handlers.OutRequest;
+import com.uber.tchannel.handlers.RequestCoalescer;
+import com.uber.tchannel.handlers.ResponseCache;
 import com.uber.tchannel.handlers.ResponseRouter;
+import com.uber.tchannel.handlers.RoutingTable;
 import com.uber.tchannel.headers.ArgScheme;
 import com.uber.tchannel.headers.TransportHeaders;
-import com.uber.tchannel.messages.JSONSerializer;
+import com.uber.tchannel.messages.EncodedRequest;
+import com.uber.tchannel.messages.EncodedResponse;
 import com.uber.tchannel.messages.JsonRequest;
 import com.uber.tchannel.messages.JsonResponse;
 import com.uber.tchannel.messages.RawRequest;
@@ -45,7 +50,6 @@ import com.uber.tchannel.messages.Response;
 import com.uber.tchannel.messages.Serializer;
 import com.uber.tchannel.messages.ThriftRequest;
 import com.uber.tchannel.messages.ThriftResponse;
-import com.uber.tchannel.messages.ThriftSerializer;
 import com.uber.tchannel.tracing.Tracing;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -53,10 +57,13 @@ import org.jetbrains.annotations.Nullable;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 public final class SubChannel {
 
@@ -67,11 +74,11 @@ public final class SubChannel {
     private final Connection.Direction preferredDirection;
     private final @NotNull List<SubPeer> peers = new ArrayList<>();
     private final @NotNull Map<String, RequestHandler> requestHandlers = new ConcurrentHashMap<>();
-
-    private static final ImmutableMap<ArgScheme, Serializer.SerializerInterface> DEFAULT_SERIALIZERS =
-            ImmutableMap.of(ArgScheme.JSON, new JSONSerializer(), ArgScheme.THRIFT, new ThriftSerializer());
-
-    private final Serializer serializer = new Serializer(DEFAULT_SERIALIZERS);
+    private final @NotNull Map<String, EndpointBulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final @NotNull Map<String, ResponseCache> responseCaches = new ConcurrentHashMap<>();
+    private final @NotNull RequestCoalescer requestCoalescer = new RequestCoalescer();
+    private final @NotNull Map<String, ResponseCache> outboundResponseCaches = new ConcurrentHashMap<>();
+    private volatile @Nullable Serializer serializer = null;
 
     public SubChannel(String service, @NotNull TChannel topChannel) {
         this(service, topChannel, Connection.Direction.NONE);
@@ -93,6 +100,10 @@ public final class SubChannel {
         return this.peerManager;
     }
 
+    public @NotNull TChannel getTopChannel() {
+        return this.topChannel;
+    }
+
     /**
      * Add a handler for a named endpoint. None of the parameters can be null.
      * @param endpoint name of endpoint
@@ -100,7 +111,33 @@ public final class SubChannel {
      * @return same object (this)
      */
     public @NotNull SubChannel register(@NotNull String endpoint, @NotNull RequestHandler requestHandler) {
+        bulkheads.remove(endpoint);
+        requestHandlers.put(endpoint, requestHandler);
+        topChannel.updateRoutingTable();
+        clearResponseCache(responseCaches.remove(endpoint));
+        return this;
+    }
+
+    /**
+     * Add a handler for a named endpoint, isolated from the other endpoints as described by {@code options}.
+     * None of the parameters can be null.
+     * @param endpoint name of endpoint
+     * @param requestHandler request handler
+     * @param options dedicated executor, concurrency limits and response cache of the endpoint
+     * @return same object (this)
+     */
+    public @NotNull SubChannel register(
+        @NotNull String endpoint,
+        @NotNull RequestHandler requestHandler,
+        @NotNull EndpointOptions options
+    ) {
+        ResponseCache previous = options.isResponseCacheEnabled()
+            ? responseCaches.put(endpoint, new ResponseCache(options))
+            : responseCaches.remove(endpoint);
+        bulkheads.put(endpoint, new EndpointBulkhead(options));
         requestHandlers.put(endpoint, requestHandler);
+        topChannel.updateRoutingTable();
+        clearResponseCache(previous);
         return this;
     }
 
@@ -126,6 +163,130 @@ public final class SubChannel {
         return requestHandlers.get(endpoint);
     }
 
+    /**
+     * @param endpoint name of endpoint
+     * @return the bulkhead of an endpoint registered with {@link EndpointOptions}, or null
+     */
+    public @Nullable EndpointBulkhead getEndpointBulkhead(@Nullable String endpoint) {
+        return endpoint == null ? null : bulkheads.get(endpoint);
+    }
+
+    /**
+     * @param endpoint name of endpoint
+     * @return number of active, queued and rejected requests, and response cache counters, of an endpoint registered
+     * with {@link EndpointOptions}; empty for other endpoints
+     */
+    public @NotNull Map<String, Long> getEndpointStats(@NotNull String endpoint) {
+        EndpointBulkhead bulkhead = bulkheads.get(endpoint);
+        if (bulkhead == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> stats = bulkhead.getStats();
+        ResponseCache responseCache = responseCaches.get(endpoint);
+        if (responseCache != null) {
+            stats.putAll(responseCache.getStats());
+        }
+        return stats;
+    }
+
+    void addRoutes(@NotNull RoutingTable.Builder builder) {
+        builder.addCustomArgSchemes(getSerializer());
+        for (Map.Entry<String, RequestHandler> entry : requestHandlers.entrySet()) {
+            builder.add(
+                service,
+                entry.getKey(),
+                entry.getValue(),
+                bulkheads.get(entry.getKey()),
+                responseCaches.get(entry.getKey()),
+                getSerializer()
+            );
+        }
+    }
+
+    void clearResponseCaches() {
+        for (ResponseCache responseCache : responseCaches.values()) {
+            responseCache.clear();
+        }
+        for (ResponseCache responseCache : outboundResponseCaches.values()) {
+            responseCache.clear();
+        }
+    }
+
+    private static void clearResponseCache(@Nullable ResponseCache responseCache) {
+        if (responseCache != null) {
+            responseCache.clear();
+        }
+    }
+
+    /**
+     * Decode the requests of this sub channel, and the responses to the requests sent through it, with the given
+     * serializers instead of those of the {@link TChannel}.
+     * @param serializer serializers of the encoded arg schemes
+     * @return same object (this)
+     */
+    public @NotNull SubChannel setSerializer(@NotNull Serializer serializer) {
+        this.serializer = serializer;
+        topChannel.updateRoutingTable();
+        return this;
+    }
+
+    public @NotNull Serializer getSerializer() {
+        Serializer serializer = this.serializer;
+        return serializer == null ? topChannel.getSerializer() : serializer;
+    }
+
+    /**
+     * Coalesce the outbound requests to a named endpoint: a request identical to one already in flight is not sent,
+     * its caller gets a copy of the response of the first one. Only use it for idempotent endpoints.
+     * @param endpoint name of endpoint
+     * @return same object (this)
+     */
+    public @NotNull SubChannel enableRequestCoalescing(@NotNull String endpoint) {
+        requestCoalescer.enable(endpoint);
+        return this;
+    }
+
+    /** @return number of coalescing keys in flight, and of requests sent and coalesced */
+    public @NotNull Map<String, Long> getRequestCoalescingStats() {
+        return requestCoalescer.getStats();
+    }
+
+    /**
+     * Cache the successful responses of a named endpoint, keyed by the arg2 and arg3 of their request, and answer
+     * repeated requests from the cache without a round trip. A request with the {@link TransportHeaders#NO_CACHE_KEY}
+     * transport header is always sent; its response refreshes the cache. Only use it for idempotent endpoints.
+     * @param endpoint name of endpoint
+     * @param maxBytes upper bound of the size of the cached keys and response args
+     * @param ttl how long a response is served from the cache
+     * @param unit unit of {@code ttl}
+     * @return same object (this)
+     */
+    public @NotNull SubChannel enableResponseCache(
+        @NotNull String endpoint,
+        long maxBytes,
+        long ttl,
+        @NotNull TimeUnit unit
+    ) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("invariant violation: maxBytes <= 0");
+        }
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("invariant violation: ttl <= 0");
+        }
+        clearResponseCache(outboundResponseCaches.put(endpoint, new ResponseCache(maxBytes, unit.toNanos(ttl))));
+        return this;
+    }
+
+    /**
+     * @param endpoint name of endpoint
+     * @return number of entries, bytes, hits, misses and evictions of the response cache of an endpoint enabled with
+     * {@link #enableResponseCache}; empty for other endpoints
+     */
+    public @NotNull Map<String, Long> getResponseCacheStats(@NotNull String endpoint) {
+        ResponseCache responseCache = outboundResponseCaches.get(endpoint);
+        return responseCache == null ? Collections.<String, Long>emptyMap() : responseCache.getStats();
+    }
+
     public Connection.Direction getPreferredDirection() {
         return preferredDirection;
     }
@@ -143,7 +304,7 @@ public final class SubChannel {
             return null;
         }
 
-        int start = new Random().nextInt(peers.size());
+        int start = ThreadLocalRandom.current().nextInt(peers.size());
         int i = start;
         boolean stop;
         SubPeer res = null;
@@ -246,6 +407,86 @@ public final class SubChannel {
         Request request,
         InetAddress host,
         int port
+    ) {
+        // requests built with the default serializers are encoded, and have their responses decoded, with those of
+        // this sub channel
+        Serializer channelSerializer = getSerializer();
+        if (request instanceof EncodedRequest && channelSerializer != Serializer.getDefault()) {
+            EncodedRequest<?> encodedRequest = (EncodedRequest<?>) request;
+            if (encodedRequest.getSerializer() == Serializer.getDefault()) {
+                encodedRequest.setSerializerAndEncode(channelSerializer);
+            }
+        }
+
+        ResponseCache responseCache = outboundResponseCaches.isEmpty() || request.getArgScheme() == null
+            ? null
+            : outboundResponseCaches.get(request.getEndpoint());
+        if (responseCache == null) {
+            return sendCoalescedRequest(request, host, port);
+        }
+
+        if (!request.getTransportHeaders().containsKey(TransportHeaders.NO_CACHE_KEY)) {
+            @SuppressWarnings("unchecked")
+            V cached = (V) responseCache.get(request);
+            if (cached != null) {
+                if (request instanceof EncodedRequest && cached instanceof EncodedResponse) {
+                    ((EncodedResponse<?>) cached).setSerializer(((EncodedRequest<?>) request).getSerializer());
+                }
+                request.release();
+                TFuture<V> future = TFuture.create(request.getArgScheme(), topChannel.getTracingContext());
+                future.setImmediately(cached);
+                return future;
+            }
+        }
+
+        final ResponseCache.Miss cacheMiss = responseCache.miss(request);
+        final TFuture<V> future = TFuture.create(request.getArgScheme(), topChannel.getTracingContext());
+        final TFuture<V> inner = sendCoalescedRequest(request, host, port);
+        inner.addListener(new Runnable() {
+            @Override
+            public void run() {
+                V response;
+                try {
+                    // get() makes this listener the owner of the response: it is handed over to the caller
+                    response = inner.get();
+                } catch (ExecutionException | InterruptedException e) {
+                    cacheMiss.abandon();
+                    future.setException(e instanceof ExecutionException ? e.getCause() : e);
+                    return;
+                }
+                cacheMiss.fill(response);
+                future.set(response);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    private <V extends Response> TFuture<V> sendCoalescedRequest(
+        Request request,
+        final InetAddress host,
+        final int port
+    ) {
+        if (request.getArgScheme() != null && requestCoalescer.isEnabled(request)) {
+            return requestCoalescer.send(
+                request,
+                host,
+                port,
+                topChannel.getTracingContext(),
+                new RequestCoalescer.Sender() {
+                    @Override
+                    public @NotNull <T extends Response> TFuture<T> send(@NotNull Request leader) {
+                        return sendUncoalescedRequest(leader, host, port);
+                    }
+                }
+            );
+        }
+        return sendUncoalescedRequest(request, host, port);
+    }
+
+    private <V extends Response> TFuture<V> sendUncoalescedRequest(
+        Request request,
+        InetAddress host,
+        int port
     ) {
         OutRequest<V> outRequest = new OutRequest<>(this, request, topChannel.getTracingContext());
         if (host != null) {
@@ -280,8 +521,9 @@ public final class SubChannel {
             return false;
         }
 
-        // Validate if the ArgScheme is set correctly
-        if (request.getArgScheme() == null) {
+        // Validate if the ArgScheme is set correctly, custom ones being those of the serializers of this sub channel
+        String argScheme = request.getTransportHeaders().get(TransportHeaders.ARG_SCHEME_KEY);
+        if (ArgScheme.toScheme(argScheme) == null && !getSerializer().supports(argScheme)) {
             request.setArgScheme(ArgScheme.RAW);
             outRequest.setLastError(ErrorType.BadRequest, "Expect call request to have Arg Scheme specified");
             outRequest.setFuture();
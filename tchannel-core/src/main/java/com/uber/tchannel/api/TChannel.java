@@ -26,15 +26,29 @@ import com.uber.tchannel.api.handlers.RequestHandler;
 import com.uber.tchannel.channels.ChannelRegistrar;
 import com.uber.tchannel.channels.Connection;
 import com.uber.tchannel.channels.PeerManager;
+import com.uber.tchannel.codecs.PayloadCompression;
 import com.uber.tchannel.codecs.TChannelLengthFieldBasedFrameDecoder;
+import com.uber.tchannel.handlers.AdaptiveConcurrencyLimiter;
+import com.uber.tchannel.handlers.AdaptiveLoadControlHandler;
+import com.uber.tchannel.handlers.AdmissionControlHandler;
+import com.uber.tchannel.handlers.CallMetricsHandler;
+import com.uber.tchannel.handlers.FairRequestScheduler;
+import com.uber.tchannel.handlers.FrameMetricsHandler;
 import com.uber.tchannel.handlers.InitRequestHandler;
 import com.uber.tchannel.handlers.InitRequestInitiator;
 import com.uber.tchannel.handlers.LoadControlHandler;
 import com.uber.tchannel.handlers.MessageDefragmenter;
 import com.uber.tchannel.handlers.MessageFragmenter;
+import com.uber.tchannel.handlers.OverloadPolicy;
 import com.uber.tchannel.handlers.RequestRouter;
 import com.uber.tchannel.handlers.ResponseRouter;
+import com.uber.tchannel.handlers.RoutingTable;
 import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Serializer;
+import com.uber.tchannel.metrics.CallEventListener;
+import com.uber.tchannel.metrics.Metrics;
+import com.uber.tchannel.metrics.MetricsReporter;
+import com.uber.tchannel.metrics.MetricsSnapshot;
 import com.uber.tchannel.tracing.OpenTracingContext;
 import com.uber.tchannel.tracing.TracingContext;
 import com.uber.tchannel.utils.TChannelUtilities;
@@ -66,12 +80,16 @@ import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import org.jetbrains.annotations.NotNull;
 
@@ -79,6 +97,9 @@ public final class TChannel {
 
     private static final Logger logger = LoggerFactory.getLogger(TChannel.class);
 
+    /** How often a probe task is submitted to each event loop, when metrics are enabled. */
+    private static final long EVENT_LOOP_PROBE_PERIOD_MILLIS = 100;
+
     private final HashedWheelTimer timer;
 
     private final @NotNull String service;
@@ -95,12 +116,22 @@ public final class TChannel {
     private final int clientMaxPendingRequests;
     private final Tracer tracer;
     private final TracingContext tracingContext;
+    private final @Nullable ExecutorService ownedExecutorService;
+    private final @NotNull ExecutorService executorService;
+    private final @Nullable AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final @Nullable AdmissionControlHandler.Factory admissionControl;
+    private final @Nullable FairRequestScheduler requestScheduler;
+    private final @NotNull Serializer serializer;
+    private final @Nullable Metrics metrics;
+    private final @Nullable ScheduledExecutorService metricsExecutor;
+    private final @Nullable CallEventListener callEventListener;
 
     private final @NotNull Map<String, SubChannel> subChannels = new HashMap<>();
+    private volatile @NotNull RoutingTable routingTable;
     private @Nullable RequestHandler defaultUserHandler;
     private @Nullable SimpleChannelInboundHandler<Request> customRequestRouter;
 
-    private TChannel(@NotNull Builder builder) {
+    private TChannel(@NotNull Builder builder, @Nullable ExecutorService ownedExecutorService) {
         this.service = builder.service;
         this.serverBootstrap = builder.serverBootstrap(this);
         this.bossGroup = builder.bossGroup;
@@ -110,12 +141,66 @@ public final class TChannel {
         this.initTimeout = builder.initTimeout;
         this.resetOnTimeoutLimit = builder.resetOnTimeoutLimit;
         this.peerManager = new PeerManager(builder.bootstrap(this));
+        this.peerManager.setPayloadCompression(builder.payloadCompression, builder.minCompressedArgBytes);
         this.timer = builder.timer;
         this.clientMaxPendingRequests = builder.clientMaxPendingRequests;
         this.tracer = builder.tracer;
         this.tracingContext = builder.tracingContext == null
             ? tracer == null ? new TracingContext.Default() : new OpenTracingContext(tracer.scopeManager())
             : builder.tracingContext;
+        this.ownedExecutorService = ownedExecutorService;
+        this.executorService = builder.getExecutorService(ownedExecutorService);
+        this.concurrencyLimiter = builder.adaptiveLoadControlHandlerFactory == null
+            ? null
+            : builder.adaptiveLoadControlHandlerFactory.getLimiter();
+        this.admissionControl = builder.admissionControlHandlerFactory;
+        this.requestScheduler = builder.requestScheduler;
+        this.serializer = builder.serializer;
+        this.routingTable = new RoutingTable.Builder().addCustomArgSchemes(serializer).build();
+        this.metrics = builder.metricsEnabled ? new Metrics() : null;
+        this.callEventListener = builder.callEventListener;
+        this.metricsExecutor = metrics == null
+            ? null
+            : Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("tchannel-metrics", true));
+        if (metrics != null) {
+            startEventLoopProbes(metrics);
+        }
+        for (Map.Entry<MetricsReporter, Long> entry : builder.metricsReporters.entrySet()) {
+            scheduleMetricsReporter(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void startEventLoopProbes(final @NotNull Metrics metrics) {
+        assert metricsExecutor != null;
+        metrics.addEventLoops("boss", bossGroup);
+        if (childGroup != bossGroup) {
+            metrics.addEventLoops("child", childGroup);
+        }
+        metricsExecutor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                metrics.probeEventLoops();
+            }
+        }, EVENT_LOOP_PROBE_PERIOD_MILLIS, EVENT_LOOP_PROBE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void scheduleMetricsReporter(final @NotNull MetricsReporter reporter, long periodMillis) {
+        assert metricsExecutor != null;
+        metricsExecutor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                MetricsSnapshot snapshot = getMetricsSnapshot();
+                if (snapshot == null) {
+                    return;
+                }
+                try {
+                    reporter.report(snapshot);
+                } catch (RuntimeException e) {
+                    // keeps the reporter scheduled
+                    logger.warn("metrics reporter {} failed.", reporter, e);
+                }
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
     }
 
     public String getListeningHost() {
@@ -158,6 +243,31 @@ public final class TChannel {
 
     public TracingContext getTracingContext() { return tracingContext; }
 
+    /** @return the server-wide limiter set up by {@link Builder#setChildAdaptiveLoadControl}, if any */
+    public @Nullable AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /** @return usage of the budget set up by {@link Builder#setChildAdmissionControl}, or an empty map */
+    public @NotNull Map<String, Long> getAdmissionControlStats() {
+        return admissionControl == null ? Collections.<String, Long>emptyMap() : admissionControl.getStats();
+    }
+
+    /** @return the metrics recorded since the channel was created, if enabled with {@link Builder#setMetricsEnabled} */
+    public @Nullable Metrics getMetrics() {
+        return metrics;
+    }
+
+    /** @return a snapshot of the metrics, if enabled with {@link Builder#setMetricsEnabled} */
+    public @Nullable MetricsSnapshot getMetricsSnapshot() {
+        return metrics == null ? null : metrics.snapshot(peerManager.getPendingRequests());
+    }
+
+    /** @return the listener set up with {@link Builder#setCallEventListener}, if any */
+    public @Nullable CallEventListener getCallEventListener() {
+        return callEventListener;
+    }
+
     public @NotNull ChannelFuture listen() throws InterruptedException {
         ChannelFuture f = this.serverBootstrap.bind(this.host, this.port).sync();
         InetSocketAddress localAddress = (InetSocketAddress) f.channel().localAddress();
@@ -189,6 +299,19 @@ public final class TChannel {
         return subChannel;
     }
 
+    /** @return the handlers of all the sub channels, as of the last registration */
+    public @NotNull RoutingTable getRoutingTable() {
+        return routingTable;
+    }
+
+    synchronized void updateRoutingTable() {
+        RoutingTable.Builder builder = new RoutingTable.Builder().addCustomArgSchemes(serializer);
+        for (SubChannel subChannel : subChannels.values()) {
+            subChannel.addRoutes(builder);
+        }
+        routingTable = builder.build();
+    }
+
     public @NotNull SubChannel makeSubChannel(String service) {
         return this.makeSubChannel(service, Connection.Direction.NONE);
     }
@@ -196,6 +319,15 @@ public final class TChannel {
     public void shutdown(boolean sync) {
         timer.stop();
         peerManager.close();
+        for (SubChannel subChannel : subChannels.values()) {
+            subChannel.clearResponseCaches();
+        }
+        if (ownedExecutorService != null) {
+            ownedExecutorService.shutdown();
+        }
+        if (metricsExecutor != null) {
+            metricsExecutor.shutdown();
+        }
         Future<?> bg = bossGroup.shutdownGracefully();
         Future<?> cg = childGroup.shutdownGracefully();
 
@@ -225,6 +357,15 @@ public final class TChannel {
         return defaultUserHandler;
     }
 
+    public @Nullable FairRequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
+    /** @return the serializers of the encoded arg schemes of the sub channels that do not have their own */
+    public @NotNull Serializer getSerializer() {
+        return serializer;
+    }
+
     public @Nullable SimpleChannelInboundHandler<Request> getCustomRequestRouter() {
         return customRequestRouter;
     }
@@ -258,8 +399,18 @@ public final class TChannel {
         private Tracer tracer;
         private TracingContext tracingContext;
         private ExecutorService executorService = null;
+        private boolean threadPerRequest = false;
 
         private LoadControlHandler.Factory loadControlHandlerFactory;
+        private AdaptiveLoadControlHandler.Factory adaptiveLoadControlHandlerFactory;
+        private AdmissionControlHandler.Factory admissionControlHandlerFactory;
+        private FairRequestScheduler requestScheduler;
+        private @NotNull Serializer serializer = Serializer.getDefault();
+        private @Nullable PayloadCompression payloadCompression = null;
+        private int minCompressedArgBytes = 0;
+        private boolean metricsEnabled = false;
+        private final @NotNull Map<MetricsReporter, Long> metricsReporters = new LinkedHashMap<>();
+        private @Nullable CallEventListener callEventListener = null;
 
         public Builder(@NotNull String service) {
             if (service == null) {
@@ -283,9 +434,26 @@ public final class TChannel {
             return defaultExecutorService;
         }
 
-        /** Returns either an {@link ExecutorService} configured for this builder or a default {@link ForkJoinPool}. */
-        private @NotNull ExecutorService getExecutorService() {
-            return executorService == null ? defaultExecutorService() : executorService;
+        /**
+         * Returns an {@link ExecutorService} configured for this builder, the thread-per-request executor of the
+         * channel being built if enabled, or a default {@link ForkJoinPool}.
+         */
+        private @NotNull ExecutorService getExecutorService(@Nullable ExecutorService threadPerRequestExecutorService) {
+            if (executorService != null) {
+                return executorService;
+            }
+            return threadPerRequestExecutorService == null ? defaultExecutorService() : threadPerRequestExecutorService;
+        }
+
+        /** Virtual threads when the JVM supports them, otherwise an unbounded pool of daemon platform threads. */
+        private static @NotNull ExecutorService newThreadPerRequestExecutorService() {
+            ExecutorService virtualThreadExecutor = TChannelUtilities.newVirtualThreadPerTaskExecutor();
+            if (virtualThreadExecutor != null) {
+                logger.debug("Using virtual thread per request");
+                return virtualThreadExecutor;
+            }
+            logger.debug("Virtual threads are not available, using cached thread pool per request");
+            return Executors.newCachedThreadPool(new DefaultThreadFactory("tchannel-request", true));
         }
 
         public @NotNull Builder setExecutorService(@Nullable ExecutorService executorService) {
@@ -293,6 +461,23 @@ public final class TChannel {
             return this;
         }
 
+        /**
+         * Run every request handler, and the callbacks {@link RequestRouter} registers on its result, on a thread of
+         * its own instead of the shared executor. This lets simple blocking handlers (JDBC, file I/O, waiting on
+         * futures) serve many concurrent requests without tuning pool sizes.
+         *
+         * Virtual threads are used when the JVM supports them (JDK 21+). Older JVMs fall back to an unbounded
+         * cached pool of platform threads. The executor is owned by the built {@link TChannel} and shut down with it.
+         *
+         * Default value: false
+         *
+         * {@link #setExecutorService} takes precedence over this, if set.
+         */
+        public @NotNull Builder setThreadPerRequest(boolean threadPerRequest) {
+            this.threadPerRequest = threadPerRequest;
+            return this;
+        }
+
         public @NotNull Builder setClientMaxPendingRequests(int clientMaxPendingRequests) {
             this.clientMaxPendingRequests = clientMaxPendingRequests;
             return this;
@@ -378,6 +563,116 @@ public final class TChannel {
          */
         public @NotNull Builder setChildLoadControl(int lowWaterMark, int highWaterMark) {
             loadControlHandlerFactory = new LoadControlHandler.Factory(lowWaterMark, highWaterMark);
+            adaptiveLoadControlHandlerFactory = null;
+            return this;
+        }
+
+        /**
+         * This activates the adaptive load control mechanism, in place of {@link #setChildLoadControl(int, int)}.
+         *
+         * Instead of fixed per-connection water marks, a single {@link AdaptiveConcurrencyLimiter} bounds the number of
+         * outstanding requests across all the connections of the server, adjusting the bound to the observed handler
+         * latency. Requests beyond the limit are handled according to {@code policy}.
+         */
+        public @NotNull Builder setChildAdaptiveLoadControl(
+            @NotNull AdaptiveConcurrencyLimiter limiter,
+            @NotNull OverloadPolicy policy
+        ) {
+            adaptiveLoadControlHandlerFactory = new AdaptiveLoadControlHandler.Factory(limiter, policy);
+            loadControlHandlerFactory = null;
+            return this;
+        }
+
+        /** Activates the adaptive load control mechanism with a default {@link AdaptiveConcurrencyLimiter}. */
+        public @NotNull Builder setChildAdaptiveLoadControl(@NotNull OverloadPolicy policy) {
+            return setChildAdaptiveLoadControl(new AdaptiveConcurrencyLimiter.Builder().build(), policy);
+        }
+
+        /**
+         * This activates server-wide admission control. (It is disabled by default.)
+         *
+         * All the incoming connections share a single budget of outstanding requests: at most {@code maxRequests}
+         * requests, with at most {@code maxBytes} of arguments in total. This bounds the memory used by a server
+         * regardless of its number of connections, which the per-connection {@link #setChildLoadControl(int, int)}
+         * cannot do.
+         *
+         * Requests beyond the budget are handled according to {@code policy}: either rejected with
+         * {@link com.uber.tchannel.errors.ErrorType#Busy}, or accepted while reading is paused on all connections.
+         * {@link OverloadPolicy#PAUSE_READS} should not be combined with the other load control mechanisms, as they
+         * would all be toggling reads on the same connections.
+         */
+        public @NotNull Builder setChildAdmissionControl(
+            int maxRequests, long maxBytes, @NotNull OverloadPolicy policy
+        ) {
+            admissionControlHandlerFactory = new AdmissionControlHandler.Factory(maxRequests, maxBytes, policy);
+            return this;
+        }
+
+        /**
+         * Schedules the incoming requests fairly between callers before handing them over to the executor, instead of
+         * in arrival order. (It is disabled by default.) See {@link FairRequestScheduler}.
+         */
+        public @NotNull Builder setRequestScheduler(@Nullable FairRequestScheduler requestScheduler) {
+            this.requestScheduler = requestScheduler;
+            return this;
+        }
+
+        /**
+         * Sets the serializers of the encoded arg schemes, used to decode the incoming requests of the sub channels
+         * that do not have their own. Defaults to {@link Serializer#getDefault()}.
+         */
+        public @NotNull Builder setSerializer(@NotNull Serializer serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
+        /**
+         * Offers {@code compression} in the handshake of every connection. (It is disabled by default.) Over the
+         * connections where the peer accepts it, the messages sent are compressed when their arg2 and arg3 add up to
+         * {@code minCompressedArgBytes} or more, and compression makes them smaller. See {@link PayloadCompression}.
+         */
+        public @NotNull Builder setPayloadCompression(
+            @NotNull PayloadCompression compression, int minCompressedArgBytes
+        ) {
+            if (minCompressedArgBytes < 0) {
+                throw new IllegalArgumentException("`minCompressedArgBytes` cannot be negative");
+            }
+            this.payloadCompression = compression;
+            this.minCompressedArgBytes = minCompressedArgBytes;
+            return this;
+        }
+
+        /**
+         * Records the latency and the errors of the calls per endpoint, the frames and bytes read and written, the
+         * retries, timeouts and resets of the outbound calls, and the health of the event loops and the executor. (It
+         * is disabled by default.) See {@link Metrics}, and {@link TChannel#getMetricsSnapshot()} to read them.
+         */
+        public @NotNull Builder setMetricsEnabled(boolean metricsEnabled) {
+            this.metricsEnabled = metricsEnabled;
+            return this;
+        }
+
+        /**
+         * Enables the metrics, and hands a snapshot of them over to {@code reporter} every {@code period}, on a thread
+         * of the channel.
+         */
+        public @NotNull Builder addMetricsReporter(
+            @NotNull MetricsReporter reporter, long period, @NotNull TimeUnit unit
+        ) {
+            if (period <= 0) {
+                throw new IllegalArgumentException("`period` must be positive");
+            }
+            this.metricsEnabled = true;
+            this.metricsReporters.put(reporter, unit.toMillis(period));
+            return this;
+        }
+
+        /**
+         * Reports the points of the lifecycle of the calls, from their messages decoded to their responses written,
+         * to {@code callEventListener}. (There is none by default.) See {@link CallEventListener}.
+         */
+        public @NotNull Builder setCallEventListener(@Nullable CallEventListener callEventListener) {
+            this.callEventListener = callEventListener;
             return this;
         }
 
@@ -413,7 +708,11 @@ public final class TChannel {
                     ? new EpollEventLoopGroup(childGroupThreads, new DefaultThreadFactory("epoll-child-group"))
                     : new NioEventLoopGroup(childGroupThreads, new DefaultThreadFactory("nio-child-group"));
             }
-            return new TChannel(this);
+            // every channel built owns its executor, and shuts it down with it
+            ExecutorService threadPerRequestExecutorService = threadPerRequest && executorService == null
+                ? newThreadPerRequestExecutorService()
+                : null;
+            return new TChannel(this, threadPerRequestExecutorService);
         }
 
         private @NotNull Bootstrap bootstrap(@NotNull TChannel topChannel) {
@@ -452,6 +751,11 @@ public final class TChannel {
                     // Translates TCP Streams to Raw Frames
                     ch.pipeline().addLast("FrameDecoder", new TChannelLengthFieldBasedFrameDecoder());
 
+                    Metrics metrics = topChannel.getMetrics();
+                    if (metrics != null) {
+                        ch.pipeline().addLast("FrameMetrics", new FrameMetricsHandler(metrics));
+                    }
+
                     // Translates Raw Frames into TFrames
                     // ch.pipeline().addLast("TFrameCodec", new TFrameCodec());
 
@@ -471,19 +775,36 @@ public final class TChannel {
                     // ch.pipeline().addLast("PingHandler", new PingHandler());
 
                     // Handles Call Request RPC
-                    ch.pipeline().addLast("MessageDefragmenter", new MessageDefragmenter());
+                    ch.pipeline().addLast(
+                        "MessageDefragmenter",
+                        new MessageDefragmenter(topChannel.getCallEventListener(), topChannel)
+                    );
                     ch.pipeline().addLast("MessageFragmenter", new MessageFragmenter());
 
+                    // Times the calls from here on, to also count the calls rejected by load control
+                    if (metrics != null || topChannel.getCallEventListener() != null) {
+                        ch.pipeline().addLast(
+                            "CallMetrics",
+                            new CallMetricsHandler(topChannel, metrics, topChannel.getCallEventListener())
+                        );
+                    }
+
                     if (isServer && loadControlHandlerFactory != null) {
                         ch.pipeline().addLast("LoadControl", loadControlHandlerFactory.create());
                     }
+                    if (isServer && adaptiveLoadControlHandlerFactory != null) {
+                        ch.pipeline().addLast("LoadControl", adaptiveLoadControlHandlerFactory.create());
+                    }
+                    if (isServer && admissionControlHandlerFactory != null) {
+                        ch.pipeline().addLast("AdmissionControl", admissionControlHandlerFactory.create());
+                    }
 
                     // Pass RequestHandlers to the RequestRouter
                     ch.pipeline().addLast(
                         "RequestRouter",
                         topChannel.getCustomRequestRouter() != null
                             ? topChannel.getCustomRequestRouter()
-                            : new RequestRouter(topChannel, getExecutorService())
+                            : new RequestRouter(topChannel, topChannel.executorService)
                     );
                     ch.pipeline().addLast("ResponseRouter", new ResponseRouter(topChannel, timer));
 
@@ -117,6 +117,12 @@ public final class TFuture<V extends Response> extends AbstractFuture<V> {
         return super.set(response);
     }
 
+    /** Completes the future before its caller had a chance to add a listener, e.g. with a cached response. */
+    boolean setImmediately(V response) {
+        this.response = response;
+        return super.set(response);
+    }
+
     @Override
     public boolean setException(Throwable throwable) {
         return super.setException(throwable);
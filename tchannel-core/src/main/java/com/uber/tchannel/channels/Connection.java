@@ -200,6 +200,12 @@ public class Connection {
         }
     }
 
+    /** @return the number of requests sent over this connection that wait for their response */
+    public int getPendingRequests() {
+        ResponseRouter responseRouter = channel.pipeline().get(ResponseRouter.class);
+        return responseRouter == null ? 0 : responseRouter.getPendingRequests();
+    }
+
     public void close() {
         synchronized (lock) {
             ResponseRouter responseRouter = channel.pipeline().get(ResponseRouter.class);
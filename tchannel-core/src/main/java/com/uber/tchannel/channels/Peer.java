@@ -80,6 +80,11 @@ public class Peer {
         initRequestFrame.setHostPort(this.manager.getHostPort());
         // TODO: figure out what to put here
         initRequestFrame.setProcessName("java-process");
+        if (this.manager.getPayloadCompression() != null) {
+            initRequestFrame.getHeaders().put(
+                InitFrame.COMPRESSION_KEY, this.manager.getPayloadCompression().getName()
+            );
+        }
         MessageCodec.write(ctx, initRequestFrame);
         return conn;
     }
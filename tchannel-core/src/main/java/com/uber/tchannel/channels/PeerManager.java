@@ -23,6 +23,7 @@
 package com.uber.tchannel.channels;
 
 import com.google.common.collect.Maps;
+import com.uber.tchannel.codecs.PayloadCompression;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
@@ -33,6 +34,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.SocketAddress;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -50,6 +52,8 @@ public class PeerManager {
     private final ConcurrentHashMap<ChannelId, SocketAddress> channelTable = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<ChannelId, Connection> inConnections = new ConcurrentHashMap<>();
     private String hostPort = "0.0.0.0:0";
+    private volatile @Nullable PayloadCompression payloadCompression = null;
+    private volatile int minCompressedArgBytes = 0;
 
     public PeerManager(Bootstrap clientBootstrap) {
         this.clientBootstrap = clientBootstrap;
@@ -151,6 +155,36 @@ public class PeerManager {
         return hostPort;
     }
 
+    /**
+     * Offers {@code payloadCompression} to the peers of the new connections, and uses it on those that accept it.
+     *
+     * @param minCompressedArgBytes size of arg2 and arg3 together from which the messages sent are compressed
+     */
+    public void setPayloadCompression(@Nullable PayloadCompression payloadCompression, int minCompressedArgBytes) {
+        this.minCompressedArgBytes = minCompressedArgBytes;
+        this.payloadCompression = payloadCompression;
+    }
+
+    public @Nullable PayloadCompression getPayloadCompression() {
+        return payloadCompression;
+    }
+
+    public int getMinCompressedArgBytes() {
+        return minCompressedArgBytes;
+    }
+
+    /** @return the number of requests waiting for their response, by connection ({@code address#channel id}) */
+    public @NotNull Map<String, Integer> getPendingRequests() {
+        Map<String, Integer> result = new HashMap<>();
+        for (Peer peer : peers.values()) {
+            for (Connection connection : peer.connections.values()) {
+                Channel channel = connection.channel();
+                result.put(peer.remoteAddress + "#" + channel.id().asShortText(), connection.getPendingRequests());
+            }
+        }
+        return result;
+    }
+
     // TODO: peer stats & reaper
     public @NotNull Map<String, Integer> getStats() {
         int in = 0;
@@ -37,6 +37,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public final class CodecUtils {
     private static final Logger logger = LoggerFactory.getLogger(CodecUtils.class);
@@ -118,6 +119,163 @@ public final class CodecUtils {
 
     }
 
+    /**
+     * Appends {@code headers} to headers encoded by {@link #encodeHeaders}, without decoding them. {@code buffer} is
+     * left alone: the returned buffer holds a retained slice of it.
+     *
+     * @return the encoded headers followed by {@code headers}, or null if there would be too many headers, a key of
+     * {@code headers} is already encoded, or the encoded headers are malformed
+     */
+    public static @Nullable ByteBuf appendHeaders(@NotNull ByteBuf buffer, @NotNull Map<String, String> headers) {
+        int readableBytes = buffer.readableBytes();
+        if (readableBytes == 1) {
+            return null;
+        }
+        int numHeaders = readableBytes == 0 ? 0 : buffer.getUnsignedShort(buffer.readerIndex());
+        if (numHeaders + headers.size() > 0xFFFF || containsAnyKey(buffer, numHeaders, headers.keySet())) {
+            return null;
+        }
+
+        ByteBuf added = ByteBufAllocator.DEFAULT.buffer();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            CodecUtils.encodeString(header.getKey(), added);
+            CodecUtils.encodeString(header.getValue(), added);
+        }
+        CompositeByteBuf appended = ByteBufAllocator.DEFAULT.compositeBuffer();
+        appended.addComponent(true, ByteBufAllocator.DEFAULT.buffer(2).writeShort(numHeaders + headers.size()));
+        if (readableBytes > 2) {
+            appended.addComponent(true, buffer.retainedSlice(buffer.readerIndex() + 2, readableBytes - 2));
+        }
+        appended.addComponent(true, added);
+        return appended;
+    }
+
+    /**
+     * Whether one of the {@code numHeaders} headers encoded in {@code buffer} has a key in {@code keys}, comparing the
+     * encoded bytes so that no key gets decoded. Malformed headers count as a match.
+     */
+    private static boolean containsAnyKey(@NotNull ByteBuf buffer, int numHeaders, @NotNull Set<String> keys) {
+        if (numHeaders == 0 || keys.isEmpty()) {
+            return false;
+        }
+        byte[][] encodedKeys = new byte[keys.size()][];
+        int k = 0;
+        for (String key : keys) {
+            encodedKeys[k++] = key.getBytes(StandardCharsets.UTF_8);
+        }
+
+        int end = buffer.writerIndex();
+        int index = buffer.readerIndex() + 2;
+        for (int i = 0; i < numHeaders; i++) {
+            if (index + 2 > end) {
+                return true;
+            }
+            int keyStart = index + 2;
+            int keyLength = buffer.getUnsignedShort(index);
+            index = keyStart + keyLength;
+            if (index + 2 > end) {
+                return true;
+            }
+            index += 2 + buffer.getUnsignedShort(index);
+            if (index > end) {
+                return true;
+            }
+            for (byte[] encodedKey : encodedKeys) {
+                if (keyLength == encodedKey.length && startsWith(buffer, keyStart, keyLength, encodedKey)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the headers whose key starts with {@code keyPrefix} out of headers encoded by {@link #encodeHeaders},
+     * decoding only those. {@code buffer} is left alone: the returned buffer holds retained slices of it.
+     *
+     * @return the encoded headers without the removed ones, {@code buffer} itself if none matched, or null if the
+     * headers are malformed
+     */
+    public static @Nullable ByteBuf removeHeaders(
+        @NotNull ByteBuf buffer,
+        @NotNull String keyPrefix,
+        @NotNull Map<String, String> removed
+    ) {
+        if (buffer.readableBytes() < 2) {
+            return buffer;
+        }
+        byte[] prefix = keyPrefix.getBytes(StandardCharsets.UTF_8);
+        int end = buffer.writerIndex();
+        int numHeaders = buffer.getUnsignedShort(buffer.readerIndex());
+        int index = buffer.readerIndex() + 2;
+        int runStart = index;
+        CompositeByteBuf kept = null;
+        int numKept = 0;
+
+        for (int i = 0; i < numHeaders; i++) {
+            int entryStart = index;
+            if (index + 2 > end) {
+                return release(kept);
+            }
+            int keyStart = index + 2;
+            int keyLength = buffer.getUnsignedShort(index);
+            index = keyStart + keyLength;
+            if (index + 2 > end) {
+                return release(kept);
+            }
+            int valueStart = index + 2;
+            int valueLength = buffer.getUnsignedShort(index);
+            index = valueStart + valueLength;
+            if (index > end) {
+                return release(kept);
+            }
+
+            if (!startsWith(buffer, keyStart, keyLength, prefix)) {
+                numKept++;
+                continue;
+            }
+            removed.put(
+                buffer.toString(keyStart, keyLength, StandardCharsets.UTF_8),
+                buffer.toString(valueStart, valueLength, StandardCharsets.UTF_8)
+            );
+            if (kept == null) {
+                kept = ByteBufAllocator.DEFAULT.compositeBuffer();
+            }
+            if (entryStart > runStart) {
+                kept.addComponent(true, buffer.retainedSlice(runStart, entryStart - runStart));
+            }
+            runStart = index;
+        }
+
+        if (kept == null) {
+            return buffer;
+        }
+        if (end > runStart) {
+            kept.addComponent(true, buffer.retainedSlice(runStart, end - runStart));
+        }
+        kept.addComponent(true, 0, ByteBufAllocator.DEFAULT.buffer(2).writeShort(numKept));
+        return kept;
+    }
+
+    private static boolean startsWith(@NotNull ByteBuf buffer, int index, int length, @NotNull byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.getByte(index + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static @Nullable ByteBuf release(@Nullable ByteBuf buffer) {
+        if (buffer != null) {
+            buffer.release();
+        }
+        return null;
+    }
+
     public static @NotNull Map<String, String> decodeSmallHeaders(@NotNull ByteBuf buffer) {
 
         short numHeaders = buffer.readUnsignedByte();
@@ -40,10 +40,13 @@ import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.compression.DecompressionException;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public final class MessageCodec {
 
@@ -102,6 +105,23 @@ public final class MessageCodec {
         }
     }
 
+    /**
+     * @param scheme arg scheme of the message, as resolved by the caller: {@link ArgScheme#RAW} for a custom arg
+     *     scheme known to its channel
+     */
+    public static TChannelMessage decodeCallFrames(List<CallFrame> frames, @Nullable ArgScheme scheme) {
+        if (frames.isEmpty()) {
+            return null;
+        }
+
+        CallFrame first = frames.get(0);
+        if (first.getType() == FrameType.CallRequest) {
+            return decodeCallRequest(frames, scheme);
+        } else {
+            return decodeCallResponse(frames, scheme);
+        }
+    }
+
     public static ErrorResponse decodeErrorResponse(ErrorFrame frame) {
         return new ErrorResponse(
             frame.getId(),
@@ -116,13 +136,20 @@ public final class MessageCodec {
             return null;
         }
 
-        CallRequestFrame first = (CallRequestFrame) frames.get(0);
-        ArgScheme scheme = ArgScheme.toScheme(
-            first.getHeaders().get(TransportHeaders.ARG_SCHEME_KEY));
-        if (!ArgScheme.isSupported(scheme)) {
+        return decodeCallRequest(
+            frames,
+            ArgScheme.toScheme(((CallRequestFrame) frames.get(0)).getHeaders().get(TransportHeaders.ARG_SCHEME_KEY))
+        );
+    }
+
+    public static Request decodeCallRequest(List<CallFrame> frames, @Nullable ArgScheme scheme) {
+
+        if (frames.isEmpty() || !ArgScheme.isSupported(scheme)) {
             return null;
         }
 
+        CallRequestFrame first = (CallRequestFrame) frames.get(0);
+
         List<ByteBuf> args = new ArrayList<>();
         for (CallFrame frame : frames) {
             CodecUtils.readArgs(args, frame.getPayload());
@@ -137,6 +164,8 @@ public final class MessageCodec {
             throw new UnsupportedOperationException("The arg count is not should be 3 instead of " + args.size());
         }
 
+        decompressArgs(first.getHeaders(), args);
+
         return Request.build(
             scheme,
             first.getId(),
@@ -155,13 +184,20 @@ public final class MessageCodec {
             return null;
         }
 
-        CallResponseFrame first = (CallResponseFrame) frames.get(0);
-        ArgScheme scheme = ArgScheme.toScheme(
-            first.getHeaders().get(TransportHeaders.ARG_SCHEME_KEY));
-        if (!ArgScheme.isSupported(scheme)) {
+        return decodeCallResponse(
+            frames,
+            ArgScheme.toScheme(((CallResponseFrame) frames.get(0)).getHeaders().get(TransportHeaders.ARG_SCHEME_KEY))
+        );
+    }
+
+    public static Response decodeCallResponse(List<CallFrame> frames, @Nullable ArgScheme scheme) {
+
+        if (frames.isEmpty() || !ArgScheme.isSupported(scheme)) {
             return null;
         }
 
+        CallResponseFrame first = (CallResponseFrame) frames.get(0);
+
         List<ByteBuf> args = new ArrayList<>();
         for (CallFrame frame : frames) {
             CodecUtils.readArgs(args, frame.getPayload());
@@ -176,6 +212,8 @@ public final class MessageCodec {
             throw new UnsupportedOperationException("The arg count is not should be 3 instead of " + args.size());
         }
 
+        decompressArgs(first.getHeaders(), args);
+
         args.get(0).release();
         Response response = Response.build(
             scheme,
@@ -190,4 +228,23 @@ public final class MessageCodec {
         }
         return response;
     }
+
+    /**
+     * Decompresses the args of a message flagged with the {@link TransportHeaders#COMPRESSION_KEY} transport header,
+     * and drops the header. The args are released if they cannot be decompressed.
+     */
+    private static void decompressArgs(@NotNull Map<String, String> transportHeaders, @NotNull List<ByteBuf> args) {
+        String compression = transportHeaders.remove(TransportHeaders.COMPRESSION_KEY);
+        if (compression == null) {
+            return;
+        }
+        try {
+            PayloadCompression.decompressArgs(compression, args);
+        } catch (DecompressionException e) {
+            for (ByteBuf arg : args) {
+                arg.release();
+            }
+            throw e;
+        }
+    }
 }
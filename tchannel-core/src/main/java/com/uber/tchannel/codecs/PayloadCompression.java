@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.codecs;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.handler.codec.compression.Snappy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Compression of the args of call messages.
+ *
+ * The codecs a process accepts are offered in the {@code compression} header of its init request, and the peer picks
+ * one in its init response. Each side then compresses the arg2 and arg3 of the messages it sends over the connection
+ * above a size threshold of its own, and flags them with the {@code cmp} transport header; arg1 is left as is for
+ * routing. A flagged message is decompressed on receipt whatever the connection negotiated.
+ */
+public enum PayloadCompression {
+
+    /**
+     * Snappy, an LZ77-family codec, run straight over the buffers. An arg is compressed in chunks of at most
+     * {@link #SNAPPY_CHUNK_LENGTH} bytes, each written as its compressed length (4 bytes) followed by a Snappy block.
+     */
+    SNAPPY("snappy");
+
+    /** Largest arg that is compressed: larger ones are sent as is, and rejected when received compressed. */
+    public static final int MAX_ARG_LENGTH = 64 * 1024 * 1024;
+
+    // Netty's Snappy encoder indexes its hash table with shorts
+    private static final int SNAPPY_CHUNK_LENGTH = 32 * 1024;
+
+    private final @NotNull String name;
+
+    PayloadCompression(@NotNull String name) {
+        this.name = name;
+    }
+
+    public @NotNull String getName() {
+        return name;
+    }
+
+    public static @Nullable PayloadCompression toCompression(@Nullable String name) {
+        if (name == null) {
+            return null;
+        }
+        for (PayloadCompression compression : values()) {
+            if (compression.name.equals(name)) {
+                return compression;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param offered value of the {@code compression} init header of the peer: a comma-separated list of codec names
+     * @return whether {@code offered} includes this codec
+     */
+    public boolean isOffered(@Nullable String offered) {
+        if (offered == null) {
+            return false;
+        }
+        for (String candidate : offered.split(",")) {
+            if (name.equals(candidate.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return a new buffer holding {@code arg} compressed; the reader index of {@code arg} is left untouched */
+    public @NotNull ByteBuf compress(@NotNull ByteBufAllocator allocator, @NotNull ByteBuf arg) {
+        int length = arg.readableBytes();
+        // Snappy output is at most 32 + n + n/6 bytes per block, plus the chunk length
+        ByteBuf out = allocator.buffer(length + length / 6 + 36 * (length / SNAPPY_CHUNK_LENGTH + 1));
+        boolean release = true;
+        try {
+            Snappy snappy = new Snappy();
+            for (int offset = 0; offset < length; offset += SNAPPY_CHUNK_LENGTH) {
+                int chunkLength = Math.min(SNAPPY_CHUNK_LENGTH, length - offset);
+                int lengthIndex = out.writerIndex();
+                out.writeInt(0);
+                // a slice per chunk: the encoder expects its input to start at reader index 0
+                snappy.encode(arg.slice(arg.readerIndex() + offset, chunkLength), out, chunkLength);
+                snappy.reset();
+                out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+            }
+            release = false;
+            return out;
+        } finally {
+            if (release) {
+                out.release();
+            }
+        }
+    }
+
+    /**
+     * @return a new buffer holding {@code arg} decompressed; the reader index of {@code arg} is left untouched
+     * @throws DecompressionException if {@code arg} is not a valid compressed arg, or decompresses to more than
+     * {@link #MAX_ARG_LENGTH} bytes
+     */
+    public @NotNull ByteBuf decompress(@NotNull ByteBufAllocator allocator, @NotNull ByteBuf arg) {
+        // check the lengths the chunks declare before allocating anything
+        int length = decompressedLength(arg.duplicate());
+        ByteBuf in = arg.duplicate();
+        ByteBuf out = allocator.buffer(length, length);
+        boolean release = true;
+        try {
+            Snappy snappy = new Snappy();
+            while (in.isReadable()) {
+                ByteBuf chunk = in.readSlice(in.readInt());
+                try {
+                    snappy.decode(chunk, out);
+                } catch (IndexOutOfBoundsException e) {
+                    throw new DecompressionException(e);
+                }
+                snappy.reset();
+                if (chunk.isReadable()) {
+                    throw new DecompressionException("Truncated compressed chunk");
+                }
+            }
+            if (out.writerIndex() != length) {
+                throw new DecompressionException("Decompressed " + out.writerIndex() + " bytes, expected " + length);
+            }
+            release = false;
+            return out;
+        } finally {
+            if (release) {
+                out.release();
+            }
+        }
+    }
+
+    /** @return the sum of the uncompressed lengths declared by the Snappy preambles of the chunks of {@code in} */
+    private static int decompressedLength(@NotNull ByteBuf in) {
+        long length = 0;
+        while (in.isReadable()) {
+            if (in.readableBytes() < 4) {
+                throw new DecompressionException("Truncated compressed chunk");
+            }
+            int chunkLength = in.readInt();
+            if (chunkLength <= 0 || chunkLength > in.readableBytes()) {
+                throw new DecompressionException("Invalid compressed chunk length: " + chunkLength);
+            }
+            ByteBuf chunk = in.readSlice(chunkLength);
+            int uncompressedLength = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (!chunk.isReadable() || shift > 14) {
+                    throw new DecompressionException("Invalid compressed chunk preamble");
+                }
+                int b = chunk.readUnsignedByte();
+                uncompressedLength |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            if (uncompressedLength > SNAPPY_CHUNK_LENGTH) {
+                throw new DecompressionException("Invalid compressed chunk preamble: " + uncompressedLength);
+            }
+            length += uncompressedLength;
+            if (length > MAX_ARG_LENGTH) {
+                throw new DecompressionException("Decompressed arg exceeds " + MAX_ARG_LENGTH + " bytes");
+            }
+        }
+        return (int) length;
+    }
+
+    /**
+     * Replaces the arg2 and arg3 of {@code args} with their decompressed contents, releasing the compressed ones.
+     *
+     * @param args arg1, arg2 and arg3 of a message, as read from its frames
+     * @throws DecompressionException if the codec is unknown or an arg is not valid; {@code args} is left as is
+     */
+    public static void decompressArgs(@NotNull String name, @NotNull List<ByteBuf> args) {
+        PayloadCompression compression = toCompression(name);
+        if (compression == null) {
+            throw new DecompressionException("Unsupported compression: " + name);
+        }
+        ByteBuf arg2 = compression.decompress(args.get(1).alloc(), args.get(1));
+        ByteBuf arg3;
+        try {
+            arg3 = compression.decompress(args.get(2).alloc(), args.get(2));
+        } catch (RuntimeException e) {
+            arg2.release();
+            throw e;
+        }
+        args.set(1, arg2).release();
+        args.set(2, arg3).release();
+    }
+}
@@ -28,6 +28,8 @@ public abstract class InitFrame extends Frame {
     public static final int DEFAULT_VERSION = 2;
     public static final String HOST_PORT_KEY = "host_port";
     public static final String PROCESS_NAME_KEY = "process_name";
+    /** Arg compression codecs accepted by the sender, see {@link com.uber.tchannel.codecs.PayloadCompression}. */
+    public static final String COMPRESSION_KEY = "compression";
 
     /**
      * version is a 16 bit number. The currently specified protocol version is 2.
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.handlers;
+
+import com.google.common.collect.Maps;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * A server-wide in-flight request limit that adapts to the observed handler latency.
+ *
+ * This uses a gradient algorithm: latency samples are averaged over a window of {@code windowSize} completions and
+ * compared against a slowly moving long-term average. While the short-term latency stays within {@code tolerance} of
+ * the long-term one, the limit grows by a small queue allowance; as requests start queueing up (and latency rises),
+ * the limit shrinks proportionally. There are no watermarks to tune: the limit follows the hardware and traffic mix.
+ *
+ * Thread-safe; a single instance is shared by all connections of a {@link com.uber.tchannel.api.TChannel}.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private static final int LONG_WINDOW = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int windowSize;
+    private final double tolerance;
+    private final double smoothing;
+
+    private double limit;
+    private int inFlight = 0;
+    private long rejected = 0;
+
+    private long longRttNanos = 0;
+    private long windowRttNanos = 0;
+    private int windowSamples = 0;
+    private int windowMaxInFlight = 0;
+
+    private AdaptiveConcurrencyLimiter(@NotNull Builder builder) {
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.windowSize = builder.windowSize;
+        this.tolerance = builder.tolerance;
+        this.smoothing = builder.smoothing;
+        this.limit = builder.initialLimit;
+    }
+
+    /**
+     * Takes an in-flight slot if the limit allows it.
+     *
+     * @return false if the server is at its limit; the caller should shed the request
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= getLimit()) {
+            rejected++;
+            return false;
+        }
+        windowMaxInFlight = Math.max(windowMaxInFlight, ++inFlight);
+        return true;
+    }
+
+    /** Takes an in-flight slot regardless of the limit, for a request that was already read off the wire. */
+    public synchronized void acquire() {
+        windowMaxInFlight = Math.max(windowMaxInFlight, ++inFlight);
+    }
+
+    /**
+     * Frees an in-flight slot.
+     *
+     * @param latencyNanos the time the request spent on the server, or a negative value if the request did not
+     * complete normally (error or lost connection) and must not be used as a latency sample
+     */
+    public synchronized void release(long latencyNanos) {
+        inFlight--;
+        if (latencyNanos < 0) {
+            return;
+        }
+
+        windowRttNanos += latencyNanos;
+        if (++windowSamples < windowSize) {
+            return;
+        }
+
+        long shortRttNanos = Math.max(1, windowRttNanos / windowSamples);
+        int maxInFlight = windowMaxInFlight;
+        windowRttNanos = 0;
+        windowSamples = 0;
+        windowMaxInFlight = inFlight;
+        update(shortRttNanos, maxInFlight);
+    }
+
+    private void update(long shortRttNanos, int maxInFlight) {
+        if (longRttNanos == 0) {
+            longRttNanos = shortRttNanos;
+        } else {
+            longRttNanos += (shortRttNanos - longRttNanos) / LONG_WINDOW;
+        }
+
+        // Recovering from an overload: let the long-term average catch up with the now lower latency
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos = longRttNanos * 95 / 100;
+        }
+
+        // The server is not busy enough to tell whether a bigger limit would help
+        if (maxInFlight < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    /** @return true if another request can be admitted right now */
+    public synchronized boolean hasCapacity() {
+        return inFlight < getLimit();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public @NotNull Map<String, Long> getStats() {
+        Map<String, Long> result = Maps.newHashMapWithExpectedSize(3);
+        synchronized (this) {
+            result.put("requests.limit", (long) getLimit());
+            result.put("requests.inflight", (long) inFlight);
+            result.put("requests.rejected", rejected);
+        }
+        return result;
+    }
+
+    public static final class Builder {
+
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private int windowSize = 20;
+        private double tolerance = 1.5;
+        private double smoothing = 0.2;
+
+        public @NotNull Builder setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public @NotNull Builder setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public @NotNull Builder setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /** Number of completed requests averaged into a single latency sample. */
+        public @NotNull Builder setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /** How much the short-term latency may exceed the long-term one before the limit starts shrinking. */
+        public @NotNull Builder setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        /** Weight of each new limit estimate, in (0, 1]. */
+        public @NotNull Builder setSmoothing(double smoothing) {
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        public @NotNull AdaptiveConcurrencyLimiter build() {
+            if (minLimit < 1) {
+                throw new IllegalArgumentException("invariant violation: minLimit < 1");
+            }
+            if (maxLimit < minLimit) {
+                throw new IllegalArgumentException("invariant violation: maxLimit < minLimit");
+            }
+            if (initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("invariant violation: initialLimit not in [minLimit, maxLimit]");
+            }
+            if (windowSize < 1) {
+                throw new IllegalArgumentException("invariant violation: windowSize < 1");
+            }
+            if (tolerance < 1.0) {
+                throw new IllegalArgumentException("invariant violation: tolerance < 1.0");
+            }
+            if (smoothing <= 0.0 || smoothing > 1.0) {
+                throw new IllegalArgumentException("invariant violation: smoothing not in (0, 1]");
+            }
+            return new AdaptiveConcurrencyLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.handlers;
+
+import com.uber.tchannel.errors.ErrorType;
+import com.uber.tchannel.frames.ErrorFrame;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Provides adaptive backpressure for all the connections of a server.
+ *
+ * Every incoming {@link Request} takes a slot from the {@link AdaptiveConcurrencyLimiter} shared by the
+ * {@link Factory}; the slot is freed (and the handling latency reported) when the matching response or error frame
+ * is written. Once the limit is reached, excess requests are handled according to the {@link OverloadPolicy}:
+ * with {@link OverloadPolicy#PAUSE_READS}, reading is paused on the connection of the excess request.
+ *
+ * Note: STATEFUL HANDLER (use new instance per pipeline)
+ */
+public final class AdaptiveLoadControlHandler extends ChannelDuplexHandler {
+
+    private final @NotNull Factory factory;
+
+    /** Start time of the in-flight requests of this connection, by request id. */
+    private final @NotNull LongObjectMap<Long> started = new LongObjectHashMap<>();
+
+    private AdaptiveLoadControlHandler(@NotNull Factory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof Request) {
+            Request request = (Request) msg;
+            AdaptiveConcurrencyLimiter limiter = factory.limiter;
+            if (!limiter.tryAcquire()) {
+                if (factory.policy == OverloadPolicy.REJECT) {
+                    ErrorFrame.sendError(ErrorType.Busy, "Server is at its concurrency limit", request, ctx);
+                    return;
+                }
+                limiter.acquire();
+                pause(ctx.channel());
+            }
+            started.put(request.getId(), Long.valueOf(System.nanoTime()));
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (msg instanceof Response) {
+            complete(((Response) msg).getId(), true);
+        } else if (!started.isEmpty()) {
+            long id = OutboundFrames.errorFrameId(msg);
+            if (id >= 0) {
+                complete(id, false);
+            }
+        }
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // These requests won't be answered anymore
+        for (int i = started.size(); i > 0; i--) {
+            factory.release(-1);
+        }
+        started.clear();
+        super.channelInactive(ctx);
+    }
+
+    private void complete(long id, boolean sample) {
+        Long start = started.remove(id);
+        if (start != null) {
+            factory.release(sample ? System.nanoTime() - start : -1);
+        }
+    }
+
+    private void pause(@NotNull Channel channel) {
+        if (channel.config().isAutoRead()) {
+            channel.config().setAutoRead(false);
+            factory.paused.offer(channel);
+        }
+    }
+
+    public static final class Factory {
+
+        private final @NotNull AdaptiveConcurrencyLimiter limiter;
+        private final @NotNull OverloadPolicy policy;
+
+        /** Connections paused because of {@link OverloadPolicy#PAUSE_READS}, resumed in FIFO order. */
+        private final @NotNull Queue<Channel> paused = new ConcurrentLinkedQueue<>();
+
+        public Factory(@NotNull AdaptiveConcurrencyLimiter limiter, @NotNull OverloadPolicy policy) {
+            this.limiter = limiter;
+            this.policy = policy;
+        }
+
+        public @NotNull AdaptiveConcurrencyLimiter getLimiter() {
+            return limiter;
+        }
+
+        public AdaptiveLoadControlHandler create() {
+            return new AdaptiveLoadControlHandler(this);
+        }
+
+        private void release(long latencyNanos) {
+            limiter.release(latencyNanos);
+
+            // Each freed slot resumes at most one connection, so that they take turns
+            Channel channel;
+            while (limiter.hasCapacity() && (channel = paused.poll()) != null) {
+                if (channel.isActive()) {
+                    channel.config().setAutoRead(true);
+                    return;
+                }
+            }
+        }
+    }
+}
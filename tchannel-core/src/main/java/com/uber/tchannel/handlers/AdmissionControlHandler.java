@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.handlers;
+
+import com.google.common.collect.Maps;
+import com.uber.tchannel.errors.ErrorType;
+import com.uber.tchannel.frames.ErrorFrame;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Provides server-wide admission control.
+ *
+ * Unlike {@link LoadControlHandler}, which only sees the requests of its own connection, all the handlers created by
+ * a {@link Factory} share a single in-flight budget, counted both in requests and in request (argument) bytes.
+ * A request is in flight from the moment it is read until its response or error frame is written.
+ *
+ * Once the budget is used up, new requests are handled according to the {@link OverloadPolicy}:
+ * with {@link OverloadPolicy#PAUSE_READS}, reading is paused on all the connections of the server (and on any new
+ * connection as soon as it sends its first request) until the usage drops to 3/4 of the budget; connections are then
+ * resumed starting from a different one each time, so that no connection consistently gets the first go.
+ *
+ * Note: STATEFUL HANDLER (use new instance per pipeline)
+ */
+public final class AdmissionControlHandler extends ChannelDuplexHandler {
+
+    private final @NotNull Factory factory;
+
+    /** Size of the in-flight requests of this connection, by request id. */
+    private final @NotNull LongObjectMap<Integer> admitted = new LongObjectHashMap<>();
+
+    private AdmissionControlHandler(@NotNull Factory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        factory.register(ctx.channel());
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof Request) {
+            Request request = (Request) msg;
+            int bytes = request.argSize();
+            if (!factory.admit(bytes, ctx.channel())) {
+                ErrorFrame.sendError(ErrorType.Busy, "Server is over its admission budget", request, ctx);
+                return;
+            }
+            admitted.put(request.getId(), Integer.valueOf(bytes));
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (msg instanceof Response) {
+            complete(((Response) msg).getId());
+        } else if (!admitted.isEmpty()) {
+            long id = OutboundFrames.errorFrameId(msg);
+            if (id >= 0) {
+                complete(id);
+            }
+        }
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        factory.unregister(ctx.channel());
+
+        // These requests won't be answered anymore
+        for (Integer bytes : admitted.values()) {
+            factory.release(bytes);
+        }
+        admitted.clear();
+        super.channelInactive(ctx);
+    }
+
+    private void complete(long id) {
+        Integer bytes = admitted.remove(id);
+        if (bytes != null) {
+            factory.release(bytes);
+        }
+    }
+
+    public static final class Factory {
+
+        private final int maxRequests;
+        private final long maxBytes;
+        private final @NotNull OverloadPolicy policy;
+
+        private final @NotNull Set<Channel> channels = new LinkedHashSet<>();
+        private final @NotNull Set<Channel> pausedChannels = new HashSet<>();
+        private int requests = 0;
+        private long bytes = 0;
+        private long rejected = 0;
+        private long pauses = 0;
+        private boolean paused = false;
+        private int resumeOffset = 0;
+
+        public Factory(int maxRequests, long maxBytes, @NotNull OverloadPolicy policy) {
+            if (maxRequests < 1) {
+                throw new IllegalArgumentException("invariant violation: maxRequests < 1");
+            }
+            if (maxBytes < 1) {
+                throw new IllegalArgumentException("invariant violation: maxBytes < 1");
+            }
+            this.maxRequests = maxRequests;
+            this.maxBytes = maxBytes;
+            this.policy = policy;
+        }
+
+        public AdmissionControlHandler create() {
+            return new AdmissionControlHandler(this);
+        }
+
+        public @NotNull Map<String, Long> getStats() {
+            Map<String, Long> result = Maps.newHashMapWithExpectedSize(4);
+            synchronized (this) {
+                result.put("requests.inflight", (long) requests);
+                result.put("bytes.inflight", bytes);
+                result.put("requests.rejected", rejected);
+                result.put("reads.paused", pauses);
+            }
+            return result;
+        }
+
+        private synchronized void register(@NotNull Channel channel) {
+            // New connections are left alone until their first request, so that they can complete the handshake
+            channels.add(channel);
+        }
+
+        private synchronized void unregister(@NotNull Channel channel) {
+            channels.remove(channel);
+            pausedChannels.remove(channel);
+        }
+
+        /** @return false if the request does not fit in the budget and must be rejected */
+        private synchronized boolean admit(int size, @NotNull Channel source) {
+            // A single request bigger than the whole byte budget is still let through on an idle server
+            boolean fits = requests == 0 || (requests < maxRequests && bytes + size <= maxBytes);
+            if (!fits && policy == OverloadPolicy.REJECT) {
+                rejected++;
+                return false;
+            }
+
+            requests++;
+            bytes += size;
+            if (policy != OverloadPolicy.PAUSE_READS || (requests < maxRequests && bytes < maxBytes)) {
+                return true;
+            }
+            if (paused) {
+                // A connection that joined after the others were paused
+                pause(source);
+            } else {
+                paused = true;
+                pauses++;
+                for (Channel channel : channels) {
+                    pause(channel);
+                }
+            }
+            return true;
+        }
+
+        private synchronized void release(int size) {
+            requests--;
+            bytes -= size;
+            if (paused && requests <= (long) maxRequests * 3 / 4 && bytes <= maxBytes / 4 * 3) {
+                paused = false;
+                resumeAll();
+            }
+        }
+
+        private void resumeAll() {
+            List<Channel> snapshot = new ArrayList<>(channels);
+            if (snapshot.isEmpty()) {
+                return;
+            }
+            int start = resumeOffset % snapshot.size();
+            resumeOffset = start + 1;
+            for (int i = 0; i < snapshot.size(); i++) {
+                Channel channel = snapshot.get((start + i) % snapshot.size());
+                if (pausedChannels.remove(channel)) {
+                    updateAutoRead(channel);
+                }
+            }
+        }
+
+        private void pause(@NotNull Channel channel) {
+            if (pausedChannels.add(channel)) {
+                updateAutoRead(channel);
+            }
+        }
+
+        private synchronized boolean isPaused(@NotNull Channel channel) {
+            return pausedChannels.contains(channel);
+        }
+
+        /**
+         * Applies the paused state of {@code channel} on its own event loop. Netty defers part of an auto read change
+         * made from another thread to the event loop of the channel, where it can overtake a later change made on the
+         * event loop itself and leave the channel paused for good; the task reads the state when it runs instead.
+         */
+        private void updateAutoRead(final @NotNull Channel channel) {
+            EventLoop eventLoop = channel.eventLoop();
+            if (eventLoop.inEventLoop()) {
+                channel.config().setAutoRead(!pausedChannels.contains(channel));
+                return;
+            }
+            try {
+                eventLoop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        channel.config().setAutoRead(!isPaused(channel));
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The event loop is shutting down, and the channel with it
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.handlers;
+
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.codecs.TFrame;
+import com.uber.tchannel.errors.ErrorType;
+import com.uber.tchannel.frames.FrameType;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import com.uber.tchannel.metrics.CallEvent;
+import com.uber.tchannel.metrics.CallEventListener;
+import com.uber.tchannel.metrics.EndpointMetrics;
+import com.uber.tchannel.metrics.Metrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.collection.LongObjectHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Times the inbound calls of a connection, from the request read off the connection to its response (or error frame)
+ * written back, and records them in the {@link Metrics} of their endpoint, and as a
+ * {@link CallEvent#RESPONSE_WRITTEN}, when either is enabled.
+ *
+ * Sits right after {@link MessageFragmenter}, so that it sees the requests once defragmented, and the responses and
+ * error frames of all the handlers after it, including the load control ones. Reads and writes both happen on the
+ * event loop of the connection: the calls in flight are kept in a plain map.
+ */
+public final class CallMetricsHandler extends ChannelDuplexHandler {
+
+    private static final int ERROR_CODE_OFFSET = TFrame.FRAME_HEADER_LENGTH;
+
+    private final @NotNull TChannel topChannel;
+    private final @Nullable Metrics metrics;
+    private final @Nullable CallEventListener callEventListener;
+    private final @NotNull LongObjectHashMap<InboundCall> calls = new LongObjectHashMap<>();
+
+    public CallMetricsHandler(
+        @NotNull TChannel topChannel,
+        @Nullable Metrics metrics,
+        @Nullable CallEventListener callEventListener
+    ) {
+        this.topChannel = topChannel;
+        this.metrics = metrics;
+        this.callEventListener = callEventListener;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof Request) {
+            Request request = (Request) msg;
+            String service = request.getService() == null ? "" : request.getService();
+            String endpoint = endpoint(service, request);
+            calls.put(
+                request.getId(),
+                new InboundCall(service, endpoint, endpointMetrics(service, endpoint), System.nanoTime())
+            );
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof Response) {
+            Response response = (Response) msg;
+            complete(
+                ctx,
+                response.getId(),
+                response.getError() == null ? null : response.getError().getErrorType()
+            );
+        } else if (msg instanceof ByteBuf) {
+            ByteBuf frame = (ByteBuf) msg;
+            int start = frame.readerIndex();
+            if (frame.readableBytes() > ERROR_CODE_OFFSET && frame.getByte(start + 2) == FrameType.Error.byteValue()) {
+                complete(
+                    ctx,
+                    frame.getUnsignedInt(start + 4),
+                    ErrorType.fromByte(frame.getByte(start + ERROR_CODE_OFFSET))
+                );
+            }
+        }
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        calls.clear();
+        super.channelInactive(ctx);
+    }
+
+    private @NotNull String endpoint(@NotNull String service, @NotNull Request request) {
+        ByteBuf arg1 = request.getArg1();
+        // resolve the endpoint the way RequestRouter does, without decoding arg1
+        RoutingTable.Route route = arg1 == null ? null : topChannel.getRoutingTable().lookup(service, arg1);
+        return route == null ? Metrics.UNKNOWN_ENDPOINT : route.getEndpoint();
+    }
+
+    private @Nullable EndpointMetrics endpointMetrics(@NotNull String service, @NotNull String endpoint) {
+        if (metrics == null) {
+            return null;
+        }
+        // the service comes from the caller: only the ones served here get their own series
+        return metrics.getInbound(
+            topChannel.getSubChannel(service) == null ? Metrics.UNKNOWN_SERVICE : service,
+            endpoint
+        );
+    }
+
+    private void complete(ChannelHandlerContext ctx, long id, @Nullable ErrorType errorType) {
+        InboundCall call = calls.remove(id);
+        if (call == null) {
+            return;
+        }
+        if (call.endpointMetrics != null) {
+            call.endpointMetrics.record(call.startNanos, errorType);
+        }
+        if (callEventListener != null && callEventListener.isEnabled(CallEvent.RESPONSE_WRITTEN)) {
+            callEventListener.onEvent(
+                CallEvent.RESPONSE_WRITTEN,
+                call.service,
+                call.endpoint,
+                id,
+                ctx.channel().remoteAddress(),
+                System.nanoTime() - call.startNanos
+            );
+        }
+    }
+
+    private static final class InboundCall {
+
+        private final @NotNull String service;
+        private final @NotNull String endpoint;
+        private final @Nullable EndpointMetrics endpointMetrics;
+        private final long startNanos;
+
+        InboundCall(
+            @NotNull String service,
+            @NotNull String endpoint,
+            @Nullable EndpointMetrics endpointMetrics,
+            long startNanos
+        ) {
+            this.service = service;
+            this.endpoint = endpoint;
+            this.endpointMetrics = endpointMetrics;
+            this.startNanos = startNanos;
+        }
+    }
+}
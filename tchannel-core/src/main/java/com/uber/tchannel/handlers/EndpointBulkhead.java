@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.handlers;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.uber.tchannel.api.EndpointOptions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Runtime state of the {@link EndpointOptions} of a single endpoint: the dedicated executor, the number of requests in
+ * flight and the requests waiting for a free slot.
+ *
+ * {@link RequestRouter} passes the dispatch of every request to {@link #submit} and calls {@link #release} once its
+ * response (or failure) is available.
+ */
+public final class EndpointBulkhead {
+
+    private final @Nullable ListeningExecutorService executorService;
+    private final int maxConcurrency;
+    private final int maxQueueLength;
+
+    private final @NotNull Queue<QueuedDispatch> queue = new ArrayDeque<>();
+    private int active = 0;
+    private long rejected = 0;
+
+    public EndpointBulkhead(@NotNull EndpointOptions options) {
+        this.executorService = options.getExecutorService() == null
+            ? null
+            : MoreExecutors.listeningDecorator(options.getExecutorService());
+        this.maxConcurrency = options.getMaxConcurrency() == EndpointOptions.UNLIMITED
+            ? Integer.MAX_VALUE
+            : options.getMaxConcurrency();
+        this.maxQueueLength = options.getMaxQueueLength();
+    }
+
+    /** @return the dedicated executor of this endpoint, or {@code null} to use the channel's one */
+    public @Nullable ListeningExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * Runs {@code dispatch} right away if fewer than {@code maxConcurrency} requests are in flight, or queues it to run
+     * on {@code executor} once a slot is released, so that handing the slot over never runs on the releasing stack.
+     *
+     * @return false if the queue is full and the request must be rejected
+     */
+    public boolean submit(@NotNull Runnable dispatch, @NotNull Executor executor) {
+        synchronized (this) {
+            if (active >= maxConcurrency) {
+                if (queue.size() >= maxQueueLength) {
+                    rejected++;
+                    return false;
+                }
+                queue.add(new QueuedDispatch(dispatch, executor));
+                return true;
+            }
+            active++;
+        }
+        dispatch.run();
+        return true;
+    }
+
+    /** Frees the slot of a completed request, handing it over to the next queued one if any. */
+    public void release() {
+        QueuedDispatch next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                active--;
+                return;
+            }
+        }
+        next.execute();
+    }
+
+    public @NotNull Map<String, Long> getStats() {
+        Map<String, Long> result = Maps.newHashMapWithExpectedSize(3);
+        synchronized (this) {
+            result.put("requests.active", (long) active);
+            result.put("requests.queued", (long) queue.size());
+            result.put("requests.rejected", rejected);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.handlers;
+
+import com.google.common.collect.Maps;
+import com.uber.tchannel.headers.TransportHeaders;
+import com.uber.tchannel.messages.Request;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Schedules incoming requests fairly between their callers, as identified by the
+ * {@link TransportHeaders#CALLER_NAME_KEY} transport header (optionally combined with the endpoint).
+ *
+ * Each caller gets its own queue. At most {@code maxConcurrency} requests are handed over to the executor at a time,
+ * picked from the queues by deficit round-robin: every round, a caller may dispatch as many requests as the
+ * {@link Quota#getWeight() weight} of its quota. A caller flooding the server therefore only fills up its own queue
+ * instead of delaying everybody else's requests.
+ *
+ * A {@link Quota} may also cap the number of in-flight requests of a caller, its request rate and its queue length.
+ * Requests over the rate or the queue length are rejected.
+ *
+ * Thread-safe; install it with {@link com.uber.tchannel.api.TChannel.Builder#setRequestScheduler}.
+ */
+public final class FairRequestScheduler {
+
+    /** Idle callers are forgotten once this many callers are being tracked. */
+    private static final int MAX_IDLE_FLOWS = 1024;
+
+    private final int maxConcurrency;
+    private final boolean perEndpoint;
+    private final @NotNull Quota defaultQuota;
+    private final @NotNull Map<String, Quota> quotas;
+
+    private final @NotNull Map<Key, Flow> flows = new HashMap<>();
+    private final @NotNull Queue<Flow> rotation = new ArrayDeque<>();
+    private int active = 0;
+    private int queued = 0;
+    private long rejected = 0;
+
+    private FairRequestScheduler(@NotNull Builder builder) {
+        this.maxConcurrency = builder.maxConcurrency;
+        this.perEndpoint = builder.perEndpoint;
+        this.defaultQuota = builder.defaultQuota;
+        this.quotas = new HashMap<>(builder.quotas);
+    }
+
+    /** @return the scheduling key of {@code request}: its caller name, plus its endpoint if scheduling per endpoint */
+    public @NotNull Key getKey(@NotNull Request request) {
+        String caller = request.getTransportHeaders().get(TransportHeaders.CALLER_NAME_KEY);
+        return new Key(caller == null ? "" : caller, perEndpoint ? request.getEndpoint() : null);
+    }
+
+    /**
+     * Queues {@code dispatch} for the caller {@code key}, running it (and possibly others) right away if there is
+     * capacity. Every dispatched task must be followed by a {@link #release} once its request completes.
+     *
+     * @param executor runs {@code dispatch} if it is only dispatched once another request is released
+     * @return false if the caller is over its rate or queue length quota and the request must be rejected
+     */
+    public boolean submit(@NotNull Key key, @NotNull Runnable dispatch, @NotNull Executor executor) {
+        List<QueuedDispatch> ready;
+        synchronized (this) {
+            Flow flow = flows.get(key);
+            if (flow == null) {
+                if (flows.size() >= MAX_IDLE_FLOWS) {
+                    forgetIdleFlows();
+                }
+                flow = new Flow(getQuota(key));
+                flows.put(key, flow);
+            }
+
+            if (flow.queue.size() >= flow.quota.maxQueueLength || !flow.takeToken()) {
+                rejected++;
+                return false;
+            }
+
+            flow.queue.add(new QueuedDispatch(dispatch, executor));
+            queued++;
+            if (!flow.scheduled && flow.isEligible()) {
+                flow.scheduled = true;
+                rotation.add(flow);
+            }
+            ready = schedule();
+        }
+        if (ready != null) {
+            for (QueuedDispatch next : ready) {
+                next.run();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Frees the slot of a completed request of the caller {@code key}. The requests it lets through are handed over
+     * to their executors, never run on the current stack.
+     */
+    public void release(@NotNull Key key) {
+        List<QueuedDispatch> ready;
+        synchronized (this) {
+            Flow flow = flows.get(key);
+            active--;
+            if (flow != null) {
+                flow.active--;
+                if (!flow.scheduled && flow.isEligible()) {
+                    flow.scheduled = true;
+                    rotation.add(flow);
+                }
+            }
+            ready = schedule();
+        }
+        if (ready != null) {
+            for (QueuedDispatch next : ready) {
+                next.execute();
+            }
+        }
+    }
+
+    public @NotNull Map<String, Long> getStats() {
+        Map<String, Long> result = Maps.newHashMapWithExpectedSize(4);
+        synchronized (this) {
+            result.put("requests.active", (long) active);
+            result.put("requests.queued", (long) queued);
+            result.put("requests.rejected", rejected);
+            result.put("callers", (long) flows.size());
+        }
+        return result;
+    }
+
+    private @NotNull Quota getQuota(@NotNull Key key) {
+        Quota quota = quotas.get(key.caller);
+        return quota == null ? defaultQuota : quota;
+    }
+
+    /** Deficit round-robin over the callers with queued requests, as long as there are free slots. */
+    private @Nullable List<QueuedDispatch> schedule() {
+        List<QueuedDispatch> ready = null;
+        while (active < maxConcurrency) {
+            Flow flow = rotation.peek();
+            if (flow == null) {
+                break;
+            }
+            if (!flow.isEligible()) {
+                rotation.poll();
+                flow.scheduled = false;
+                flow.deficit = 0;
+                continue;
+            }
+            if (flow.deficit == 0) {
+                flow.deficit = flow.quota.weight;
+            }
+
+            if (ready == null) {
+                ready = new ArrayList<>();
+            }
+            ready.add(flow.queue.poll());
+            queued--;
+            flow.active++;
+            active++;
+
+            if (--flow.deficit == 0) {
+                // End of its turn
+                rotation.add(rotation.poll());
+            }
+        }
+        return ready;
+    }
+
+    private void forgetIdleFlows() {
+        long now = System.nanoTime();
+        Iterator<Flow> it = flows.values().iterator();
+        while (it.hasNext()) {
+            Flow flow = it.next();
+            if (flow.active == 0 && flow.queue.isEmpty() && flow.isBucketFull(now)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static final class Flow {
+
+        private final @NotNull Quota quota;
+        private final @NotNull Queue<QueuedDispatch> queue = new ArrayDeque<>();
+        private int active = 0;
+        private int deficit = 0;
+        private boolean scheduled = false;
+
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        Flow(@NotNull Quota quota) {
+            this.quota = quota;
+            this.tokens = quota.getBurst();
+        }
+
+        boolean isEligible() {
+            return !queue.isEmpty() && active < quota.maxConcurrency;
+        }
+
+        /** Token bucket refilled at {@code maxRate} per second, holding at most a second worth of requests. */
+        boolean takeToken() {
+            if (quota.maxRate == Quota.UNLIMITED) {
+                return true;
+            }
+            long now = System.nanoTime();
+            tokens = Math.min(quota.getBurst(), tokens + (now - refilledAt) * quota.maxRate / 1e9);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        boolean isBucketFull(long now) {
+            return quota.maxRate == Quota.UNLIMITED
+                || tokens + (now - refilledAt) * quota.maxRate / 1e9 >= quota.getBurst();
+        }
+    }
+
+    /** A caller, and one of its endpoints if scheduling per endpoint. */
+    public static final class Key {
+
+        private final @NotNull String caller;
+        private final @Nullable String endpoint;
+
+        public Key(@NotNull String caller, @Nullable String endpoint) {
+            this.caller = caller;
+            this.endpoint = endpoint;
+        }
+
+        public @NotNull String getCaller() {
+            return caller;
+        }
+
+        public @Nullable String getEndpoint() {
+            return endpoint;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return caller.equals(other.caller)
+                && (endpoint == null ? other.endpoint == null : endpoint.equals(other.endpoint));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * caller.hashCode() + (endpoint == null ? 0 : endpoint.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return endpoint == null ? caller : caller + " (endpoint " + endpoint + ')';
+        }
+    }
+
+    /** Scheduling parameters of a caller. */
+    public static final class Quota {
+
+        public static final int UNLIMITED = 0;
+
+        private final int weight;
+        private final int maxConcurrency;
+        private final double maxRate;
+        private final int maxQueueLength;
+
+        private Quota(@NotNull Builder builder) {
+            this.weight = builder.weight;
+            this.maxConcurrency = builder.maxConcurrency == UNLIMITED ? Integer.MAX_VALUE : builder.maxConcurrency;
+            this.maxRate = builder.maxRate;
+            this.maxQueueLength = builder.maxQueueLength;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency == Integer.MAX_VALUE ? UNLIMITED : maxConcurrency;
+        }
+
+        public double getMaxRate() {
+            return maxRate;
+        }
+
+        public int getMaxQueueLength() {
+            return maxQueueLength;
+        }
+
+        private double getBurst() {
+            return Math.max(1, maxRate);
+        }
+
+        public static final class Builder {
+
+            private int weight = 1;
+            private int maxConcurrency = UNLIMITED;
+            private double maxRate = UNLIMITED;
+            private int maxQueueLength = 1000;
+
+            /** Number of requests the caller may dispatch per scheduling round. */
+            public @NotNull Builder setWeight(int weight) {
+                this.weight = weight;
+                return this;
+            }
+
+            /** Maximum number of in-flight requests of the caller, or {@link #UNLIMITED}. */
+            public @NotNull Builder setMaxConcurrency(int maxConcurrency) {
+                this.maxConcurrency = maxConcurrency;
+                return this;
+            }
+
+            /** Maximum number of requests per second accepted from the caller, or {@link #UNLIMITED}. */
+            public @NotNull Builder setMaxRate(double maxRate) {
+                this.maxRate = maxRate;
+                return this;
+            }
+
+            /** Maximum number of queued requests of the caller. */
+            public @NotNull Builder setMaxQueueLength(int maxQueueLength) {
+                this.maxQueueLength = maxQueueLength;
+                return this;
+            }
+
+            public @NotNull Quota build() {
+                if (weight < 1) {
+                    throw new IllegalArgumentException("invariant violation: weight < 1");
+                }
+                if (maxConcurrency < 0) {
+                    throw new IllegalArgumentException("invariant violation: maxConcurrency < 0");
+                }
+                if (maxRate < 0) {
+                    throw new IllegalArgumentException("invariant violation: maxRate < 0");
+                }
+                if (maxQueueLength < 0) {
+                    throw new IllegalArgumentException("invariant violation: maxQueueLength < 0");
+                }
+                return new Quota(this);
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private final int maxConcurrency;
+        private boolean perEndpoint = false;
+        private @NotNull Quota defaultQuota = new Quota.Builder().build();
+        private final @NotNull Map<String, Quota> quotas = new HashMap<>();
+
+        /** @param maxConcurrency number of requests handed over to the executor at a time, across all callers */
+        public Builder(int maxConcurrency) {
+            if (maxConcurrency < 1) {
+                throw new IllegalArgumentException("invariant violation: maxConcurrency < 1");
+            }
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        /** Schedules each (caller, endpoint) pair separately instead of each caller. */
+        public @NotNull Builder setPerEndpoint(boolean perEndpoint) {
+            this.perEndpoint = perEndpoint;
+            return this;
+        }
+
+        /** Quota of the callers without one of their own. */
+        public @NotNull Builder setDefaultQuota(@NotNull Quota defaultQuota) {
+            this.defaultQuota = defaultQuota;
+            return this;
+        }
+
+        public @NotNull Builder setQuota(@NotNull String caller, @NotNull Quota quota) {
+            quotas.put(caller, quota);
+            return this;
+        }
+
+        public @NotNull FairRequestScheduler build() {
+            return new FairRequestScheduler(this);
+        }
+    }
+}
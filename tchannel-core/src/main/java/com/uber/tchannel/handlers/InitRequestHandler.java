@@ -23,6 +23,7 @@ package com.uber.tchannel.handlers;
 
 import com.uber.tchannel.channels.PeerManager;
 import com.uber.tchannel.codecs.MessageCodec;
+import com.uber.tchannel.codecs.PayloadCompression;
 import com.uber.tchannel.errors.ErrorType;
 import com.uber.tchannel.frames.Frame;
 import com.uber.tchannel.frames.InitFrame;
@@ -67,6 +68,14 @@ public class InitRequestHandler extends SimpleChannelInboundHandler<ByteBuf> {
 
                     // TODO: figure out what to put here
                     initResponseFrame.setProcessName("java-process");
+
+                    // Accept the arg compression offered by the initiator, if it is ours too
+                    PayloadCompression compression = peerManager.getPayloadCompression();
+                    if (compression != null
+                        && compression.isOffered(initRequestFrameMessage.getHeaders().get(InitFrame.COMPRESSION_KEY))) {
+                        initResponseFrame.getHeaders().put(InitFrame.COMPRESSION_KEY, compression.getName());
+                        MessageFragmenter.enableCompression(ctx, compression, peerManager.getMinCompressedArgBytes());
+                    }
                     MessageCodec.write(ctx, initResponseFrame);
                     ctx.pipeline().remove(this);
                     peerManager.setIdentified(ctx.channel(), initRequestFrameMessage.getHeaders());
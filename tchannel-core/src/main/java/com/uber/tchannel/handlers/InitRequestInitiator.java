@@ -26,6 +26,7 @@ import com.uber.tchannel.api.errors.TChannelError;
 import com.uber.tchannel.api.errors.TChannelProtocol;
 import com.uber.tchannel.channels.PeerManager;
 import com.uber.tchannel.codecs.MessageCodec;
+import com.uber.tchannel.codecs.PayloadCompression;
 import com.uber.tchannel.frames.Frame;
 import com.uber.tchannel.frames.InitFrame;
 import com.uber.tchannel.frames.InitResponseFrame;
@@ -56,6 +57,12 @@ public class InitRequestInitiator extends SimpleChannelInboundHandler<ByteBuf> {
                 InitResponseFrame initResponseFrameMessage = (InitResponseFrame) frame;
 
                 if (initResponseFrameMessage.getVersion() == InitFrame.DEFAULT_VERSION) {
+                    // Use the arg compression accepted by the peer, if it is the one offered
+                    PayloadCompression compression = peerManager.getPayloadCompression();
+                    String accepted = initResponseFrameMessage.getHeaders().get(InitFrame.COMPRESSION_KEY);
+                    if (compression != null && compression.getName().equals(accepted)) {
+                        MessageFragmenter.enableCompression(ctx, compression, peerManager.getMinCompressedArgBytes());
+                    }
                     ctx.pipeline().remove(this);
                     peerManager.setIdentified(ctx.channel(), initResponseFrameMessage.getHeaders());
                 } else {
@@ -21,6 +21,7 @@
  */
 package com.uber.tchannel.handlers;
 
+import com.uber.tchannel.api.TChannel;
 import com.uber.tchannel.api.errors.TChannelProtocol;
 import com.uber.tchannel.codecs.MessageCodec;
 import com.uber.tchannel.errors.ErrorType;
@@ -31,11 +32,17 @@ import com.uber.tchannel.frames.ErrorFrame;
 import com.uber.tchannel.frames.Frame;
 import com.uber.tchannel.frames.FrameType;
 import com.uber.tchannel.headers.ArgScheme;
+import com.uber.tchannel.headers.ThriftProtocol;
 import com.uber.tchannel.headers.TransportHeaders;
+import com.uber.tchannel.messages.ErrorResponse;
+import com.uber.tchannel.messages.Request;
 import com.uber.tchannel.messages.TChannelMessage;
+import com.uber.tchannel.metrics.CallEvent;
+import com.uber.tchannel.metrics.CallEventListener;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.compression.DecompressionException;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +61,28 @@ public class MessageDefragmenter extends MessageToMessageDecoder<ByteBuf> {
     // TODO: reaping the timeouts
     private final Map<Long, List<CallFrame>> callFrames = new ConcurrentHashMap<>();
 
+    private final @Nullable CallEventListener callEventListener;
+
+    private final @Nullable TChannel topChannel;
+
+    public MessageDefragmenter() {
+        this(null);
+    }
+
+    /** @param callEventListener receives a {@link CallEvent#MESSAGE_DECODED} for each message, if not null */
+    public MessageDefragmenter(@Nullable CallEventListener callEventListener) {
+        this(callEventListener, null);
+    }
+
+    /**
+     * @param callEventListener receives a {@link CallEvent#MESSAGE_DECODED} for each message, if not null
+     * @param topChannel accepts the custom arg schemes of its serializers, if not null
+     */
+    public MessageDefragmenter(@Nullable CallEventListener callEventListener, @Nullable TChannel topChannel) {
+        this.callEventListener = callEventListener;
+        this.topChannel = topChannel;
+    }
+
     public Map<Long, List<CallFrame>> getCallFrames() {
         return callFrames;
     }
@@ -62,6 +91,9 @@ public class MessageDefragmenter extends MessageToMessageDecoder<ByteBuf> {
     protected void decode(ChannelHandlerContext ctx, ByteBuf buf, List<Object> out) throws Exception {
 
         buf.touch("MessageDefragmenter.decode(...)");
+        long startNanos = callEventListener != null && callEventListener.isEnabled(CallEvent.MESSAGE_DECODED)
+            ? System.nanoTime()
+            : 0;
         Frame frame = MessageCodec.decode(
             MessageCodec.decode(buf)
         );
@@ -74,7 +106,7 @@ public class MessageDefragmenter extends MessageToMessageDecoder<ByteBuf> {
                 break;
             case CallRequestContinue:
             case CallResponseContinue:
-                msg = decodeCallContinueFrame((CallFrame) frame);
+                msg = decodeCallContinueFrame(ctx, (CallFrame) frame);
                 break;
             case Error:
                 msg = MessageCodec.decodeErrorResponse((ErrorFrame) frame);
@@ -84,10 +116,31 @@ public class MessageDefragmenter extends MessageToMessageDecoder<ByteBuf> {
         }
 
         if (msg != null) {
+            if (startNanos != 0) {
+                reportDecoded(ctx, msg, startNanos);
+            }
             out.add(msg);
         }
     }
 
+    private void reportDecoded(ChannelHandlerContext ctx, TChannelMessage msg, long startNanos) {
+        assert callEventListener != null;
+        String service = null;
+        String endpoint = null;
+        if (msg instanceof Request) {
+            service = ((Request) msg).getService();
+            endpoint = ((Request) msg).getEndpoint();
+        }
+        callEventListener.onEvent(
+            CallEvent.MESSAGE_DECODED,
+            service,
+            endpoint,
+            msg.getId(),
+            ctx.channel().remoteAddress(),
+            System.nanoTime() - startNanos
+        );
+    }
+
     private static boolean hasMore(@Nullable Frame frame) {
         return frame instanceof CallFrame && ((CallFrame) frame).moreFragmentsFollow();
 
@@ -95,13 +148,7 @@ public class MessageDefragmenter extends MessageToMessageDecoder<ByteBuf> {
 
     private TChannelMessage decodeCallFrame(ChannelHandlerContext ctx, CallFrame frame) {
 
-        ArgScheme scheme;
-        if (frame.getType() == FrameType.CallRequest) {
-            scheme = ArgScheme.toScheme(((CallRequestFrame) frame).getHeaders().get(TransportHeaders.ARG_SCHEME_KEY));
-        } else {
-            scheme = ArgScheme.toScheme(((CallResponseFrame) frame).getHeaders().get(TransportHeaders.ARG_SCHEME_KEY));
-        }
-
+        ArgScheme scheme = getArgScheme(frame);
         if (!ArgScheme.isSupported(scheme)) {
 
             if (frame.getType() == FrameType.CallRequest) {
@@ -122,7 +169,7 @@ public class MessageDefragmenter extends MessageToMessageDecoder<ByteBuf> {
         boolean release = true;
         try {
             if (!hasMore(frame)) {
-                result = MessageCodec.decodeCallFrames(frames);
+                result = decodeCallFrames(ctx, frames);
             } else {
                 callFrames.put(frame.getId(), frames);
                 result = null;
@@ -139,7 +186,7 @@ public class MessageDefragmenter extends MessageToMessageDecoder<ByteBuf> {
         return result;
     }
 
-    private TChannelMessage decodeCallContinueFrame(CallFrame frame)
+    private TChannelMessage decodeCallContinueFrame(ChannelHandlerContext ctx, CallFrame frame)
         throws TChannelProtocol {
 
         List<CallFrame> frames = callFrames.get(frame.getId());
@@ -155,7 +202,7 @@ public class MessageDefragmenter extends MessageToMessageDecoder<ByteBuf> {
         try {
             if (!hasMore(frame)) {
                 callFrames.remove(frame.getId());
-                result = MessageCodec.decodeCallFrames(frames);
+                result = decodeCallFrames(ctx, frames);
             } else {
                 result = null;
             }
@@ -168,4 +215,57 @@ public class MessageDefragmenter extends MessageToMessageDecoder<ByteBuf> {
         return result;
     }
 
+    /** @return the arg scheme of a call frame, {@link ArgScheme#RAW} for the custom ones of the channel */
+    private @Nullable ArgScheme getArgScheme(CallFrame frame) {
+        String argScheme = getTransportHeaders(frame).get(TransportHeaders.ARG_SCHEME_KEY);
+        ArgScheme scheme = ArgScheme.toScheme(argScheme);
+        if (scheme == null && topChannel != null && topChannel.getRoutingTable().isCustomArgScheme(argScheme)) {
+            return ArgScheme.RAW;
+        }
+        return scheme;
+    }
+
+    private static Map<String, String> getTransportHeaders(CallFrame frame) {
+        return frame.getType() == FrameType.CallRequest
+            ? ((CallRequestFrame) frame).getHeaders()
+            : ((CallResponseFrame) frame).getHeaders();
+    }
+
+    private @Nullable TChannelMessage decodeCallFrames(ChannelHandlerContext ctx, List<CallFrame> frames) {
+        CallFrame first = frames.get(0);
+        ArgScheme scheme = getArgScheme(first);
+        if (scheme == ArgScheme.THRIFT && ThriftProtocol.fromTransportHeaders(getTransportHeaders(first)) == null) {
+            // neither side could decode the body, nor encode an answer in that protocol
+            String thriftProtocol = getTransportHeaders(first).get(TransportHeaders.THRIFT_PROTOCOL_KEY);
+            for (CallFrame frame : frames) {
+                frame.release();
+            }
+            return reject(ctx, first, "Thrift protocol unsupported: " + thriftProtocol, null);
+        }
+
+        try {
+            return MessageCodec.decodeCallFrames(frames, scheme);
+        } catch (DecompressionException e) {
+            return reject(ctx, first, "Failed to decompress args: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Answers a request that cannot be decoded with a {@link ErrorType#BadRequest}, or fails the pending request of a
+     * response that cannot be decoded rather than leaving it to time out.
+     */
+    private static @Nullable TChannelMessage reject(
+        ChannelHandlerContext ctx,
+        CallFrame first,
+        String message,
+        @Nullable Throwable cause
+    ) {
+        if (first.getType() == FrameType.CallRequest) {
+            sendError(ErrorType.BadRequest, message, first.getId(), ctx);
+            return null;
+        }
+        logger.error("Failed to decode response {}: {}", first.getId(), message, cause);
+        return new ErrorResponse(first.getId(), ErrorType.FatalProtocolError, message);
+    }
+
 }
@@ -24,12 +24,14 @@ package com.uber.tchannel.handlers;
 
 import com.uber.tchannel.checksum.ChecksumType;
 import com.uber.tchannel.codecs.MessageCodec;
+import com.uber.tchannel.codecs.PayloadCompression;
 import com.uber.tchannel.frames.CallFrame;
 import com.uber.tchannel.frames.CallRequestContinueFrame;
 import com.uber.tchannel.frames.CallRequestFrame;
 import com.uber.tchannel.frames.CallResponseContinueFrame;
 import com.uber.tchannel.frames.CallResponseFrame;
 import com.uber.tchannel.frames.FrameType;
+import com.uber.tchannel.headers.TransportHeaders;
 import com.uber.tchannel.messages.RawMessage;
 import com.uber.tchannel.messages.Request;
 import com.uber.tchannel.messages.Response;
@@ -39,14 +41,37 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MessageFragmenter extends MessageToMessageEncoder<RawMessage> {
 
     private static final Trace DUMMY_TRACE = new Trace(0, 0, 0, (byte) 0x00);
 
+    private volatile @Nullable PayloadCompression compression = null;
+    private volatile int minCompressedArgBytes = 0;
+
+    /** Compresses the args of the messages written to the channel of {@code ctx} from now on. */
+    public static void enableCompression(
+        @NotNull ChannelHandlerContext ctx,
+        @NotNull PayloadCompression compression,
+        int minCompressedArgBytes
+    ) {
+        MessageFragmenter fragmenter = ctx.pipeline().get(MessageFragmenter.class);
+        if (fragmenter != null) {
+            fragmenter.minCompressedArgBytes = minCompressedArgBytes;
+            fragmenter.compression = compression;
+        }
+    }
+
+    public @Nullable PayloadCompression getCompression() {
+        return compression;
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, RawMessage msg, List<Object> out) throws Exception {
         writeFrames(ctx, msg, out);
@@ -65,25 +90,90 @@ public class MessageFragmenter extends MessageToMessageEncoder<RawMessage> {
         args.add(msg.getArg2());
         args.add(msg.getArg3());
 
-        CallFrame frame = null;
-        while (!args.isEmpty()) {
-            if (frame == null || frame.isPayloadFull()) {
-                frame = createFrame(msg, args.size());
-            }
+        // the compressed args, released once they are sliced into the frames
+        PayloadCompression compression = this.compression;
+        List<ByteBuf> compressed = compression == null ? null : compress(ctx, compression, args);
+        Map<String, String> transportHeaders = msg.getTransportHeaders();
+        if (compressed != null) {
+            // the message itself is left alone: a retry may go over a connection without compression
+            transportHeaders = transportHeaders == null
+                ? new HashMap<String, String>()
+                : new HashMap<>(transportHeaders);
+            transportHeaders.put(TransportHeaders.COMPRESSION_KEY, compression.getName());
+        }
 
-            frame.encodePayload(ctx.alloc(), args);
-            frames.add(
-                MessageCodec.encode(ctx.alloc(),
-                    MessageCodec.encode(
-                        ctx.alloc(),
-                        frame
+        try {
+            CallFrame frame = null;
+            while (!args.isEmpty()) {
+                if (frame == null || frame.isPayloadFull()) {
+                    frame = createFrame(msg, args.size(), transportHeaders);
+                }
+
+                frame.encodePayload(ctx.alloc(), args);
+                frames.add(
+                    MessageCodec.encode(ctx.alloc(),
+                        MessageCodec.encode(
+                            ctx.alloc(),
+                            frame
+                        )
                     )
-                )
-            );
+                );
+            }
+        } finally {
+            if (compressed != null) {
+                for (ByteBuf arg : compressed) {
+                    arg.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces arg2 and arg3 in {@code args} with their compressed contents, if they are large enough and it makes
+     * them smaller.
+     *
+     * @return the compressed args, or null if {@code args} was left as is
+     */
+    private @Nullable List<ByteBuf> compress(
+        @NotNull ChannelHandlerContext ctx,
+        @NotNull PayloadCompression compression,
+        @NotNull List<ByteBuf> args
+    ) {
+        ByteBuf arg2 = args.get(1);
+        ByteBuf arg3 = args.get(2);
+        if (arg2 == null || arg3 == null) {
+            return null;
+        }
+        int size = arg2.readableBytes() + arg3.readableBytes();
+        if (size < minCompressedArgBytes
+            || arg2.readableBytes() > PayloadCompression.MAX_ARG_LENGTH
+            || arg3.readableBytes() > PayloadCompression.MAX_ARG_LENGTH) {
+            return null;
         }
+
+        List<ByteBuf> compressed = new ArrayList<>(2);
+        compressed.add(compression.compress(ctx.alloc(), arg2));
+        compressed.add(compression.compress(ctx.alloc(), arg3));
+        if (compressed.get(0).readableBytes() + compressed.get(1).readableBytes() >= size) {
+            for (ByteBuf arg : compressed) {
+                arg.release();
+            }
+            return null;
+        }
+        args.set(1, compressed.get(0));
+        args.set(2, compressed.get(1));
+        return compressed;
     }
 
     protected @NotNull CallFrame createFrame(@NotNull RawMessage msg, int argCount) {
+        return createFrame(msg, argCount, msg.getTransportHeaders());
+    }
+
+    protected @NotNull CallFrame createFrame(
+        @NotNull RawMessage msg,
+        int argCount,
+        Map<String, String> transportHeaders
+    ) {
         if (msg.getType() == FrameType.CallRequest) {
             Request request = (Request) msg;
             if (argCount == 3) {
@@ -94,7 +184,7 @@ public class MessageFragmenter extends MessageToMessageEncoder<RawMessage> {
                     // trace is required to be nonNull down the stack when frame is encoded
                     request.getTrace() == null ? DUMMY_TRACE : request.getTrace(),
                     request.getService(),
-                    request.getTransportHeaders(),
+                    transportHeaders,
                     ChecksumType.NoChecksum,
                     0,
                     TChannelUtilities.emptyByteBuf
@@ -116,7 +206,7 @@ public class MessageFragmenter extends MessageToMessageEncoder<RawMessage> {
                     (byte)0,
                     response.getResponseCode(),
                     DUMMY_TRACE,
-                    response.getTransportHeaders(),
+                    transportHeaders,
                     ChecksumType.NoChecksum,
                     0,
                     TChannelUtilities.emptyByteBuf
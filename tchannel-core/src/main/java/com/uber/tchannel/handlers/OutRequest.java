@@ -4,6 +4,8 @@ import com.uber.tchannel.api.SubChannel;
 import com.uber.tchannel.api.TFuture;
 import com.uber.tchannel.errors.ErrorType;
 import com.uber.tchannel.headers.ArgScheme;
+import com.uber.tchannel.messages.EncodedRequest;
+import com.uber.tchannel.messages.EncodedResponse;
 import com.uber.tchannel.messages.ErrorResponse;
 import com.uber.tchannel.messages.JsonResponse;
 import com.uber.tchannel.messages.RawResponse;
@@ -11,8 +13,13 @@ import com.uber.tchannel.messages.Request;
 import com.uber.tchannel.messages.Response;
 import com.uber.tchannel.messages.ResponseMessage;
 import com.uber.tchannel.messages.ThriftResponse;
+import com.uber.tchannel.metrics.CallEvent;
+import com.uber.tchannel.metrics.CallEventListener;
+import com.uber.tchannel.metrics.EndpointMetrics;
+import com.uber.tchannel.metrics.Metrics;
 import com.uber.tchannel.tracing.TracingContext;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.util.Timeout;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -22,7 +29,7 @@ import org.slf4j.LoggerFactory;
 import java.net.SocketAddress;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * The logic unit for managing out requests
@@ -31,11 +38,24 @@ public final class OutRequest<V extends Response> {
 
     private static final Logger logger = LoggerFactory.getLogger(OutRequest.class);
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<OutRequest> RETRY_COUNT =
+        AtomicIntegerFieldUpdater.newUpdater(OutRequest.class, "retryCount");
+
     private final @NotNull SubChannel subChannel;
     private final @NotNull Request request;
     private final @NotNull TFuture<V> future;
-    private final @NotNull Set<SocketAddress> usedPeers = new HashSet<>();
-    private final @NotNull AtomicInteger retryCount = new AtomicInteger(0);
+
+    // most calls only ever use one peer: the set is only allocated on retries to another one
+    private @Nullable SocketAddress firstUsedPeer = null;
+    private @Nullable Set<SocketAddress> usedPeers = null;
+    private volatile int retryCount = 0;
+
+    private final @Nullable EndpointMetrics metrics;
+    private final @Nullable CallEventListener callEventListener;
+    private final long startNanos;
+    // when the current attempt was queued on its connection, for the call events
+    private volatile long queuedNanos = 0;
 
     private int retryLimit = 0;
     private @Nullable Timeout timeout = null;
@@ -51,6 +71,16 @@ public final class OutRequest<V extends Response> {
         this.request = request;
         this.future = TFuture.create(request.getArgScheme(), tracingContext);
         this.retryLimit = request.getRetryLimit();
+        Metrics channelMetrics = subChannel.getTopChannel().getMetrics();
+        this.metrics = channelMetrics == null
+            ? null
+            : channelMetrics.getOutbound(request.getService(), request.getEndpoint());
+        this.callEventListener = subChannel.getTopChannel().getCallEventListener();
+        if (callEventListener != null) {
+            // decodes the endpoint now, in case arg1 is released by the time events are reported
+            request.getEndpoint();
+        }
+        this.startNanos = channelMetrics == null && callEventListener == null ? 0 : System.nanoTime();
     }
 
     /** @deprecated Use {@link #OutRequest(SubChannel, Request, TracingContext)}. */
@@ -68,16 +98,16 @@ public final class OutRequest<V extends Response> {
     }
 
     public int getRetryCount() {
-        return retryCount.get();
+        return retryCount;
     }
 
     public void disableRetry() {
         retryLimit = 0;
-        retryCount.set(1);
+        retryCount = 1;
     }
 
     public boolean shouldRetry() {
-        int count = retryCount.getAndIncrement();
+        int count = RETRY_COUNT.getAndIncrement(this);
         if (count > retryLimit) {
             return false;
         }
@@ -87,7 +117,59 @@ public final class OutRequest<V extends Response> {
             return true;
         }
 
-        return shouldRetryOnError();
+        boolean retry = shouldRetryOnError();
+        if (retry) {
+            Metrics channelMetrics = subChannel.getTopChannel().getMetrics();
+            if (channelMetrics != null) {
+                channelMetrics.recordRetry();
+            }
+            ChannelFuture lastChannelFuture = channelFuture;
+            report(
+                CallEvent.REQUEST_RETRIED,
+                lastChannelFuture == null ? null : lastChannelFuture.channel().remoteAddress(),
+                startNanos
+            );
+        }
+        return retry;
+    }
+
+    /** Reports a {@link CallEvent#REQUEST_QUEUED}, and starts timing the attempt. */
+    void onQueued(@Nullable SocketAddress peer) {
+        if (callEventListener != null) {
+            queuedNanos = System.nanoTime();
+            report(CallEvent.REQUEST_QUEUED, peer, startNanos);
+        }
+    }
+
+    /** Reports a {@link CallEvent#REQUEST_WRITTEN} once {@code writeFuture} succeeds. */
+    void onWrite(@NotNull ChannelFuture writeFuture) {
+        if (callEventListener != null && callEventListener.isEnabled(CallEvent.REQUEST_WRITTEN)) {
+            writeFuture.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) {
+                    if (future.isSuccess()) {
+                        report(CallEvent.REQUEST_WRITTEN, future.channel().remoteAddress(), queuedNanos);
+                    }
+                }
+            });
+        }
+    }
+
+    void onTimedOut(@Nullable SocketAddress peer) {
+        report(CallEvent.REQUEST_TIMED_OUT, peer, queuedNanos);
+    }
+
+    private void report(@NotNull CallEvent event, @Nullable SocketAddress peer, long sinceNanos) {
+        if (callEventListener != null && callEventListener.isEnabled(event)) {
+            callEventListener.onEvent(
+                event,
+                request.getService(),
+                request.getEndpoint(),
+                request.getId(),
+                peer,
+                System.nanoTime() - sinceNanos
+            );
+        }
     }
 
     public @Nullable Timeout getTimeout() {
@@ -129,11 +211,25 @@ public final class OutRequest<V extends Response> {
     }
 
     public boolean isUsedPeer(SocketAddress address) {
-        return this.usedPeers.contains(address);
+        if (usedPeers != null) {
+            return usedPeers.contains(address);
+        }
+        return firstUsedPeer != null && firstUsedPeer.equals(address);
     }
 
     public void setUsedPeer(SocketAddress address) {
-        this.usedPeers.add(address);
+        if (firstUsedPeer == null) {
+            firstUsedPeer = address;
+            return;
+        }
+        if (usedPeers == null) {
+            if (firstUsedPeer.equals(address)) {
+                return;
+            }
+            usedPeers = new HashSet<>();
+            usedPeers.add(firstUsedPeer);
+        }
+        usedPeers.add(address);
     }
 
     public @Nullable ErrorResponse getLastError() {
@@ -154,6 +250,13 @@ public final class OutRequest<V extends Response> {
 
     public void setFuture(@NotNull Response response) {
         release();
+        if (metrics != null) {
+            metrics.record(startNanos, response.getError() == null ? null : response.getError().getErrorType());
+        }
+        // decode the response with the serializers that encoded the request
+        if (request instanceof EncodedRequest && response instanceof EncodedResponse) {
+            ((EncodedResponse<?>) response).setSerializer(((EncodedRequest<?>) request).getSerializer());
+        }
         setResponseFuture(request.getArgScheme(), response);
     }
 
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.handlers;
+
+import com.uber.tchannel.codecs.TFrame;
+import com.uber.tchannel.frames.FrameType;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Helpers for handlers that sit in front of {@link RequestRouter} and watch the responses it writes.
+ */
+final class OutboundFrames {
+
+    private OutboundFrames() {}
+
+    /**
+     * Error responses are written as already encoded frames rather than {@link com.uber.tchannel.messages.Response}s;
+     * this peeks at the frame header without decoding it.
+     *
+     * @return the id of the request answered by {@code msg} if it is an encoded error frame, -1 otherwise
+     */
+    static long errorFrameId(Object msg) {
+        if (!(msg instanceof ByteBuf)) {
+            return -1;
+        }
+        ByteBuf frame = (ByteBuf) msg;
+        int index = frame.readerIndex();
+        if (frame.readableBytes() < TFrame.FRAME_HEADER_LENGTH
+            || frame.getByte(index + TFrame.FRAME_SIZE_LENGTH) != FrameType.Error.byteValue()) {
+            return -1;
+        }
+        return frame.getUnsignedInt(index + 4);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.handlers;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A request dispatch waiting for a free slot in {@link EndpointBulkhead} or {@link FairRequestScheduler}, with the
+ * executor it runs on once it gets one: usually the event loop of its connection, so that handing a released slot
+ * over never runs on the stack of the request that released it.
+ */
+final class QueuedDispatch {
+
+    private final @NotNull Runnable dispatch;
+    private final @NotNull Executor executor;
+
+    QueuedDispatch(@NotNull Runnable dispatch, @NotNull Executor executor) {
+        this.dispatch = dispatch;
+        this.executor = executor;
+    }
+
+    /** Runs the dispatch on the current thread. */
+    void run() {
+        dispatch.run();
+    }
+
+    /** Hands the dispatch over to its executor. */
+    void execute() {
+        try {
+            executor.execute(dispatch);
+        } catch (RejectedExecutionException e) {
+            // the event loop is shutting down: the dispatch finds its connection closed and releases the slot again
+            dispatch.run();
+        }
+    }
+}
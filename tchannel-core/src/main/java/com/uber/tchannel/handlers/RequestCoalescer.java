@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.handlers;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.uber.tchannel.api.TFuture;
+import com.uber.tchannel.headers.ArgScheme;
+import com.uber.tchannel.messages.EncodedResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import com.uber.tchannel.tracing.TracingContext;
+import com.uber.tchannel.utils.TChannelUtilities;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-flight for the outbound requests of a {@link com.uber.tchannel.api.SubChannel}: a request to one of the
+ * enabled endpoints that is identical to one already in flight (same endpoint, transport headers, arg2, arg3 and
+ * target) is not sent; it waits for the response of the first one instead.
+ *
+ * Every caller, including the one whose request was sent, gets its own {@link TFuture} and its own response holding
+ * retained duplicates of the response args, so the usual reference counting rules apply to each of them. Joined
+ * requests share the timeout of the request that was sent.
+ */
+public final class RequestCoalescer {
+
+    private final @NotNull Set<String> endpoints =
+        Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final @NotNull ConcurrentMap<Key, Flight> flights = new ConcurrentHashMap<>();
+    private final @NotNull AtomicLong sent = new AtomicLong();
+    private final @NotNull AtomicLong coalesced = new AtomicLong();
+
+    /** Sends a request on behalf of the coalescer. */
+    public interface Sender {
+        @NotNull <V extends Response> TFuture<V> send(@NotNull Request request);
+    }
+
+    public void enable(@NotNull String endpoint) {
+        endpoints.add(endpoint);
+    }
+
+    public boolean isEnabled(@NotNull Request request) {
+        return !endpoints.isEmpty() && endpoints.contains(request.getEndpoint());
+    }
+
+    /**
+     * Joins {@code request} to an identical request in flight, or sends it with {@code sender}. A joined request is
+     * released right away.
+     */
+    public @NotNull <V extends Response> TFuture<V> send(
+        @NotNull Request request,
+        @Nullable InetAddress host,
+        int port,
+        @Nullable TracingContext tracingContext,
+        @NotNull Sender sender
+    ) {
+        Key key = new Key(request, host, port);
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight == null) {
+                flight = new Flight(request.getArgScheme(), tracingContext);
+                if (flights.putIfAbsent(key, flight) != null) {
+                    continue;
+                }
+                TFuture<V> future = flight.join();
+                sent.incrementAndGet();
+                TFuture<V> inner;
+                try {
+                    inner = sender.send(request);
+                } catch (RuntimeException | Error e) {
+                    flight.abort(key, e);
+                    throw e;
+                }
+                flight.start(key, inner);
+                return future;
+            }
+
+            TFuture<V> future = flight.join();
+            if (future != null) {
+                coalesced.incrementAndGet();
+                request.release();
+                return future;
+            }
+            // the flight has just landed; try again
+            flights.remove(key, flight);
+        }
+    }
+
+    public @NotNull Map<String, Long> getStats() {
+        Map<String, Long> result = Maps.newHashMapWithExpectedSize(3);
+        result.put("requests.inflight", (long) flights.size());
+        result.put("requests.sent", sent.get());
+        result.put("requests.coalesced", coalesced.get());
+        return result;
+    }
+
+    private final class Flight {
+
+        private final @NotNull ArgScheme argScheme;
+        private final @Nullable TracingContext tracingContext;
+        private @Nullable List<TFuture<Response>> waiters = new ArrayList<>();
+
+        Flight(@NotNull ArgScheme argScheme, @Nullable TracingContext tracingContext) {
+            this.argScheme = argScheme;
+            this.tracingContext = tracingContext;
+        }
+
+        /** @return a new future completed with the response of this flight, or null if it has already landed */
+        @SuppressWarnings("unchecked")
+        synchronized @Nullable <V extends Response> TFuture<V> join() {
+            if (waiters == null) {
+                return null;
+            }
+            TFuture<Response> future = TFuture.create(argScheme, tracingContext);
+            waiters.add(future);
+            return (TFuture<V>) future;
+        }
+
+        void start(final @NotNull Key key, final @NotNull TFuture<? extends Response> inner) {
+            inner.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    land(inner, remove(key));
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        /** Fails the requests that joined this flight, whose request could not be sent. */
+        void abort(@NotNull Key key, @NotNull Throwable cause) {
+            for (TFuture<Response> waiter : remove(key)) {
+                waiter.setException(cause);
+            }
+        }
+
+        /** @return the futures of the requests of this flight, which no request can join any more */
+        private @NotNull List<TFuture<Response>> remove(@NotNull Key key) {
+            flights.remove(key, this);
+            List<TFuture<Response>> landed;
+            synchronized (this) {
+                landed = waiters;
+                waiters = null;
+            }
+            return landed;
+        }
+
+        private void land(@NotNull TFuture<? extends Response> inner, @NotNull List<TFuture<Response>> landed) {
+            Response response;
+            try {
+                // get() makes this listener the owner of the response: it is released below
+                response = inner.get();
+            } catch (ExecutionException | InterruptedException e) {
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                for (TFuture<Response> waiter : landed) {
+                    waiter.setException(cause);
+                }
+                return;
+            }
+
+            try {
+                for (TFuture<Response> waiter : landed) {
+                    waiter.set(duplicate(response));
+                }
+            } finally {
+                response.release();
+            }
+        }
+
+        private @NotNull Response duplicate(@NotNull Response response) {
+            if (response.isError()) {
+                return Response.build(argScheme, response.getError());
+            }
+            Map<String, String> transportHeaders = response.getTransportHeaders() == null
+                ? new HashMap<String, String>()
+                : new HashMap<>(response.getTransportHeaders());
+            Response duplicate = Response.build(
+                argScheme,
+                response.getId(),
+                response.getResponseCode(),
+                transportHeaders,
+                retainedDuplicate(response.getArg2()),
+                retainedDuplicate(response.getArg3())
+            );
+            if (response instanceof EncodedResponse && duplicate instanceof EncodedResponse) {
+                ((EncodedResponse<?>) duplicate).setSerializer(((EncodedResponse<?>) response).getSerializer());
+            }
+            return duplicate;
+        }
+    }
+
+    private static @NotNull ByteBuf retainedDuplicate(@Nullable ByteBuf arg) {
+        return arg == null ? TChannelUtilities.emptyByteBuf : arg.retainedDuplicate();
+    }
+
+    private static @NotNull ByteBuf copy(@Nullable ByteBuf arg) {
+        return arg == null || !arg.isReadable() ? TChannelUtilities.emptyByteBuf : Unpooled.copiedBuffer(arg);
+    }
+
+    private static final class Key {
+
+        private final @Nullable InetAddress host;
+        private final int port;
+        private final @NotNull Map<String, String> transportHeaders;
+        private final @NotNull ByteBuf arg1;
+        private final @NotNull ByteBuf arg2;
+        private final @NotNull ByteBuf arg3;
+        private final int hash;
+
+        Key(@NotNull Request request, @Nullable InetAddress host, int port) {
+            this.host = host;
+            this.port = port;
+            this.transportHeaders = new HashMap<>(request.getTransportHeaders());
+            // heap copies: the request args are released once it is written
+            this.arg1 = copy(request.getArg1());
+            this.arg2 = copy(request.getArg2());
+            this.arg3 = copy(request.getArg3());
+
+            int result = host == null ? 0 : host.hashCode();
+            result = 31 * result + port;
+            result = 31 * result + transportHeaders.hashCode();
+            result = 31 * result + ByteBufUtil.hashCode(arg1);
+            result = 31 * result + ByteBufUtil.hashCode(arg2);
+            result = 31 * result + ByteBufUtil.hashCode(arg3);
+            this.hash = result;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash
+                && port == other.port
+                && (host == null ? other.host == null : host.equals(other.host))
+                && transportHeaders.equals(other.transportHeaders)
+                && ByteBufUtil.equals(arg1, other.arg1)
+                && ByteBufUtil.equals(arg2, other.arg2)
+                && ByteBufUtil.equals(arg3, other.arg3);
+        }
+    }
+}
@@ -29,15 +29,20 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.uber.tchannel.api.ResponseCode;
-import com.uber.tchannel.api.SubChannel;
 import com.uber.tchannel.api.TChannel;
 import com.uber.tchannel.api.handlers.AsyncRequestHandler;
+import com.uber.tchannel.api.handlers.InlineRequestHandler;
 import com.uber.tchannel.api.handlers.RequestHandler;
 import com.uber.tchannel.errors.ErrorType;
 import com.uber.tchannel.errors.ProtocolError;
+import com.uber.tchannel.messages.EncodedRequest;
 import com.uber.tchannel.messages.Request;
 import com.uber.tchannel.messages.Response;
+import com.uber.tchannel.metrics.CallEvent;
+import com.uber.tchannel.metrics.CallEventListener;
+import com.uber.tchannel.metrics.Metrics;
 import com.uber.tchannel.tracing.Tracing;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
@@ -45,11 +50,14 @@ import io.opentracing.Span;
 import io.opentracing.log.Fields;
 import io.opentracing.tag.Tags;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.SocketAddress;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -63,6 +71,8 @@ public class RequestRouter extends SimpleChannelInboundHandler<Request> {
 
     private final @NotNull ListeningExecutorService listeningExecutorService;
 
+    private final @Nullable Metrics metrics;
+
     private final @NotNull AtomicBoolean busy = new AtomicBoolean(false);
 
     private final @NotNull ConcurrentLinkedQueue<Response> responseQueue = new ConcurrentLinkedQueue<>();
@@ -70,17 +80,7 @@ public class RequestRouter extends SimpleChannelInboundHandler<Request> {
     public RequestRouter(@NotNull TChannel topChannel, @NotNull ExecutorService executorService) {
         this.topChannel = topChannel;
         this.listeningExecutorService = MoreExecutors.listeningDecorator(executorService);
-    }
-
-    private RequestHandler getRequestHandler(String service, String endpoint) {
-        SubChannel subChannel = topChannel.getSubChannel(service);
-        RequestHandler handler = null;
-
-        if (subChannel != null) {
-            handler = subChannel.getRequestHandler(endpoint);
-        }
-
-        return handler;
+        this.metrics = topChannel.getMetrics();
     }
 
     @Override
@@ -92,6 +92,7 @@ public class RequestRouter extends SimpleChannelInboundHandler<Request> {
             logger.warn("drop request when channel is inActive");
             return;
         }
+        final long readNanos = metrics == null && topChannel.getCallEventListener() == null ? 0 : System.nanoTime();
 
         if (request.getArgScheme() == null) {
             sendError(ErrorType.BadRequest, "Expected incoming call to have \"as\" header set", request, ctx);
@@ -106,48 +107,203 @@ public class RequestRouter extends SimpleChannelInboundHandler<Request> {
 
         // Get the endpoint. The assumption over here is that endpoints are
         // always going to to utf-8 encoded.
-        String endpoint = request.getEndpoint();
-        if (endpoint == null || endpoint.isEmpty()) {
+        ByteBuf arg1 = request.getArg1();
+        if (arg1 == null || !arg1.isReadable()) {
             sendError(ErrorType.BadRequest, "Expected incoming call to have endpoint", request, ctx);
             return;
         }
 
-        // Get handler for this method
-        RequestHandler handler = this.getRequestHandler(service, endpoint);
-        if (handler == null) {
+        // Get handler for this method, straight from the arg1 bytes
+        RoutingTable.Route route = topChannel.getRoutingTable().lookup(service, arg1);
+        RequestHandler handler;
+        EndpointBulkhead bulkhead = null;
+        if (route != null) {
+            handler = route.getHandler();
+            bulkhead = route.getBulkhead();
+        } else {
             handler = topChannel.getDefaultUserHandler();
         }
         if (handler == null) {
             sendError(
                 ErrorType.BadRequest,
-                "No handler function for service:endpoint=" + service + ':' + endpoint,
+                "No handler function for service:endpoint=" + service + ':' + request.getEndpoint(),
+                request,
+                ctx
+            );
+            return;
+        }
+
+        // Decode the headers and the body with the serializers of the sub channel
+        if (request instanceof EncodedRequest) {
+            ((EncodedRequest<?>) request).setSerializer(
+                route == null ? topChannel.getSerializer() : route.getSerializer()
+            );
+        }
+
+        // Answer from the response cache of the endpoint, if any, without reaching the executor
+        ResponseCache.Miss cacheMiss = null;
+        ResponseCache responseCache = route == null ? null : route.getResponseCache();
+        if (responseCache != null) {
+            Response cached = responseCache.get(request);
+            if (cached != null) {
+                request.release();
+                responseQueue.offer(cached);
+                sendResponse(ctx);
+                return;
+            }
+            cacheMiss = responseCache.miss(request);
+        }
+
+        if (handler instanceof InlineRequestHandler) {
+            handleInline(ctx, handler, request, readNanos, cacheMiss);
+            return;
+        }
+
+        final FairRequestScheduler scheduler = topChannel.getRequestScheduler();
+        if (scheduler == null) {
+            admit(ctx, handler, request, readNanos, bulkhead, cacheMiss, null);
+            return;
+        }
+
+        final RequestHandler scheduledHandler = handler;
+        final EndpointBulkhead scheduledBulkhead = bulkhead;
+        final ResponseCache.Miss scheduledCacheMiss = cacheMiss;
+        final FairRequestScheduler.Key key = scheduler.getKey(request);
+        boolean accepted = scheduler.submit(key, new Runnable() {
+            @Override
+            public void run() {
+                admit(ctx, scheduledHandler, request, readNanos, scheduledBulkhead, scheduledCacheMiss, new Runnable() {
+                    @Override
+                    public void run() {
+                        scheduler.release(key);
+                    }
+                });
+            }
+        }, ctx.channel().eventLoop());
+        if (!accepted) {
+            abandon(cacheMiss);
+            sendError(ErrorType.Busy, "Too many requests from caller " + key, request, ctx);
+        }
+    }
+
+    /**
+     * Dispatches the request through the bulkhead of its endpoint, if any.
+     *
+     * @param readNanos when the request was read, to time how long it waits for its handler
+     * @param cacheMiss caches the response, if not null
+     * @param onComplete called once the request is done with, if not null
+     */
+    private void admit(
+        final ChannelHandlerContext ctx,
+        final RequestHandler handler,
+        final Request request,
+        final long readNanos,
+        final @Nullable EndpointBulkhead bulkhead,
+        final @Nullable ResponseCache.Miss cacheMiss,
+        final @Nullable Runnable onComplete
+    ) {
+        if (bulkhead == null) {
+            dispatch(ctx, handler, request, readNanos, listeningExecutorService, cacheMiss, onComplete);
+            return;
+        }
+
+        final ListeningExecutorService executorService = bulkhead.getExecutorService() == null
+            ? listeningExecutorService
+            : bulkhead.getExecutorService();
+        final Runnable release = new Runnable() {
+            @Override
+            public void run() {
+                bulkhead.release();
+                if (onComplete != null) {
+                    onComplete.run();
+                }
+            }
+        };
+        boolean accepted = bulkhead.submit(new Runnable() {
+            @Override
+            public void run() {
+                dispatch(ctx, handler, request, readNanos, executorService, cacheMiss, release);
+            }
+        }, ctx.channel().eventLoop());
+        if (!accepted) {
+            abandon(cacheMiss);
+            sendError(
+                ErrorType.Busy,
+                "Too many pending requests for service:endpoint=" + request.getService() + ':' + request.getEndpoint(),
                 request,
                 ctx
             );
+            if (onComplete != null) {
+                onComplete.run();
+            }
+        }
+    }
+
+    /**
+     * Hands the request over to its handler on {@code executorService} (or directly for an
+     * {@link AsyncRequestHandler}) and queues the response for writing once it is available.
+     *
+     * @param readNanos when the request was read, to time how long it waits for its handler
+     * @param cacheMiss caches the response, if not null
+     * @param onComplete called once the response (or failure) is available, if not null
+     */
+    private void dispatch(
+        final ChannelHandlerContext ctx,
+        RequestHandler handler,
+        final Request request,
+        long readNanos,
+        ListeningExecutorService executorService,
+        final @Nullable ResponseCache.Miss cacheMiss,
+        final @Nullable Runnable onComplete
+    ) {
+        // A queued request may outlive its connection.
+        if (onComplete != null && !ctx.channel().isActive()) {
+            abandon(cacheMiss);
+            request.releaseQuietly();
+            onComplete.run();
             return;
         }
 
         ListenableFuture<? extends Response> responseFuture;
+        Executor callbackExecutor = executorService;
         try {
             // In case of an AsyncRequestHandler there's no need to submit a task on the executor.
             // It does require a down-cast to AsyncRequestHandler.
             responseFuture = handler instanceof AsyncRequestHandler
-                ? sendRequestToAsyncHandler((AsyncRequestHandler) handler, request)
-                : listeningExecutorService.submit(new CallableHandler(handler, topChannel, request));
+                ? sendRequestToAsyncHandler(
+                    (AsyncRequestHandler) handler, request, readNanos, ctx.channel().remoteAddress(), executorService
+                )
+                : executorService.submit(
+                    new CallableHandler(handler, topChannel, request, readNanos, ctx.channel().remoteAddress())
+                );
         } catch (Throwable re) {
             request.releaseQuietly();
             responseFuture = Futures.immediateFailedFuture(re);
+            // the executor may have rejected the task, it would reject the callback as well
+            callbackExecutor = MoreExecutors.directExecutor();
+        }
+
+        if (onComplete != null) {
+            // never rejected, so the slot is always released; queued requests are dispatched on their event loop
+            responseFuture.addListener(onComplete, MoreExecutors.directExecutor());
         }
 
         Futures.addCallback(responseFuture, new FutureCallback<Response>() {
 
             @Override
             public void onSuccess(Response response) {
+                if (cacheMiss != null) {
+                    cacheMiss.fill(response);
+                }
                 if (ctx.channel().isActive()) {
+                    final long completedNanos = metrics == null ? 0 : System.nanoTime();
                     responseQueue.offer(response);
                     ctx.channel().eventLoop().execute(new Runnable() {
                         @Override
                         public void run() {
+                            if (metrics != null) {
+                                metrics.recordResponseWrite(completedNanos);
+                            }
                             sendResponse(ctx);
                         }
                     });
@@ -158,38 +314,83 @@ public class RequestRouter extends SimpleChannelInboundHandler<Request> {
 
             @Override
             public void onFailure(@NotNull Throwable throwable) {
-                logger.error("Failed to handle the request due to exception.", throwable);
+                abandon(cacheMiss);
+                sendHandlerError(throwable, request, ctx);
+            }
 
-                ErrorType errorType = null;
-                String message = null;
+        }, callbackExecutor);
+    }
 
-                if (throwable instanceof ProtocolError) {
-                    ProtocolError protocolError = (ProtocolError) throwable;
+    /**
+     * Runs an {@link InlineRequestHandler} on the current (event loop) thread and writes its response right away.
+     */
+    private void handleInline(
+        ChannelHandlerContext ctx,
+        RequestHandler handler,
+        Request request,
+        long readNanos,
+        @Nullable ResponseCache.Miss cacheMiss
+    ) {
+        Response response;
+        try {
+            response = new CallableHandler(
+                handler, topChannel, request, readNanos, ctx.channel().remoteAddress()
+            ).call();
+        } catch (Throwable throwable) {
+            abandon(cacheMiss);
+            request.releaseQuietly();
+            sendHandlerError(throwable, request, ctx);
+            return;
+        }
+
+        if (cacheMiss != null) {
+            cacheMiss.fill(response);
+        }
+
+        responseQueue.offer(response);
+        sendResponse(ctx);
+    }
+
+    private static void abandon(@Nullable ResponseCache.Miss cacheMiss) {
+        if (cacheMiss != null) {
+            cacheMiss.abandon();
+        }
+    }
+
+    /**
+     * Maps a handler failure to an error frame: a {@link ProtocolError} (or the first one found in the cause chain)
+     * keeps its type and message, anything else is reported as {@link ErrorType#UnexpectedError}.
+     */
+    private static void sendHandlerError(Throwable throwable, Request request, ChannelHandlerContext ctx) {
+        logger.error("Failed to handle the request due to exception.", throwable);
+
+        ErrorType errorType = null;
+        String message = null;
+
+        if (throwable instanceof ProtocolError) {
+            ProtocolError protocolError = (ProtocolError) throwable;
+            errorType = protocolError.getErrorType();
+            message = protocolError.getMessage();
+        } else {
+            Throwable cause = throwable.getCause();
+            while (cause != null) {
+                if (cause instanceof ProtocolError) {
+                    ProtocolError protocolError = (ProtocolError) cause;
                     errorType = protocolError.getErrorType();
                     message = protocolError.getMessage();
-                } else {
-                    Throwable cause = throwable.getCause();
-                    while (cause != null) {
-                        if (cause instanceof ProtocolError) {
-                            ProtocolError protocolError = (ProtocolError) cause;
-                            errorType = protocolError.getErrorType();
-                            message = protocolError.getMessage();
-                            break;
-                        }
-                        cause = cause.getCause();
-                    }
-                }
-
-                if (errorType == null) {
-                    errorType = ErrorType.UnexpectedError;
-                }
-                if (message == null) {
-                    message = "Failed to handle the request: " + throwable.getMessage();
+                    break;
                 }
-                sendError(errorType, message, request, ctx);
+                cause = cause.getCause();
             }
+        }
 
-        }, listeningExecutorService);
+        if (errorType == null) {
+            errorType = ErrorType.UnexpectedError;
+        }
+        if (message == null) {
+            message = "Failed to handle the request: " + throwable.getMessage();
+        }
+        sendError(errorType, message, request, ctx);
     }
 
     @Override
@@ -239,8 +440,14 @@ public class RequestRouter extends SimpleChannelInboundHandler<Request> {
     }
 
     private ListenableFuture<? extends Response> sendRequestToAsyncHandler(
-        final AsyncRequestHandler asyncHandler, final Request request
+        final AsyncRequestHandler asyncHandler,
+        final Request request,
+        long readNanos,
+        final @Nullable SocketAddress peer,
+        ListeningExecutorService executorService
     ) {
+        final long startNanos = handlerStarted(topChannel, request, readNanos, peer);
+
         // span used to trace this request
         // Tracer and TracingContext are only present when the channel is created with them
         // therefore can be null.
@@ -273,12 +480,15 @@ public class RequestRouter extends SimpleChannelInboundHandler<Request> {
             }
 
             private void closeRequestAndSpan() {
+                if (startNanos != 0) {
+                    handlerCompleted(topChannel, request, startNanos, peer);
+                }
                 request.releaseQuietly();
                 if (span != null) {
                     span.finish();
                 }
             }
-        }, listeningExecutorService); // execute the callback asynchronously, not on the thread that resolves the future
+        }, executorService); // execute the callback asynchronously, not on the thread that resolves the future
 
         if (span != null) { // if we pushed something on tracing context stack in Tracing.startInboundSpan(...)
             topChannel.getTracingContext().popSpan(); // then pop it
@@ -287,20 +497,95 @@ public class RequestRouter extends SimpleChannelInboundHandler<Request> {
         return responseFuture;
     }
 
+    /**
+     * Records how long {@code request} waited for its handler, and reports a {@link CallEvent#HANDLER_DISPATCHED}.
+     *
+     * @return when the handler started, or 0 if there is no {@link CallEventListener} to report its completion to
+     */
+    private static long handlerStarted(
+        @NotNull TChannel topChannel,
+        @NotNull Request request,
+        long readNanos,
+        @Nullable SocketAddress peer
+    ) {
+        Metrics metrics = topChannel.getMetrics();
+        if (metrics != null) {
+            metrics.recordHandlerStart(readNanos);
+        }
+        CallEventListener callEventListener = topChannel.getCallEventListener();
+        if (callEventListener == null) {
+            return 0;
+        }
+        long startNanos = System.nanoTime();
+        // decodes the endpoint before the handler releases arg1
+        String endpoint = request.getEndpoint();
+        if (callEventListener.isEnabled(CallEvent.HANDLER_DISPATCHED)) {
+            callEventListener.onEvent(
+                CallEvent.HANDLER_DISPATCHED,
+                request.getService(),
+                endpoint,
+                request.getId(),
+                peer,
+                startNanos - readNanos
+            );
+        }
+        return startNanos;
+    }
+
+    private static void handlerCompleted(
+        @NotNull TChannel topChannel,
+        @NotNull Request request,
+        long startNanos,
+        @Nullable SocketAddress peer
+    ) {
+        CallEventListener callEventListener = topChannel.getCallEventListener();
+        if (callEventListener != null && callEventListener.isEnabled(CallEvent.HANDLER_COMPLETED)) {
+            callEventListener.onEvent(
+                CallEvent.HANDLER_COMPLETED,
+                request.getService(),
+                request.getEndpoint(),
+                request.getId(),
+                peer,
+                System.nanoTime() - startNanos
+            );
+        }
+    }
+
     private static class CallableHandler implements Callable<Response> {
 
         private final Request request;
         private final TChannel topChannel;
         private final RequestHandler handler;
-
-        CallableHandler(RequestHandler handler, TChannel topChannel, Request request) {
+        private final long readNanos;
+        private final @Nullable SocketAddress peer;
+
+        CallableHandler(
+            RequestHandler handler,
+            TChannel topChannel,
+            Request request,
+            long readNanos,
+            @Nullable SocketAddress peer
+        ) {
             this.handler = handler;
             this.topChannel = topChannel;
             this.request = request;
+            this.readNanos = readNanos;
+            this.peer = peer;
         }
 
         @Override
         public Response call() {
+            long startNanos = handlerStarted(topChannel, request, readNanos, peer);
+            try {
+                return callWithTracing();
+            } finally {
+                if (startNanos != 0) {
+                    handlerCompleted(topChannel, request, startNanos, peer);
+                }
+            }
+        }
+
+        private Response callWithTracing() {
             if (topChannel.getTracer() == null) {
                 return callWithoutTracing();
             }
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.handlers;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.uber.tchannel.api.EndpointOptions;
+import com.uber.tchannel.api.ResponseCode;
+import com.uber.tchannel.headers.ArgScheme;
+import com.uber.tchannel.messages.EncodedRequest;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import com.uber.tchannel.tracing.Tracing;
+import com.uber.tchannel.utils.TChannelUtilities;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Responses of an idempotent endpoint, keyed by the arg2 and arg3 of their request. Servers enable it with
+ * {@link EndpointOptions.Builder#setResponseCache}, clients with
+ * {@link com.uber.tchannel.api.SubChannel#enableResponseCache}.
+ *
+ * Keys are matched on a hash of the args and then compared byte by byte. The tracing headers of encoded requests
+ * differ from call to call, so they are left out of the keys. Both the keys and the response args are copied to
+ * direct buffers, so a hit costs a {@link ByteBuf#retainedDuplicate()} of each arg: it never reaches the executor or
+ * the handler on a server, nor the network on a client. Entries expire after {@code ttl} and the least recently used
+ * ones are evicted once the cache holds more than {@code maxBytes}.
+ */
+public final class ResponseCache {
+
+    private final long maxBytes;
+    private final long ttlNanos;
+
+    private final @NotNull LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    /** Bumped by {@link #clear()}, so that the responses of the requests missed before are not cached. */
+    private long generation = 0;
+
+    public ResponseCache(@NotNull EndpointOptions options) {
+        this(options.getCacheMaxBytes(), options.getCacheTtlNanos());
+    }
+
+    public ResponseCache(long maxBytes, long ttlNanos) {
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * @return a new response to {@code request} built from the cached args, or null if there is no fresh entry. The
+     * caller still owns (and must release) the request.
+     */
+    public @Nullable Response get(@NotNull Request request) {
+        ByteBuf arg2 = keyArg2(request);
+        try {
+            Key probe = new Key(arg2, request.getArg3());
+            synchronized (this) {
+                Entry entry = entries.get(probe);
+                if (entry != null && System.nanoTime() - entry.expiresAt > 0) {
+                    remove(probe);
+                    entry = null;
+                }
+                if (entry == null) {
+                    misses++;
+                    return null;
+                }
+                hits++;
+                // retain while holding the lock so that a concurrent eviction cannot free the args first
+                return Response.build(
+                    entry.argScheme,
+                    request.getId(),
+                    entry.responseCode,
+                    new HashMap<>(entry.transportHeaders),
+                    entry.arg2.retainedDuplicate(),
+                    entry.arg3.retainedDuplicate()
+                );
+            }
+        } finally {
+            release(arg2);
+        }
+    }
+
+    /**
+     * Copies the args of {@code request}, to be used as the key of its response once the handler is done with it.
+     */
+    public @NotNull Miss miss(@NotNull Request request) {
+        ByteBuf arg2 = keyArg2(request);
+        try {
+            long generation;
+            synchronized (this) {
+                generation = this.generation;
+            }
+            return new Miss(new Key(copy(arg2), copy(request.getArg3())), generation);
+        } finally {
+            release(arg2);
+        }
+    }
+
+    /** Drops all the entries, and the responses of the requests missed so far. */
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            entry.release();
+        }
+        entries.clear();
+        bytes = 0;
+        generation++;
+    }
+
+    public @NotNull Map<String, Long> getStats() {
+        Map<String, Long> result = Maps.newHashMapWithExpectedSize(5);
+        synchronized (this) {
+            result.put("cache.entries", (long) entries.size());
+            result.put("cache.bytes", bytes);
+            result.put("cache.hits", hits);
+            result.put("cache.misses", misses);
+            result.put("cache.evictions", evictions);
+        }
+        return result;
+    }
+
+    private void put(@NotNull Key key, long generation, @NotNull Response response) {
+        if (key.size() + response.argSize() > maxBytes) {
+            key.release();
+            return;
+        }
+        Entry entry = new Entry(key, response, System.nanoTime() + ttlNanos);
+        synchronized (this) {
+            if (generation != this.generation) {
+                entry.release();
+                return;
+            }
+            remove(key);
+            entries.put(key, entry);
+            bytes += entry.size();
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                bytes -= evicted.size();
+                evicted.release();
+                evictions++;
+            }
+        }
+    }
+
+    private void remove(@NotNull Key key) {
+        Entry existing = entries.remove(key);
+        if (existing != null) {
+            bytes -= existing.size();
+            existing.release();
+        }
+    }
+
+    /**
+     * @return arg2 of {@code request} without its tracing headers, if it is an encoded request whose serializer can
+     * splice them out, and arg2 itself otherwise; to be released
+     */
+    private static @Nullable ByteBuf keyArg2(@NotNull Request request) {
+        ByteBuf arg2 = request.getArg2();
+        if (arg2 == null) {
+            return null;
+        }
+        if (request instanceof EncodedRequest && request.getArgScheme() != null) {
+            ByteBuf spliced = ((EncodedRequest<?>) request).getSerializer().removeHeaders(
+                arg2, Tracing.HEADER_KEY_PREFIX, new HashMap<String, String>(), request.getArgScheme()
+            );
+            if (spliced != null && spliced != arg2) {
+                return spliced;
+            }
+        }
+        return arg2.retain();
+    }
+
+    private static void release(@Nullable ByteBuf arg) {
+        if (arg != null) {
+            arg.release();
+        }
+    }
+
+    private static @NotNull ByteBuf copy(@Nullable ByteBuf arg) {
+        if (arg == null || !arg.isReadable()) {
+            return TChannelUtilities.emptyByteBuf;
+        }
+        ByteBuf copy = PooledByteBufAllocator.DEFAULT.directBuffer(arg.readableBytes());
+        copy.writeBytes(arg, arg.readerIndex(), arg.readableBytes());
+        return copy;
+    }
+
+    /** The key of a request whose response is not cached yet. */
+    public final class Miss {
+
+        private final @NotNull Key key;
+        private final long generation;
+
+        private Miss(@NotNull Key key, long generation) {
+            this.key = key;
+            this.generation = generation;
+        }
+
+        /**
+         * Caches a copy of {@code response} if it is a successful one. Must be called before the response is written,
+         * and at most once; the response itself is left untouched.
+         */
+        public void fill(@Nullable Response response) {
+            if (response == null
+                || response.isError()
+                || response.getResponseCode() != ResponseCode.OK
+                || response.getArgScheme() == null) {
+                key.release();
+                return;
+            }
+            put(key, generation, response);
+        }
+
+        /** Gives up on caching the response, e.g. because the handler failed. */
+        public void abandon() {
+            key.release();
+        }
+    }
+
+    private static final class Key {
+
+        private final @NotNull ByteBuf arg2;
+        private final @NotNull ByteBuf arg3;
+        private final int hash;
+
+        Key(@Nullable ByteBuf arg2, @Nullable ByteBuf arg3) {
+            this.arg2 = arg2 == null ? TChannelUtilities.emptyByteBuf : arg2;
+            this.arg3 = arg3 == null ? TChannelUtilities.emptyByteBuf : arg3;
+            this.hash = 31 * ByteBufUtil.hashCode(this.arg2) + ByteBufUtil.hashCode(this.arg3);
+        }
+
+        long size() {
+            return arg2.readableBytes() + arg3.readableBytes();
+        }
+
+        void release() {
+            arg2.release();
+            arg3.release();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && ByteBufUtil.equals(arg2, other.arg2) && ByteBufUtil.equals(arg3, other.arg3);
+        }
+    }
+
+    private static final class Entry {
+
+        private final @NotNull Key key;
+        private final @NotNull ArgScheme argScheme;
+        private final @NotNull ResponseCode responseCode;
+        private final @NotNull Map<String, String> transportHeaders;
+        private final @NotNull ByteBuf arg2;
+        private final @NotNull ByteBuf arg3;
+        private final long expiresAt;
+
+        Entry(@NotNull Key key, @NotNull Response response, long expiresAt) {
+            this.key = key;
+            this.argScheme = response.getArgScheme();
+            this.responseCode = response.getResponseCode();
+            this.transportHeaders = ImmutableMap.copyOf(response.getTransportHeaders());
+            this.arg2 = copy(response.getArg2());
+            this.arg3 = copy(response.getArg3());
+            this.expiresAt = expiresAt;
+        }
+
+        long size() {
+            return key.size() + arg2.readableBytes() + arg3.readableBytes();
+        }
+
+        void release() {
+            key.release();
+            arg2.release();
+            arg3.release();
+        }
+    }
+}
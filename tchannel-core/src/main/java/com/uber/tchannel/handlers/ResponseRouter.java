@@ -30,13 +30,16 @@ import com.uber.tchannel.errors.ErrorType;
 import com.uber.tchannel.messages.ErrorResponse;
 import com.uber.tchannel.messages.Request;
 import com.uber.tchannel.messages.ResponseMessage;
+import com.uber.tchannel.metrics.Metrics;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.Timeout;
 import io.netty.util.TimerTask;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +64,7 @@ public class ResponseRouter extends SimpleChannelInboundHandler<ResponseMessage>
     private final @NotNull ConcurrentLinkedQueue<Long> requestQueue = new ConcurrentLinkedQueue<>();
     private final @NotNull Map<Long, OutRequest<?>> requestMap = new ConcurrentHashMap<>();
     private final int maxPendingRequests;
+    private final @Nullable Metrics metrics;
 
     private final @NotNull AtomicInteger idGenerator = new AtomicInteger(0);
     private ChannelHandlerContext ctx;
@@ -70,6 +74,7 @@ public class ResponseRouter extends SimpleChannelInboundHandler<ResponseMessage>
         this.resetOnTimeoutLimit = topChannel.getResetOnTimeoutLimit();
         this.timer = timer;
         this.maxPendingRequests = topChannel.getClientMaxPendingRequests();
+        this.metrics = topChannel.getMetrics();
     }
 
     @VisibleForTesting
@@ -78,6 +83,12 @@ public class ResponseRouter extends SimpleChannelInboundHandler<ResponseMessage>
         this.resetOnTimeoutLimit = topChannel.getResetOnTimeoutLimit();
         this.timer = timer;
         this.maxPendingRequests = topChannel.getClientMaxPendingRequests();
+        this.metrics = topChannel.getMetrics();
+    }
+
+    /** @return the number of requests sent, or queued for sending, that wait for their response */
+    public int getPendingRequests() {
+        return requestMap.size();
     }
 
     @Override
@@ -104,7 +115,9 @@ public class ResponseRouter extends SimpleChannelInboundHandler<ResponseMessage>
                 long id = requestQueue.poll();
                 OutRequest<?> outRequest = requestMap.get(id);
                 if (outRequest != null) {
-                    outRequest.setChannelFuture(channel.write(outRequest.getRequest()));
+                    ChannelFuture writeFuture = channel.write(outRequest.getRequest());
+                    outRequest.setChannelFuture(writeFuture);
+                    outRequest.onWrite(writeFuture);
                     flush = true;
                 }
             }
@@ -151,6 +164,7 @@ public class ResponseRouter extends SimpleChannelInboundHandler<ResponseMessage>
             return false;
         }
 
+        outRequest.onQueued(ctx.channel().remoteAddress());
         requestQueue.offer(outRequest.getRequest().getId());
         sendRequest();
 
@@ -164,8 +178,15 @@ public class ResponseRouter extends SimpleChannelInboundHandler<ResponseMessage>
             public void run(Timeout timeout) throws Exception {
                 // prevent ByteBuf refCnt leak
                 outRequest.flushWrite();
+                outRequest.onTimedOut(ctx.channel().remoteAddress());
+                if (metrics != null) {
+                    metrics.recordTimeout();
+                }
                 if (timeouts.incrementAndGet() >= resetOnTimeoutLimit) {
                     // reset on continuous timeouts
+                    if (metrics != null) {
+                        metrics.recordReset();
+                    }
                     peerManager.handleConnectionErrors(ctx.channel(),
                         new TChannelConnectionReset(String.format(
                             "Connection reset due to continuous %d timeouts", resetOnTimeoutLimit)));
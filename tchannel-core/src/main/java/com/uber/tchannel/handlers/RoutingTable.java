@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.handlers;
+
+import com.google.common.collect.ImmutableSet;
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.messages.Serializer;
+import io.netty.buffer.ByteBuf;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of the registered endpoints, used by {@link RequestRouter} to find the handler of a request.
+ *
+ * Endpoints are resolved straight from the raw arg1 bytes of the request: each service has an open-addressing table
+ * keyed by the UTF-8 bytes of its endpoint names, so that a lookup costs a hash over a few bytes and a byte-wise
+ * comparison, and does not allocate. A new table is built (and published through a volatile field) every time a
+ * handler is registered; lookups never lock.
+ */
+public final class RoutingTable {
+
+    public static final @NotNull RoutingTable EMPTY = new Builder().build();
+
+    private final @NotNull Map<String, EndpointTable> services;
+
+    private final @NotNull Set<String> customArgSchemes;
+
+    private RoutingTable(@NotNull Map<String, EndpointTable> services, @NotNull Set<String> customArgSchemes) {
+        this.services = services;
+        this.customArgSchemes = customArgSchemes;
+    }
+
+    /**
+     * @param service service name of the request
+     * @param arg1 endpoint name of the request, as received; its reader index is left untouched
+     * @return the route of the endpoint, or null if it is not registered
+     */
+    public @Nullable Route lookup(@NotNull String service, @NotNull ByteBuf arg1) {
+        EndpointTable endpoints = services.get(service);
+        return endpoints == null ? null : endpoints.lookup(arg1);
+    }
+
+    /** @return whether the serializers of the channel or of one of its sub channels know {@code argScheme} */
+    public boolean isCustomArgScheme(@Nullable String argScheme) {
+        return argScheme != null && customArgSchemes.contains(argScheme);
+    }
+
+    /** A registered endpoint. */
+    public static final class Route {
+
+        private final @NotNull String endpoint;
+        private final @NotNull RequestHandler handler;
+        private final @Nullable EndpointBulkhead bulkhead;
+        private final @Nullable ResponseCache responseCache;
+        private final @NotNull Serializer serializer;
+        private final @NotNull byte[] key;
+
+        private Route(
+            @NotNull String endpoint,
+            @NotNull RequestHandler handler,
+            @Nullable EndpointBulkhead bulkhead,
+            @Nullable ResponseCache responseCache,
+            @NotNull Serializer serializer
+        ) {
+            this.endpoint = endpoint;
+            this.handler = handler;
+            this.bulkhead = bulkhead;
+            this.responseCache = responseCache;
+            this.serializer = serializer;
+            this.key = endpoint.getBytes(StandardCharsets.UTF_8);
+        }
+
+        public @NotNull String getEndpoint() {
+            return endpoint;
+        }
+
+        public @NotNull RequestHandler getHandler() {
+            return handler;
+        }
+
+        public @Nullable EndpointBulkhead getBulkhead() {
+            return bulkhead;
+        }
+
+        public @Nullable ResponseCache getResponseCache() {
+            return responseCache;
+        }
+
+        /** @return the serializers of the sub channel of the endpoint */
+        public @NotNull Serializer getSerializer() {
+            return serializer;
+        }
+    }
+
+    private static final class EndpointTable {
+
+        private final @NotNull Route[] slots;
+        private final int mask;
+
+        EndpointTable(@NotNull List<Route> routes) {
+            // Keep the load factor at or below 1/2 so that probe sequences stay short
+            int capacity = Integer.highestOneBit(Math.max(routes.size(), 1) * 4 - 1);
+            slots = new Route[capacity];
+            mask = capacity - 1;
+            for (Route route : routes) {
+                int index = hash(route.key) & mask;
+                while (slots[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = route;
+            }
+        }
+
+        @Nullable Route lookup(@NotNull ByteBuf arg1) {
+            int offset = arg1.readerIndex();
+            int length = arg1.readableBytes();
+            int index = hash(arg1, offset, length) & mask;
+            Route route;
+            while ((route = slots[index]) != null) {
+                if (matches(route.key, arg1, offset, length)) {
+                    return route;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        private static boolean matches(@NotNull byte[] key, @NotNull ByteBuf buf, int offset, int length) {
+            if (key.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (key[i] != buf.getByte(offset + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** FNV-1a */
+        private static int hash(@NotNull byte[] key) {
+            int hash = 0x811c9dc5;
+            for (byte b : key) {
+                hash = (hash ^ b) * 0x01000193;
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        private static int hash(@NotNull ByteBuf buf, int offset, int length) {
+            int hash = 0x811c9dc5;
+            for (int i = 0; i < length; i++) {
+                hash = (hash ^ buf.getByte(offset + i)) * 0x01000193;
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    public static final class Builder {
+
+        private final @NotNull Map<String, List<Route>> services = new HashMap<>();
+
+        private final @NotNull Set<String> customArgSchemes = new HashSet<>();
+
+        public @NotNull Builder addCustomArgSchemes(@NotNull Serializer serializer) {
+            customArgSchemes.addAll(serializer.getCustomArgSchemes());
+            return this;
+        }
+
+        public @NotNull Builder add(
+            @NotNull String service,
+            @NotNull String endpoint,
+            @NotNull RequestHandler handler,
+            @Nullable EndpointBulkhead bulkhead,
+            @Nullable ResponseCache responseCache,
+            @NotNull Serializer serializer
+        ) {
+            List<Route> routes = services.get(service);
+            if (routes == null) {
+                routes = new ArrayList<>();
+                services.put(service, routes);
+            }
+            routes.add(new Route(endpoint, handler, bulkhead, responseCache, serializer));
+            return this;
+        }
+
+        public @NotNull RoutingTable build() {
+            Map<String, EndpointTable> tables = new HashMap<>(services.size() * 2);
+            for (Map.Entry<String, List<Route>> entry : services.entrySet()) {
+                tables.put(entry.getKey(), new EndpointTable(entry.getValue()));
+            }
+            return new RoutingTable(tables, ImmutableSet.copyOf(customArgSchemes));
+        }
+    }
+}
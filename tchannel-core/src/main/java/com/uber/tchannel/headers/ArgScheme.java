@@ -25,6 +25,12 @@ package com.uber.tchannel.headers;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * The arg schemes of the protocol. Custom arg schemes, registered with a
+ * {@link com.uber.tchannel.messages.Serializer.Builder}, are carried as {@link #RAW} messages: the transport treats
+ * their args as opaque bytes and keeps the scheme name in the transport headers, for the serializer registered under
+ * that name to decode them.
+ */
 public enum ArgScheme {
     RAW("raw"),
     JSON("json"),
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.headers;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+/**
+ * Thrift protocol of the arg3 of a {@link ArgScheme#THRIFT} call, announced by the
+ * {@link TransportHeaders#THRIFT_PROTOCOL_KEY} transport header. Calls without it use {@link #BINARY}, so peers that
+ * do not know the header keep working; responses use the protocol of their request. Calls announcing a protocol
+ * missing here are rejected when they are read.
+ */
+public enum ThriftProtocol {
+    BINARY("binary"),
+    COMPACT("compact");
+
+    private final @NotNull String protocol;
+
+    ThriftProtocol(@NotNull String protocol) {
+        this.protocol = protocol;
+    }
+
+    public static @Nullable ThriftProtocol toProtocol(@Nullable String protocol) {
+        if (protocol == null) {
+            return BINARY;
+        }
+
+        switch (protocol) {
+            case "binary":
+                return BINARY;
+            case "compact":
+                return COMPACT;
+            default:
+                return null;
+        }
+    }
+
+    public static @Nullable ThriftProtocol fromTransportHeaders(@Nullable Map<String, String> transportHeaders) {
+        return transportHeaders == null
+            ? BINARY
+            : toProtocol(transportHeaders.get(TransportHeaders.THRIFT_PROTOCOL_KEY));
+    }
+
+    public @NotNull String getProtocol() {
+        return protocol;
+    }
+}
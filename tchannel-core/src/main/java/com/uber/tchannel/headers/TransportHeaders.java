@@ -32,6 +32,9 @@ public final class TransportHeaders {
     public static final String SPECULATIVE_EXECUTION_KEY = "se";
     public static final String FAILURE_DOMAIN_KEY = "fd";
     public static final String SHARD_KEY_KEY = "sk";
+    public static final String NO_CACHE_KEY = "no-cache";
+    public static final String THRIFT_PROTOCOL_KEY = "tp";
+    public static final String COMPRESSION_KEY = "cmp";
 
     private TransportHeaders() {}
 
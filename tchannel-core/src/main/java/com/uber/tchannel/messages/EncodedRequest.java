@@ -22,30 +22,34 @@
 
 package com.uber.tchannel.messages;
 
-import com.google.common.collect.ImmutableMap;
 import com.uber.tchannel.headers.ArgScheme;
 import com.uber.tchannel.tracing.Trace;
 import com.uber.tchannel.tracing.TraceableRequest;
 import com.uber.tchannel.utils.TChannelUtilities;
 import io.netty.buffer.ByteBuf;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.HashMap;
 import java.util.Map;
 
 public abstract class EncodedRequest<T> extends Request implements TraceableRequest {
 
-    private static final ImmutableMap<ArgScheme, Serializer.SerializerInterface> DEFAULT_SERIALIZERS =
-            ImmutableMap.of(ArgScheme.JSON, new JSONSerializer(), ArgScheme.THRIFT, new ThriftSerializer());
-
-    private static final Serializer serializer = new Serializer(DEFAULT_SERIALIZERS);
+    private @NotNull Serializer serializer = Serializer.getDefault();
 
     protected Map<String, String> headers;
     protected T body = null;
 
+    /** Whether arg2 and arg3 were encoded from {@link #headers} and {@link #body}, rather than set as such. */
+    private boolean headersEncoded = false;
+    private boolean bodyEncoded = false;
+
     protected EncodedRequest(Builder<T> builder) {
         super(builder);
         this.body = builder.body;
         this.headers = builder.headers;
+        this.serializer = builder.serializer;
+        this.headersEncoded = builder.headersEncoded;
+        this.bodyEncoded = builder.bodyEncoded;
     }
 
     protected EncodedRequest(long id, long ttl, Trace trace,
@@ -54,6 +58,34 @@ public abstract class EncodedRequest<T> extends Request implements TraceableRequ
         super(id, ttl, trace, service, transportHeaders, arg1, arg2, arg3);
     }
 
+    public @NotNull Serializer getSerializer() {
+        return serializer;
+    }
+
+    /** Sets the serializers that decode the headers and the body, such as those of the receiving sub channel. */
+    public void setSerializer(@NotNull Serializer serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * Sets the serializers of a request about to be sent, such as those of the sending sub channel, and encodes the
+     * headers and the body it was built from again with them. Args that were set as such are left alone.
+     */
+    public void setSerializerAndEncode(@NotNull Serializer serializer) {
+        if (serializer == this.serializer) {
+            return;
+        }
+        this.serializer = serializer;
+        if (headersEncoded && headers != null && arg2 != null) {
+            arg2.release();
+            arg2 = serializer.encodeHeaders(headers, getArgScheme());
+        }
+        if (bodyEncoded && body != null && arg3 != null) {
+            arg3.release();
+            arg3 = serializer.encodeBody(body, getArgScheme(), getTransportHeaders());
+        }
+    }
+
     @Override
     public Map<String, String> getHeaders() {
         if (headers == null) {
@@ -80,6 +112,58 @@ public abstract class EncodedRequest<T> extends Request implements TraceableRequ
         this.headers = null;
     }
 
+    /**
+     * Adds {@code headers} to the encoded headers. They are spliced into arg2 when the serializer of the arg scheme
+     * supports it, leaving the other headers as they are encoded, and decoded and encoded again otherwise.
+     */
+    public void appendHeaders(@NotNull Map<String, String> headers) {
+        ByteBuf spliced = arg2 == null ? null : serializer.appendHeaders(arg2, headers, getArgScheme());
+        if (spliced == null) {
+            Map<String, String> allHeaders = new HashMap<>(getHeaders());
+            allHeaders.putAll(headers);
+            setHeaders(allHeaders);
+            return;
+        }
+
+        arg2.release();
+        arg2 = spliced;
+        this.headers = null;
+    }
+
+    /**
+     * Removes the headers whose key starts with {@code keyPrefix} from the encoded headers, splicing them out of arg2
+     * when the serializer of the arg scheme supports it.
+     *
+     * @return the removed headers
+     */
+    public @NotNull Map<String, String> removeHeaders(@NotNull String keyPrefix) {
+        Map<String, String> removed = new HashMap<>();
+        if (headers == null && arg2 != null) {
+            ByteBuf spliced = serializer.removeHeaders(arg2, keyPrefix, removed, getArgScheme());
+            if (spliced != null) {
+                if (spliced != arg2) {
+                    arg2.release();
+                    arg2 = spliced;
+                }
+                return removed;
+            }
+            removed.clear();
+        }
+
+        Map<String, String> keptHeaders = new HashMap<>();
+        for (Map.Entry<String, String> header : getHeaders().entrySet()) {
+            if (header.getKey().startsWith(keyPrefix)) {
+                removed.put(header.getKey(), header.getValue());
+            } else {
+                keptHeaders.put(header.getKey(), header.getValue());
+            }
+        }
+        if (!removed.isEmpty()) {
+            setHeaders(keptHeaders);
+        }
+        return removed;
+    }
+
     public T getBody(Class<T> bodyType) {
         if (body == null) {
             if (arg3 != null) {
@@ -100,6 +184,9 @@ public abstract class EncodedRequest<T> extends Request implements TraceableRequ
         protected Map<String, String> headers = new HashMap<>();
         protected T body = null;
         protected ArgScheme argScheme;
+        private @NotNull Serializer serializer = Serializer.getDefault();
+        private boolean headersEncoded = false;
+        private boolean bodyEncoded = false;
 
         public Builder(String service, String endpoint) {
             super(service, endpoint);
@@ -144,12 +231,19 @@ public abstract class EncodedRequest<T> extends Request implements TraceableRequ
             return this;
         }
 
+        /** Sets the serializers that encode the headers and the body, and later decode those of the response. */
+        public Builder<T> setSerializer(@NotNull Serializer serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
         private Builder<T> validateHeader() {
             if (arg2 != null) {
                 return this;
             }
 
             arg2 = serializer.encodeHeaders(this.headers, argScheme);
+            headersEncoded = true;
 
             return this;
         }
@@ -162,7 +256,8 @@ public abstract class EncodedRequest<T> extends Request implements TraceableRequ
             if (body == null) {
                 arg3 = TChannelUtilities.emptyByteBuf;
             } else {
-                arg3 = serializer.encodeBody(this.body, argScheme);
+                arg3 = serializer.encodeBody(this.body, argScheme, transportHeaders);
+                bodyEncoded = true;
             }
 
             return this;
@@ -22,7 +22,6 @@
 
 package com.uber.tchannel.messages;
 
-import com.google.common.collect.ImmutableMap;
 import com.uber.tchannel.api.ResponseCode;
 import com.uber.tchannel.headers.ArgScheme;
 import com.uber.tchannel.utils.TChannelUtilities;
@@ -34,12 +33,7 @@ import java.util.Map;
 
 public abstract class EncodedResponse<T> extends Response {
 
-    private static final ImmutableMap<ArgScheme, Serializer.SerializerInterface> DEFAULT_SERIALIZERS = ImmutableMap.of(
-        ArgScheme.JSON, new JSONSerializer(),
-        ArgScheme.THRIFT, new ThriftSerializer()
-    );
-
-    private static final Serializer serializer = new Serializer(DEFAULT_SERIALIZERS);
+    private @NotNull Serializer serializer = Serializer.getDefault();
 
     protected Map<String, String> headers;
     protected T body = null;
@@ -48,6 +42,7 @@ public abstract class EncodedResponse<T> extends Response {
         super(builder);
         this.headers = builder.headers;
         this.body = builder.body;
+        this.serializer = builder.serializer;
     }
 
     protected EncodedResponse(
@@ -64,6 +59,15 @@ public abstract class EncodedResponse<T> extends Response {
         super(error);
     }
 
+    public @NotNull Serializer getSerializer() {
+        return serializer;
+    }
+
+    /** Sets the serializers that decode the headers and the body, such as those of the request. */
+    public void setSerializer(@NotNull Serializer serializer) {
+        this.serializer = serializer;
+    }
+
     public Map<String, String> getHeaders() {
         if (headers == null) {
             if (arg2 == null) {
@@ -111,9 +115,13 @@ public abstract class EncodedResponse<T> extends Response {
         private T body;
 
         protected ArgScheme argScheme;
+        private @NotNull Serializer serializer = Serializer.getDefault();
 
         public Builder(@NotNull Request req) {
             super(req);
+            if (req instanceof EncodedRequest) {
+                this.serializer = ((EncodedRequest<?>) req).getSerializer();
+            }
         }
 
         @Override
@@ -149,6 +157,12 @@ public abstract class EncodedResponse<T> extends Response {
             return this;
         }
 
+        /** Sets the serializers that encode the headers and the body; those of the request by default. */
+        public @NotNull Builder<T> setSerializer(@NotNull Serializer serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
         private @NotNull Builder<T> validateHeader() {
             if (arg2 == null) {
                 arg2 = serializer.encodeHeaders(this.headers, argScheme);
@@ -158,7 +172,9 @@ public abstract class EncodedResponse<T> extends Response {
 
         private @NotNull Builder<T> validateBody() {
             if (arg3 == null) {
-                arg3 = body == null ? TChannelUtilities.emptyByteBuf : serializer.encodeBody(this.body, argScheme);
+                arg3 = body == null
+                    ? TChannelUtilities.emptyByteBuf
+                    : serializer.encodeBody(this.body, argScheme, transportHeaders);
             }
             return this;
         }
@@ -23,23 +23,72 @@
 package com.uber.tchannel.messages;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.util.CharsetUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
-public final class JSONSerializer implements Serializer.SerializerInterface {
+/**
+ * JSON arg scheme. Args are written into a {@link StringBuilder} reused by each thread and then encoded as UTF-8
+ * straight into a pooled buffer of their exact size that the caller owns, direct when
+ * {@link ThriftSerializer#directBufferPreferred()}.
+ * They are read from a {@code String} decoded from their buffers: unlike stream readers, it costs no more than the
+ * size of the arg.
+ */
+public final class JSONSerializer implements Serializer.SerializerInterface, Serializer.HeaderSplicer {
 
     private static final Type HEADER_TYPE = (new TypeToken<Map<String, String>>() {}).getType();
 
     private static final Gson GSON = new Gson();
 
+    @SuppressWarnings("unchecked")
+    private static final TypeAdapter<Map<String, String>> HEADER_ADAPTER =
+        (TypeAdapter<Map<String, String>>) GSON.getAdapter(TypeToken.get(HEADER_TYPE));
+
+    /** Type adapters of the body types, looked up once per type. */
+    private static final ClassValue<TypeAdapter<?>> ADAPTERS = new ClassValue<TypeAdapter<?>>() {
+        @Override
+        protected TypeAdapter<?> computeValue(Class<?> type) {
+            return GSON.getAdapter(type);
+        }
+    };
+
+    /** Builders larger than this are not kept for the next arg, so that one large payload does not pin memory. */
+    private static final int MAX_RETAINED_CHARS = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilderWriter> WRITERS = new ThreadLocal<StringBuilderWriter>() {
+        @Override
+        protected StringBuilderWriter initialValue() {
+            return new StringBuilderWriter();
+        }
+    };
+
     @Override
     public @NotNull String decodeEndpoint(@NotNull ByteBuf arg1) {
         return arg1.toString(CharsetUtil.UTF_8);
@@ -47,19 +96,39 @@ public final class JSONSerializer implements Serializer.SerializerInterface {
 
     @Override
     public @NotNull Map<String, String> decodeHeaders(@NotNull ByteBuf arg2) {
-        String headerJSON = arg2.toString(CharsetUtil.UTF_8);
         Map<String, String> headers = null;
-        if (headerJSON != null && !headerJSON.isEmpty() && !"\"\"".equals(headerJSON)) {
-            headers = new Gson().fromJson(headerJSON, HEADER_TYPE);
+        if (arg2.isReadable()) {
+            JsonReader reader = newReader(arg2);
+            try {
+                // some clients send an empty JSON string when there are no headers
+                if (!isBlank(reader) && (reader.peek() != JsonToken.STRING || !reader.nextString().isEmpty())) {
+                    headers = HEADER_ADAPTER.read(reader);
+                }
+                checkFullyConsumed(reader);
+            } catch (IOException | IllegalStateException e) {
+                throw new JsonSyntaxException(e);
+            }
         }
 
         return (headers == null) ? new HashMap<String, String>() : headers;
     }
 
     @Override
-    public <T> T decodeBody(@NotNull ByteBuf arg3, @NotNull Class<T> bodyType) {
-        String bodyJSON = arg3.toString(CharsetUtil.UTF_8);
-        return GSON.fromJson(bodyJSON, bodyType);
+    public @Nullable <T> T decodeBody(@NotNull ByteBuf arg3, @NotNull Class<T> bodyType) {
+        if (!arg3.isReadable()) {
+            return null;
+        }
+        JsonReader reader = newReader(arg3);
+        try {
+            if (isBlank(reader)) {
+                return null;
+            }
+            T body = bodyType.cast(ADAPTERS.get(bodyType).read(reader));
+            checkFullyConsumed(reader);
+            return body;
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        }
     }
 
     @Override
@@ -69,12 +138,382 @@ public final class JSONSerializer implements Serializer.SerializerInterface {
 
     @Override
     public ByteBuf encodeHeaders(Map<String, String> applicationHeaders) {
-        return Unpooled.wrappedBuffer(GSON.toJson(applicationHeaders, HEADER_TYPE).getBytes(StandardCharsets.UTF_8));
+        return encode(applicationHeaders, HEADER_ADAPTER);
     }
 
     @Override
     public ByteBuf encodeBody(Object body) {
-        return Unpooled.wrappedBuffer(GSON.toJson(body).getBytes(StandardCharsets.UTF_8));
+        if (body == null) {
+            return Unpooled.wrappedBuffer("null".getBytes(StandardCharsets.UTF_8));
+        }
+        @SuppressWarnings("unchecked")
+        TypeAdapter<Object> adapter = (TypeAdapter<Object>) ADAPTERS.get(body.getClass());
+        return encode(body, adapter);
+    }
+
+    @Override
+    public @Nullable ByteBuf appendHeaders(@NotNull ByteBuf arg2, @NotNull Map<String, String> headers) {
+        int end = arg2.writerIndex();
+        int open = skipWhitespace(arg2, arg2.readerIndex(), end);
+        if (open == end) {
+            return encodeHeaders(headers);
+        }
+        int close = end - 1;
+        while (close > open && isWhitespace(arg2.getByte(close))) {
+            close--;
+        }
+        if (close == open || arg2.getByte(open) != '{' || arg2.getByte(close) != '}') {
+            return null;
+        }
+        if (headers.isEmpty()) {
+            return arg2.retainedDuplicate();
+        }
+        if (containsAnyKey(arg2, open, end, headers.keySet())) {
+            // Gson rejects duplicate keys, so colliding headers are left to decoding and encoding again
+            return null;
+        }
+
+        // {"key":"value"} becomes ,"key":"value"} and takes the place of the closing brace of arg2
+        ByteBuf added = encodeHeaders(headers);
+        if (skipWhitespace(arg2, open + 1, close) == close) {
+            added.skipBytes(1);
+        } else {
+            added.setByte(added.readerIndex(), ',');
+        }
+        return Unpooled.wrappedBuffer(arg2.retainedSlice(open, close - open), added);
+    }
+
+    @Override
+    public @Nullable ByteBuf removeHeaders(
+        @NotNull ByteBuf arg2,
+        @NotNull String keyPrefix,
+        @NotNull Map<String, String> removed
+    ) {
+        byte[] prefix = keyPrefix.getBytes(StandardCharsets.UTF_8);
+        int end = arg2.writerIndex();
+        int index = skipWhitespace(arg2, arg2.readerIndex(), end);
+        if (index == end) {
+            return arg2;
+        }
+        if (arg2.getByte(index) != '{') {
+            return null;
+        }
+        index = skipWhitespace(arg2, index + 1, end);
+        if (index < end && arg2.getByte(index) == '}') {
+            return isBlank(arg2, index + 1, end) ? arg2 : null;
+        }
+
+        CompositeByteBuf kept = null;
+        int runStart = -1;
+        int runEnd = -1;
+        boolean keptAny = false;
+        while (true) {
+            // keys are matched as written: a key with escapes is left to the decoder
+            int keyStart = index;
+            int keyEnd = skipString(arg2, keyStart, end);
+            if (keyEnd < 0 || arg2.indexOf(keyStart, keyEnd, (byte) '\\') >= 0) {
+                return release(kept);
+            }
+            index = skipWhitespace(arg2, keyEnd, end);
+            if (index == end || arg2.getByte(index) != ':') {
+                return release(kept);
+            }
+            int valueStart = skipWhitespace(arg2, index + 1, end);
+            int valueEnd = skipString(arg2, valueStart, end);
+            if (valueEnd < 0) {
+                return release(kept);
+            }
+
+            if (startsWith(arg2, keyStart + 1, keyEnd - keyStart - 2, prefix)) {
+                String value;
+                try {
+                    value = GSON.fromJson(
+                        arg2.toString(valueStart, valueEnd - valueStart, StandardCharsets.UTF_8), String.class);
+                } catch (JsonSyntaxException e) {
+                    return release(kept);
+                }
+                removed.put(arg2.toString(keyStart + 1, keyEnd - keyStart - 2, StandardCharsets.UTF_8), value);
+                if (kept == null) {
+                    kept = ByteBufAllocator.DEFAULT.compositeBuffer();
+                    kept.addComponent(true, Unpooled.wrappedBuffer(new byte[] {'{'}));
+                }
+                if (runStart >= 0) {
+                    keptAny = addRun(kept, arg2, runStart, runEnd, keptAny);
+                    runStart = -1;
+                }
+            } else {
+                if (runStart < 0) {
+                    runStart = keyStart;
+                }
+                runEnd = valueEnd;
+            }
+
+            index = skipWhitespace(arg2, valueEnd, end);
+            if (index == end) {
+                return release(kept);
+            }
+            byte separator = arg2.getByte(index);
+            index = skipWhitespace(arg2, index + 1, end);
+            if (separator == '}') {
+                if (index != end) {
+                    return release(kept);
+                }
+                break;
+            } else if (separator != ',') {
+                return release(kept);
+            }
+        }
+
+        if (kept == null) {
+            return arg2;
+        }
+        if (runStart >= 0) {
+            addRun(kept, arg2, runStart, runEnd, keptAny);
+        }
+        kept.addComponent(true, Unpooled.wrappedBuffer(new byte[] {'}'}));
+        return kept;
+    }
+
+    /**
+     * Whether the object starting at {@code open} has a key in {@code keys}, comparing keys as written. An object it
+     * cannot scan, such as one with escaped keys, counts as a match.
+     */
+    private static boolean containsAnyKey(@NotNull ByteBuf arg2, int open, int end, @NotNull Set<String> keys) {
+        byte[][] encodedKeys = new byte[keys.size()][];
+        int k = 0;
+        for (String key : keys) {
+            encodedKeys[k++] = key.getBytes(StandardCharsets.UTF_8);
+        }
+
+        int index = skipWhitespace(arg2, open + 1, end);
+        if (index < end && arg2.getByte(index) == '}') {
+            return false;
+        }
+        while (true) {
+            int keyStart = index;
+            int keyEnd = skipString(arg2, keyStart, end);
+            if (keyEnd < 0 || arg2.indexOf(keyStart, keyEnd, (byte) '\\') >= 0) {
+                return true;
+            }
+            int keyLength = keyEnd - keyStart - 2;
+            for (byte[] encodedKey : encodedKeys) {
+                if (keyLength == encodedKey.length && startsWith(arg2, keyStart + 1, keyLength, encodedKey)) {
+                    return true;
+                }
+            }
+            index = skipWhitespace(arg2, keyEnd, end);
+            if (index == end || arg2.getByte(index) != ':') {
+                return true;
+            }
+            int valueEnd = skipString(arg2, skipWhitespace(arg2, index + 1, end), end);
+            if (valueEnd < 0) {
+                return true;
+            }
+            index = skipWhitespace(arg2, valueEnd, end);
+            if (index == end) {
+                return true;
+            }
+            byte separator = arg2.getByte(index);
+            if (separator == '}') {
+                return false;
+            } else if (separator != ',') {
+                return true;
+            }
+            index = skipWhitespace(arg2, index + 1, end);
+        }
+    }
+
+    private static boolean addRun(
+        @NotNull CompositeByteBuf kept,
+        @NotNull ByteBuf arg2,
+        int runStart,
+        int runEnd,
+        boolean keptAny
+    ) {
+        if (keptAny) {
+            kept.addComponent(true, Unpooled.wrappedBuffer(new byte[] {','}));
+        }
+        kept.addComponent(true, arg2.retainedSlice(runStart, runEnd - runStart));
+        return true;
+    }
+
+    /** @return the index right after the string starting at {@code index}, or -1 if there is no string there */
+    private static int skipString(@NotNull ByteBuf buf, int index, int end) {
+        if (index >= end || buf.getByte(index) != '"') {
+            return -1;
+        }
+        for (int i = index + 1; i < end; i++) {
+            byte b = buf.getByte(i);
+            if (b == '\\') {
+                i++;
+            } else if (b == '"') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(@NotNull ByteBuf buf, int index, int end) {
+        while (index < end && isWhitespace(buf.getByte(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isBlank(@NotNull ByteBuf buf, int index, int end) {
+        return skipWhitespace(buf, index, end) == end;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean startsWith(@NotNull ByteBuf buf, int index, int length, @NotNull byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf.getByte(index + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static @Nullable ByteBuf release(@Nullable ByteBuf buf) {
+        if (buf != null) {
+            buf.release();
+        }
+        return null;
+    }
+
+    private static @NotNull <T> ByteBuf encode(T value, @NotNull TypeAdapter<T> adapter) {
+        StringBuilderWriter out = WRITERS.get();
+        out.chars.setLength(0);
+        try {
+            JsonWriter writer = GSON.newJsonWriter(out);
+            // same leniency as Gson#toJson
+            writer.setLenient(true);
+            adapter.write(writer, value);
+            writer.flush();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+
+        // ByteBufUtil#writeUtf8 would reserve 3 bytes per char, that the buffer keeps for as long as the call
+        int length = utf8Length(out.chars);
+        ByteBuf buf = ThriftSerializer.directBufferPreferred()
+            ? ByteBufAllocator.DEFAULT.buffer(length)
+            : ByteBufAllocator.DEFAULT.heapBuffer(length);
+        if (length == out.chars.length()) {
+            ByteBufUtil.writeAscii(buf, out.chars);
+        } else {
+            out.encodeUtf8(buf, length);
+        }
+        if (out.chars.capacity() > MAX_RETAINED_CHARS) {
+            WRITERS.remove();
+        }
+        return buf;
+    }
+
+    /** @return the UTF-8 length of {@code chars}, unpaired surrogates counting as the '?' they are encoded as */
+    private static int utf8Length(@NotNull CharSequence chars) {
+        int length = chars.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                // 4 bytes for the 2 chars of the pair
+                bytes += 2;
+                i++;
+            }
+        }
+        return bytes;
+    }
+
+    private static @NotNull JsonReader newReader(@NotNull ByteBuf buf) {
+        JsonReader reader = GSON.newJsonReader(new StringReader(buf.toString(StandardCharsets.UTF_8)));
+        // same leniency as Gson#fromJson
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /** Whether the payload holds nothing but whitespace, which Gson#fromJson(String) decodes to null. */
+    private static boolean isBlank(@NotNull JsonReader reader) throws IOException {
+        try {
+            reader.peek();
+            return false;
+        } catch (EOFException e) {
+            return true;
+        }
+    }
+
+    private static void checkFullyConsumed(@NotNull JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("JSON document was not fully consumed.");
+        }
+    }
+
+    /** A {@link java.io.StringWriter} without the locking of its {@link StringBuffer}. */
+    private static final class StringBuilderWriter extends Writer {
+
+        private final @NotNull StringBuilder chars = new StringBuilder(256);
+
+        /** Replaces unpaired surrogates with '?', like {@link String#getBytes(java.nio.charset.Charset)}. */
+        private final @NotNull CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        /** Writes the chars to {@code buf}, {@code length} being their UTF-8 length. */
+        void encodeUtf8(@NotNull ByteBuf buf, int length) {
+            ByteBuffer target = buf.nioBuffer(buf.writerIndex(), length);
+            encoder.reset();
+            CoderResult result = encoder.encode(CharBuffer.wrap(chars), target, true);
+            if (result.isUnderflow()) {
+                result = encoder.flush(target);
+            }
+            if (!result.isUnderflow() || target.hasRemaining()) {
+                throw new IllegalStateException("Expected " + length + " bytes of UTF-8, got " + result);
+            }
+            buf.writerIndex(buf.writerIndex() + length);
+        }
+
+        @Override
+        public void write(int c) {
+            chars.append((char) c);
+        }
+
+        @Override
+        public void write(@NotNull char[] cbuf, int off, int len) {
+            chars.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(@NotNull String str, int off, int len) {
+            chars.append(str, off, off + len);
+        }
+
+        @Override
+        public @NotNull Writer append(CharSequence csq) {
+            chars.append(csq);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
     }
 
 }
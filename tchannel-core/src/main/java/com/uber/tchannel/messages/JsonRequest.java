@@ -26,6 +26,7 @@ import com.uber.tchannel.headers.ArgScheme;
 import com.uber.tchannel.headers.TransportHeaders;
 import com.uber.tchannel.tracing.Trace;
 import io.netty.buffer.ByteBuf;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -117,6 +118,12 @@ public class JsonRequest<T> extends EncodedRequest<T> {
             return this;
         }
 
+        @Override
+        public Builder<T> setSerializer(@NotNull Serializer serializer) {
+            super.setSerializer(serializer);
+            return this;
+        }
+
         @Override
         public Builder<T> setTransportHeader(String key, String value) {
             super.setTransportHeader(key, value);
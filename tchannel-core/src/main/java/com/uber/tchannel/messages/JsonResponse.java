@@ -95,6 +95,12 @@ public final class JsonResponse<T> extends EncodedResponse<T> {
             return this;
         }
 
+        @Override
+        public @NotNull Builder<T> setSerializer(@NotNull Serializer serializer) {
+            super.setSerializer(serializer);
+            return this;
+        }
+
         @Override
         public @NotNull Builder<T> setTransportHeader(String key, String value) {
             super.setTransportHeader(key, value);
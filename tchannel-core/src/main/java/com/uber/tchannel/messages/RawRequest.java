@@ -50,6 +50,19 @@ public final class RawRequest extends Request {
         super(id, ttl, trace, service, transportHeaders, arg1, arg2, arg3);
     }
 
+    /**
+     * @return {@link ArgScheme#RAW} also for a custom arg scheme, which the serializers of the channel that sends or
+     * receives the message decide on
+     */
+    @Override
+    public ArgScheme getArgScheme() {
+        ArgScheme argScheme = super.getArgScheme();
+        if (argScheme == null && getTransportHeaders().containsKey(TransportHeaders.ARG_SCHEME_KEY)) {
+            return ArgScheme.RAW;
+        }
+        return argScheme;
+    }
+
     public String getHeader() {
         if (this.header == null) {
             if (arg2 == null) {
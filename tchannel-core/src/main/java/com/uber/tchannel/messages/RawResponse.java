@@ -23,6 +23,8 @@
 package com.uber.tchannel.messages;
 
 import com.uber.tchannel.api.ResponseCode;
+import com.uber.tchannel.headers.ArgScheme;
+import com.uber.tchannel.headers.TransportHeaders;
 import com.uber.tchannel.utils.TChannelUtilities;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
@@ -69,6 +71,21 @@ public class RawResponse extends Response {
         super(error);
     }
 
+    /**
+     * @return {@link ArgScheme#RAW} also for a custom arg scheme, which the serializers of the channel that sends or
+     * receives the message decide on
+     */
+    @Override
+    public ArgScheme getArgScheme() {
+        ArgScheme argScheme = super.getArgScheme();
+        if (argScheme == null
+            && transportHeaders != null
+            && transportHeaders.containsKey(TransportHeaders.ARG_SCHEME_KEY)) {
+            return ArgScheme.RAW;
+        }
+        return argScheme;
+    }
+
     public @NotNull String getHeader() {
         if (header == null) {
             header = arg2 == null ? "" : arg2.toString(CharsetUtil.UTF_8);
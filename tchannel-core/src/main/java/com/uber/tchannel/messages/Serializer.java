@@ -22,19 +22,62 @@
 
 package com.uber.tchannel.messages;
 
+import com.google.common.collect.ImmutableMap;
 import com.uber.tchannel.headers.ArgScheme;
+import com.uber.tchannel.headers.ThriftProtocol;
 import com.uber.tchannel.headers.TransportHeaders;
 import io.netty.buffer.ByteBuf;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * A registry of the serializers of the encoded arg schemes, keyed by the name of the arg scheme on the wire.
+ *
+ * The {@linkplain #getDefault() default} registry knows JSON and Thrift. Others can be built with a {@link Builder},
+ * to replace a built-in serializer or to add a custom arg scheme, and set on a
+ * {@link com.uber.tchannel.api.TChannel} or {@link com.uber.tchannel.api.SubChannel}.
+ */
 public class Serializer {
-    Map<ArgScheme, SerializerInterface> serializers;
+
+    private static final @NotNull Serializer DEFAULT = new Builder().build();
+
+    private final @NotNull Map<String, SerializerInterface> serializers;
 
     public Serializer(Map<ArgScheme, SerializerInterface> serializers) {
-        this.serializers = serializers;
+        Map<String, SerializerInterface> byName = new HashMap<>(serializers.size() * 2);
+        for (Map.Entry<ArgScheme, SerializerInterface> entry : serializers.entrySet()) {
+            byName.put(entry.getKey().getScheme(), entry.getValue());
+        }
+        this.serializers = ImmutableMap.copyOf(byName);
+    }
+
+    private Serializer(@NotNull Builder builder) {
+        this.serializers = ImmutableMap.copyOf(builder.serializers);
+    }
+
+    /** @return the registry with the built-in JSON and Thrift serializers */
+    public static @NotNull Serializer getDefault() {
+        return DEFAULT;
+    }
+
+    public boolean supports(@Nullable String argScheme) {
+        return argScheme != null && serializers.containsKey(argScheme);
+    }
+
+    /** @return the names of the arg schemes that are not built in, carried as raw messages */
+    public @NotNull Set<String> getCustomArgSchemes() {
+        Set<String> customArgSchemes = new HashSet<>();
+        for (String argScheme : serializers.keySet()) {
+            if (ArgScheme.toScheme(argScheme) == null) {
+                customArgSchemes.add(argScheme);
+            }
+        }
+        return customArgSchemes;
     }
 
     public String decodeEndpoint(RawMessage message) {
@@ -46,29 +89,102 @@ public class Serializer {
     }
 
     public <T> T decodeBody(RawMessage message, Class<T> bodyType) {
-        return this.getSerializer(message).decodeBody(message.getArg3(), bodyType);
+        SerializerInterface serializer = this.getSerializer(message);
+        if (serializer instanceof ThriftSerializer) {
+            ThriftProtocol thriftProtocol = ThriftProtocol.fromTransportHeaders(message.getTransportHeaders());
+            if (thriftProtocol == null) {
+                throw new IllegalStateException(
+                    "Unknown Thrift protocol " + message.getTransportHeaders().get(TransportHeaders.THRIFT_PROTOCOL_KEY)
+                );
+            }
+            return ((ThriftSerializer) serializer).decodeBody(message.getArg3(), bodyType, thriftProtocol);
+        }
+        return serializer.decodeBody(message.getArg3(), bodyType);
     }
 
     public ByteBuf encodeEndpoint(String method, ArgScheme argScheme) {
+        return encodeEndpoint(method, argScheme.getScheme());
+    }
+
+    public ByteBuf encodeEndpoint(String method, String argScheme) {
         return this.getSerializer(argScheme).encodeEndpoint(method);
     }
 
     public ByteBuf encodeHeaders(Map<String, String> applicationHeaders, ArgScheme argScheme) {
+        return encodeHeaders(applicationHeaders, argScheme.getScheme());
+    }
+
+    public ByteBuf encodeHeaders(Map<String, String> applicationHeaders, String argScheme) {
         return this.getSerializer(argScheme).encodeHeaders(applicationHeaders);
     }
 
     public ByteBuf encodeBody(Object body, ArgScheme argScheme) {
+        return encodeBody(body, argScheme.getScheme());
+    }
+
+    public ByteBuf encodeBody(Object body, String argScheme) {
         return this.getSerializer(argScheme).encodeBody(body);
     }
 
+    /** Encodes {@code body} in the Thrift protocol announced by {@code transportHeaders}, if relevant. */
+    public ByteBuf encodeBody(Object body, ArgScheme argScheme, Map<String, String> transportHeaders) {
+        SerializerInterface serializer = this.getSerializer(argScheme.getScheme());
+        if (serializer instanceof ThriftSerializer) {
+            ThriftProtocol thriftProtocol = ThriftProtocol.fromTransportHeaders(transportHeaders);
+            if (thriftProtocol == null) {
+                throw new IllegalStateException(
+                    "Unknown Thrift protocol " + transportHeaders.get(TransportHeaders.THRIFT_PROTOCOL_KEY)
+                );
+            }
+            return ((ThriftSerializer) serializer).encodeBody(body, thriftProtocol);
+        }
+        return serializer.encodeBody(body);
+    }
+
+    /**
+     * Appends {@code headers} to the encoded headers {@code arg2}, without decoding them, if the serializer of
+     * {@code argScheme} is a {@link HeaderSplicer}.
+     *
+     * @return the spliced headers, or null if they have to be decoded and encoded again instead
+     */
+    public @Nullable ByteBuf appendHeaders(
+        @NotNull ByteBuf arg2,
+        @NotNull Map<String, String> headers,
+        @NotNull ArgScheme argScheme
+    ) {
+        SerializerInterface serializer = this.getSerializer(argScheme.getScheme());
+        return serializer instanceof HeaderSplicer ? ((HeaderSplicer) serializer).appendHeaders(arg2, headers) : null;
+    }
+
+    /**
+     * Moves the headers whose key starts with {@code keyPrefix} out of the encoded headers {@code arg2}, decoding only
+     * those, if the serializer of {@code argScheme} is a {@link HeaderSplicer}.
+     *
+     * @return the spliced headers, {@code arg2} itself if no key matched, or null if they have to be decoded and
+     * encoded again instead
+     */
+    public @Nullable ByteBuf removeHeaders(
+        @NotNull ByteBuf arg2,
+        @NotNull String keyPrefix,
+        @NotNull Map<String, String> removed,
+        @NotNull ArgScheme argScheme
+    ) {
+        SerializerInterface serializer = this.getSerializer(argScheme.getScheme());
+        return serializer instanceof HeaderSplicer
+            ? ((HeaderSplicer) serializer).removeHeaders(arg2, keyPrefix, removed)
+            : null;
+    }
+
     private SerializerInterface getSerializer(RawMessage message) {
-        Map<String, String> transportHeaders = message.getTransportHeaders();
-        ArgScheme argScheme = ArgScheme.toScheme(transportHeaders.get(TransportHeaders.ARG_SCHEME_KEY));
-        return this.serializers.get(argScheme);
+        return getSerializer(message.getTransportHeaders().get(TransportHeaders.ARG_SCHEME_KEY));
     }
 
-    private SerializerInterface getSerializer(ArgScheme argScheme) {
-        return this.serializers.get(argScheme);
+    private @NotNull SerializerInterface getSerializer(@Nullable String argScheme) {
+        SerializerInterface serializer = argScheme == null ? null : this.serializers.get(argScheme);
+        if (serializer == null) {
+            throw new IllegalStateException("No serializer for arg scheme " + argScheme);
+        }
+        return serializer;
     }
 
     public interface SerializerInterface {
@@ -86,4 +202,74 @@ public class Serializer {
         ByteBuf encodeBody(Object body);
     }
 
+    /**
+     * Implemented by the serializers that can add headers to, and remove headers from, encoded headers without
+     * decoding and encoding all of them, as tracing does on every call. The encoded headers passed in are left alone.
+     */
+    public interface HeaderSplicer {
+
+        /**
+         * @return {@code arg2} followed by {@code headers}, or null if {@code arg2} cannot be spliced or already holds
+         * one of the keys of {@code headers}
+         */
+        @Nullable ByteBuf appendHeaders(@NotNull ByteBuf arg2, @NotNull Map<String, String> headers);
+
+        /**
+         * Puts the headers whose key starts with {@code keyPrefix} into {@code removed}.
+         *
+         * @return {@code arg2} without them, {@code arg2} itself if no key matched, or null if {@code arg2} cannot be
+         * spliced, in which case {@code removed} is to be ignored
+         */
+        @Nullable ByteBuf removeHeaders(
+            @NotNull ByteBuf arg2,
+            @NotNull String keyPrefix,
+            @NotNull Map<String, String> removed
+        );
+    }
+
+    public static class Builder {
+
+        private final @NotNull Map<String, SerializerInterface> serializers = new HashMap<>();
+
+        /** Starts from the built-in JSON and Thrift serializers. */
+        public Builder() {
+            serializers.put(ArgScheme.JSON.getScheme(), new JSONSerializer());
+            serializers.put(ArgScheme.THRIFT.getScheme(), new ThriftSerializer());
+        }
+
+        /** Starts from the serializers of {@code serializer}. */
+        public Builder(@NotNull Serializer serializer) {
+            serializers.putAll(serializer.serializers);
+        }
+
+        /** Replaces the serializer of a built-in arg scheme. */
+        public @NotNull Builder register(@NotNull ArgScheme argScheme, @NotNull SerializerInterface serializer) {
+            if (argScheme != ArgScheme.JSON && argScheme != ArgScheme.THRIFT) {
+                throw new IllegalArgumentException("Arg scheme " + argScheme + " is not encoded");
+            }
+            serializers.put(argScheme.getScheme(), serializer);
+            return this;
+        }
+
+        /**
+         * Adds a custom arg scheme, known to the channels that use the built {@link Serializer}. Its messages are
+         * carried as raw messages and decoded with {@link Serializer#decodeHeaders} and {@link Serializer#decodeBody}.
+         */
+        public @NotNull Builder register(@NotNull String argScheme, @NotNull SerializerInterface serializer) {
+            ArgScheme builtIn = ArgScheme.toScheme(argScheme);
+            if (builtIn != null) {
+                return register(builtIn, serializer);
+            }
+            if (argScheme.isEmpty()) {
+                throw new IllegalArgumentException("Arg scheme must not be empty");
+            }
+            serializers.put(argScheme, serializer);
+            return this;
+        }
+
+        public @NotNull Serializer build() {
+            return new Serializer(this);
+        }
+    }
+
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.messages;
+
+import io.netty.buffer.ByteBuf;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@link TTransport} over a {@link ByteBuf}, heap, direct or composite, without copying it from or into a
+ * {@code byte[]}. Reads advance the reader index of the buffer, writes append to it.
+ *
+ * Heap buffers can expose their backing array to the protocol, which then decodes primitives and strings in place.
+ *
+ * Instances are meant to be reused: {@link #setBuffer} attaches a buffer and detaches it once done.
+ */
+final class TByteBufTransport extends TTransport {
+
+    private final boolean exposeArray;
+    private @Nullable ByteBuf buf = null;
+
+    /**
+     * @param exposeArray whether to hand the backing array of heap buffers over to the protocol; only for protocols
+     * that do not keep references to it
+     */
+    TByteBufTransport(boolean exposeArray) {
+        this.exposeArray = exposeArray;
+    }
+
+    void setBuffer(@Nullable ByteBuf buf) {
+        this.buf = buf;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return buf != null;
+    }
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public int read(byte[] dst, int off, int len) throws TTransportException {
+        if (buf == null) {
+            throw new TTransportException(TTransportException.NOT_OPEN, "No buffer to read from");
+        }
+        int bytesRead = Math.min(len, buf.readableBytes());
+        buf.readBytes(dst, off, bytesRead);
+        return bytesRead;
+    }
+
+    @Override
+    public void write(byte[] src, int off, int len) throws TTransportException {
+        if (buf == null) {
+            throw new TTransportException(TTransportException.NOT_OPEN, "No buffer to write to");
+        }
+        buf.writeBytes(src, off, len);
+    }
+
+    @Override
+    public @Nullable byte[] getBuffer() {
+        return exposeArray && buf != null && buf.hasArray() ? buf.array() : null;
+    }
+
+    @Override
+    public int getBufferPosition() {
+        return exposeArray && buf != null && buf.hasArray() ? buf.arrayOffset() + buf.readerIndex() : 0;
+    }
+
+    @Override
+    public int getBytesRemainingInBuffer() {
+        return exposeArray && buf != null && buf.hasArray() ? buf.readableBytes() : -1;
+    }
+
+    @Override
+    public void consumeBuffer(int len) {
+        if (buf != null) {
+            buf.skipBytes(len);
+        }
+    }
+}
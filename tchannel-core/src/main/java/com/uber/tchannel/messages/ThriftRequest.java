@@ -23,9 +23,11 @@
 package com.uber.tchannel.messages;
 
 import com.uber.tchannel.headers.ArgScheme;
+import com.uber.tchannel.headers.ThriftProtocol;
 import com.uber.tchannel.headers.TransportHeaders;
 import com.uber.tchannel.tracing.Trace;
 import io.netty.buffer.ByteBuf;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -59,6 +61,22 @@ public class ThriftRequest<T> extends EncodedRequest<T> {
             this.argScheme = ArgScheme.THRIFT;
         }
 
+        /**
+         * Encode the body in {@code thriftProtocol} and announce it with the
+         * {@link TransportHeaders#THRIFT_PROTOCOL_KEY} transport header. Only use {@link ThriftProtocol#COMPACT} with
+         * servers that understand the header.
+         *
+         * Default value: {@link ThriftProtocol#BINARY}
+         */
+        public Builder<T> setThriftProtocol(ThriftProtocol thriftProtocol) {
+            if (thriftProtocol == ThriftProtocol.BINARY) {
+                this.transportHeaders.remove(TransportHeaders.THRIFT_PROTOCOL_KEY);
+            } else {
+                this.transportHeaders.put(TransportHeaders.THRIFT_PROTOCOL_KEY, thriftProtocol.getProtocol());
+            }
+            return this;
+        }
+
         /**
          * Validates payload and populates {@link #arg1}, {@link #arg2}, {@link #arg3}.
          *
@@ -144,6 +162,12 @@ public class ThriftRequest<T> extends EncodedRequest<T> {
             return this;
         }
 
+        @Override
+        public Builder<T> setSerializer(@NotNull Serializer serializer) {
+            super.setSerializer(serializer);
+            return this;
+        }
+
         @Override
         public Builder<T> setTransportHeader(String key, String value) {
             super.setTransportHeader(key, value);
@@ -24,6 +24,8 @@ package com.uber.tchannel.messages;
 
 import com.uber.tchannel.api.ResponseCode;
 import com.uber.tchannel.headers.ArgScheme;
+import com.uber.tchannel.headers.ThriftProtocol;
+import com.uber.tchannel.headers.TransportHeaders;
 import io.netty.buffer.ByteBuf;
 import org.jetbrains.annotations.NotNull;
 
@@ -53,6 +55,13 @@ public final class ThriftResponse<T> extends EncodedResponse<T> {
         public Builder(@NotNull ThriftRequest<?> req) {
             super(req);
             this.argScheme = ArgScheme.THRIFT;
+            // answer in the Thrift protocol of the request, binary unless it announced one this side knows
+            ThriftProtocol thriftProtocol = ThriftProtocol.fromTransportHeaders(req.getTransportHeaders());
+            if (thriftProtocol != null && thriftProtocol != ThriftProtocol.BINARY) {
+                this.transportHeaders.put(TransportHeaders.THRIFT_PROTOCOL_KEY, thriftProtocol.getProtocol());
+            } else {
+                this.transportHeaders.remove(TransportHeaders.THRIFT_PROTOCOL_KEY);
+            }
         }
 
         /**
@@ -122,6 +131,12 @@ public final class ThriftResponse<T> extends EncodedResponse<T> {
             return this;
         }
 
+        @Override
+        public @NotNull Builder<T> setSerializer(@NotNull Serializer serializer) {
+            super.setSerializer(serializer);
+            return this;
+        }
+
         @Override
         public @NotNull Builder<T> setTransportHeader(String key, String value) {
             super.setTransportHeader(key, value);
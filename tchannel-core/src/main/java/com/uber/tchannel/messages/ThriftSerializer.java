@@ -24,21 +24,27 @@ package com.uber.tchannel.messages;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.uber.tchannel.codecs.CodecUtils;
+import com.uber.tchannel.headers.ThriftProtocol;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.util.CharsetUtil;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import org.apache.thrift.TBase;
-import org.apache.thrift.TDeserializer;
 import org.apache.thrift.TException;
-import org.apache.thrift.TSerializer;
 import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolException;
+import org.apache.thrift.transport.TTransport;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -46,12 +52,39 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 
-public class ThriftSerializer implements Serializer.SerializerInterface {
+public class ThriftSerializer implements Serializer.SerializerInterface, Serializer.HeaderSplicer {
 
     private static final Logger logger = LoggerFactory.getLogger(ThriftSerializer.class);
 
     private static boolean DIRECT_BUFFER_PREFERRED;
 
+    /** No-arg constructors of the Thrift types, looked up once per type. */
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalArgumentException(type.getName() + " has no public no-arg constructor", e);
+            }
+        }
+    };
+
+    private static final ThreadLocal<Protocols> PROTOCOLS = new ThreadLocal<Protocols>() {
+        @Override
+        protected Protocols initialValue() {
+            return new Protocols();
+        }
+    };
+
+    /** Running average of the encoded size of the Thrift types, used as the initial capacity of their buffers. */
+    private static final ClassValue<EncodedSize> ENCODED_SIZES = new ClassValue<EncodedSize>() {
+        @Override
+        protected EncodedSize computeValue(Class<?> type) {
+            return new EncodedSize();
+        }
+    };
+
     static {
         init();
     }
@@ -87,34 +120,49 @@ public class ThriftSerializer implements Serializer.SerializerInterface {
 
     @Override
     public @Nullable <T> T decodeBody(@NotNull ByteBuf arg3, @NotNull Class<T> bodyType) {
+        return decodeBody(arg3, bodyType, ThriftProtocol.BINARY);
+    }
 
+    public @Nullable <T> T decodeBody(
+        @NotNull ByteBuf arg3,
+        @NotNull Class<T> bodyType,
+        @NotNull ThriftProtocol thriftProtocol
+    ) {
+
+        // Read the payload in place, through the protocol and transport of this thread
+        Protocols protocols = PROTOCOLS.get();
+        TProtocol protocol = protocols.reader(thriftProtocol);
+        TTransport transport = protocol.getTransport();
+        ((TByteBufTransport) transport).setBuffer(arg3);
         try {
             // Create a new instance of type 'T'
-            T base = bodyType.getConstructor().newInstance();
-
-            // Get byte[] from ByteBuf
-            byte[] payloadBytes = new byte[arg3.readableBytes()];
-            arg3.readBytes(payloadBytes);
+            T base = bodyType.cast(newInstance(bodyType));
 
             // Actually deserialize the payload
-            TDeserializer deserializer = new TDeserializer(new TBinaryProtocol.Factory());
-            deserializer.deserialize((TBase<?, ?>) base, payloadBytes);
+            ((TBase<?, ?>) base).read(protocol);
 
             return base;
-        } catch (
-            NoSuchMethodException
-                | InvocationTargetException
-                | InstantiationException
-                | IllegalAccessException
-                | TException e
-        ) {
+        } catch (TException | IllegalArgumentException | IllegalStateException e) {
             logger.error("Failed to decode body to {}", bodyType.getName(), e);
+        } finally {
+            ((TByteBufTransport) transport).setBuffer(null);
+            protocol.reset();
         }
 
         return null;
 
     }
 
+    private static @NotNull Object newInstance(@NotNull Class<?> type) {
+        try {
+            return CONSTRUCTORS.get(type).invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to create an instance of " + type.getName(), t);
+        }
+    }
+
     @Override
     public ByteBuf encodeEndpoint(@NotNull String method) {
         return Unpooled.wrappedBuffer(method.getBytes(StandardCharsets.UTF_8));
@@ -136,16 +184,124 @@ public class ThriftSerializer implements Serializer.SerializerInterface {
         return buf;
     }
 
+    @Override
+    public @Nullable ByteBuf appendHeaders(@NotNull ByteBuf arg2, @NotNull Map<String, String> headers) {
+        return CodecUtils.appendHeaders(arg2, headers);
+    }
+
+    @Override
+    public @Nullable ByteBuf removeHeaders(
+        @NotNull ByteBuf arg2,
+        @NotNull String keyPrefix,
+        @NotNull Map<String, String> removed
+    ) {
+        return CodecUtils.removeHeaders(arg2, keyPrefix, removed);
+    }
+
     @Override
     public @Nullable ByteBuf encodeBody(@NotNull Object body) {
+        return encodeBody(body, ThriftProtocol.BINARY);
+    }
+
+    public @Nullable ByteBuf encodeBody(@NotNull Object body, @NotNull ThriftProtocol thriftProtocol) {
+        // Write the payload straight into a pooled buffer sized after the previous payloads of the same type
+        EncodedSize encodedSize = ENCODED_SIZES.get(body.getClass());
+        ByteBuf buf = DIRECT_BUFFER_PREFERRED
+            ? ByteBufAllocator.DEFAULT.buffer(encodedSize.estimate())
+            : ByteBufAllocator.DEFAULT.heapBuffer(encodedSize.estimate());
+        Protocols protocols = PROTOCOLS.get();
+        TProtocol protocol = protocols.writer(thriftProtocol);
+        TByteBufTransport transport = protocols.transport;
+        transport.setBuffer(buf);
+        boolean release = true;
         try {
-            TSerializer serializer = new TSerializer(new TBinaryProtocol.Factory());
-            byte[] payloadBytes = serializer.serialize((TBase<?, ?>) body);
-            return Unpooled.wrappedBuffer(payloadBytes);
+            ((TBase<?, ?>) body).write(protocol);
+            encodedSize.update(buf.readableBytes());
+            release = false;
+            return buf;
         } catch (TException e) {
             logger.error("Failed to encode {} body", body.getClass().getName(), e);
+        } finally {
+            transport.setBuffer(null);
+            protocol.reset();
+            if (release) {
+                buf.release();
+            }
         }
         return null;
     }
 
+    /** The protocols and transports of a thread. */
+    private static final class Protocols {
+
+        private final @NotNull TByteBufTransport transport = new TByteBufTransport(true);
+        // TCompactProtocol wraps the backing array of heap buffers into the binary fields it reads: keep it hidden
+        private final @NotNull TByteBufTransport compactTransport = new TByteBufTransport(false);
+
+        private final @NotNull TProtocol binaryReader = new ReadProtocol(transport);
+        private final @NotNull TProtocol binaryWriter = new TBinaryProtocol(transport);
+        private final @NotNull TProtocol compactReader = new TCompactProtocol(compactTransport);
+        private final @NotNull TProtocol compactWriter = new TCompactProtocol(transport);
+
+        @NotNull TProtocol reader(@NotNull ThriftProtocol thriftProtocol) {
+            return thriftProtocol == ThriftProtocol.COMPACT ? compactReader : binaryReader;
+        }
+
+        @NotNull TProtocol writer(@NotNull ThriftProtocol thriftProtocol) {
+            return thriftProtocol == ThriftProtocol.COMPACT ? compactWriter : binaryWriter;
+        }
+    }
+
+    /**
+     * Binary protocol over a {@link TByteBufTransport}. Binary fields are copied out: the stock implementation wraps
+     * the backing array of heap buffers, which is recycled once the message is released.
+     */
+    private static final class ReadProtocol extends TBinaryProtocol {
+
+        private final @NotNull TByteBufTransport transport;
+
+        ReadProtocol(@NotNull TByteBufTransport transport) {
+            super(transport);
+            this.transport = transport;
+        }
+
+        @Override
+        public ByteBuffer readBinary() throws TException {
+            int size = readI32();
+            if (size < 0) {
+                throw new TProtocolException(TProtocolException.NEGATIVE_SIZE, "Negative length: " + size);
+            }
+            byte[] bytes = new byte[size];
+            transport.readAll(bytes, 0, size);
+            return ByteBuffer.wrap(bytes);
+        }
+    }
+
+    /**
+     * Exponentially weighted moving average of the encoded size of a type. Updates are racy on purpose: a lost one
+     * only makes the estimate slightly off.
+     */
+    @VisibleForTesting
+    static final class EncodedSize {
+
+        private static final int DEFAULT_ESTIMATE = 256;
+        private static final int MAX_ESTIMATE = 64 * 1024;
+
+        private volatile int average = 0;
+
+        int estimate() {
+            int current = average;
+            if (current == 0) {
+                return DEFAULT_ESTIMATE;
+            }
+            // leave some headroom so that payloads a bit larger than the average do not grow the buffer
+            return Math.min(current + (current >>> 3) + 16, MAX_ESTIMATE);
+        }
+
+        void update(int size) {
+            int current = average;
+            average = current == 0 ? size : current + (size - current) / 8;
+        }
+    }
+
 }
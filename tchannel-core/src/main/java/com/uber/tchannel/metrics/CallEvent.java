@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.metrics;
+
+/** The points of the lifecycle of a call that are reported to a {@link CallEventListener}. */
+public enum CallEvent {
+
+    /** A message was decoded from its frames. Lasts the decoding of its last frame. */
+    MESSAGE_DECODED,
+
+    /** An inbound request was handed over to its handler. Lasts from the request read to the handler started. */
+    HANDLER_DISPATCHED,
+
+    /** The handler of an inbound request completed. Lasts the run of the handler. */
+    HANDLER_COMPLETED,
+
+    /** The response (or error) to an inbound request was written. Lasts from the request read to the response. */
+    RESPONSE_WRITTEN,
+
+    /** An outbound request was queued on its connection. Lasts from the request sent to the request queued. */
+    REQUEST_QUEUED,
+
+    /** An outbound request was written to its connection. Lasts from the request queued to the request written. */
+    REQUEST_WRITTEN,
+
+    /** An outbound request timed out. Lasts from the request queued to the timeout. */
+    REQUEST_TIMED_OUT,
+
+    /** An outbound request is retried, after an error. Lasts from the request sent to the retry. */
+    REQUEST_RETRIED
+}
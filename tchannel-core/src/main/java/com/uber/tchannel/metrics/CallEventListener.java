@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.SocketAddress;
+
+/**
+ * Receives the {@link CallEvent}s of the calls of a channel, to hand them over to a profiler, e.g. as JDK Flight
+ * Recorder events. Set up with {@link com.uber.tchannel.api.TChannel.Builder#setCallEventListener}; there is none by
+ * default, and then the calls pay for a null check at each point of their lifecycle.
+ *
+ * Events are reported on the threads that go through these points: event loops, executor and timer. Listeners must
+ * not block them.
+ */
+public interface CallEventListener {
+
+    /** @return whether to report {@code event}; called before the data of the event is gathered */
+    boolean isEnabled(@NotNull CallEvent event);
+
+    /**
+     * @param service the service of the call, if known
+     * @param endpoint the endpoint of the call, if known
+     * @param id the id of the message of the call on its connection
+     * @param peer the remote address of the connection of the call, if known
+     * @param durationNanos the duration of the event, see {@link CallEvent}
+     */
+    void onEvent(
+        @NotNull CallEvent event,
+        @Nullable String service,
+        @Nullable String endpoint,
+        long id,
+        @Nullable SocketAddress peer,
+        long durationNanos
+    );
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.metrics;
+
+import com.uber.tchannel.errors.ErrorType;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** The calls of one endpoint, in one direction: their latency and their errors by {@link ErrorType}. */
+public final class EndpointMetrics {
+
+    private static final ErrorType[] ERROR_TYPES = ErrorType.values();
+
+    private final @NotNull String service;
+    private final @NotNull String endpoint;
+    private final @NotNull LatencyHistogram latency = new LatencyHistogram();
+    private final @NotNull LongCounter[] errors = new LongCounter[ERROR_TYPES.length];
+
+    EndpointMetrics(@NotNull String service, @NotNull String endpoint) {
+        this.service = service;
+        this.endpoint = endpoint;
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] = PlatformDependent.newLongCounter();
+        }
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} when the call started
+     * @param errorType the error the call failed with, if any
+     */
+    public void record(long startNanos, @Nullable ErrorType errorType) {
+        latency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (errorType != null) {
+            errors[errorType.ordinal()].increment();
+        }
+    }
+
+    public @NotNull Snapshot snapshot() {
+        Map<ErrorType, Long> errorCounts = new EnumMap<>(ErrorType.class);
+        for (int i = 0; i < errors.length; i++) {
+            long count = errors[i].value();
+            if (count > 0) {
+                errorCounts.put(ERROR_TYPES[i], count);
+            }
+        }
+        return new Snapshot(service, endpoint, latency.snapshot(), errorCounts);
+    }
+
+    /** The calls of an endpoint up to the time of the snapshot. */
+    public static final class Snapshot {
+
+        private final @NotNull String service;
+        private final @NotNull String endpoint;
+        private final @NotNull LatencyHistogram.Snapshot latency;
+        private final @NotNull Map<ErrorType, Long> errors;
+
+        Snapshot(
+            @NotNull String service,
+            @NotNull String endpoint,
+            @NotNull LatencyHistogram.Snapshot latency,
+            @NotNull Map<ErrorType, Long> errors
+        ) {
+            this.service = service;
+            this.endpoint = endpoint;
+            this.latency = latency;
+            this.errors = Collections.unmodifiableMap(errors);
+        }
+
+        public @NotNull String getService() {
+            return service;
+        }
+
+        public @NotNull String getEndpoint() {
+            return endpoint;
+        }
+
+        /** @return the number of calls, failed or not */
+        public long getCalls() {
+            return latency.getCount();
+        }
+
+        /** @return the latency of the calls, in microseconds */
+        public @NotNull LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        /** @return the number of failed calls by error type, without the types that have none */
+        public @NotNull Map<ErrorType, Long> getErrors() {
+            return errors;
+        }
+    }
+}
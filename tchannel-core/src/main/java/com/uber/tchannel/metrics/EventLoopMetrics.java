@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.metrics;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The health of an event loop: the depth of its task queue, and how long a task waits in it before it runs, as
+ * measured by a probe task submitted to the loop at every {@link #probe()}.
+ *
+ * A single probe is in flight at a time: a loop that is stuck shows as a probe that has been waiting for long, instead
+ * of as a queue filling up with probes.
+ */
+public final class EventLoopMetrics {
+
+    private final @NotNull String name;
+    private final @NotNull EventExecutor eventLoop;
+    private final @NotNull LatencyHistogram taskLatency = new LatencyHistogram();
+
+    private final @NotNull AtomicBoolean probing = new AtomicBoolean();
+    private volatile long probeStartNanos;
+    private final @NotNull Runnable probeTask = new Runnable() {
+        @Override
+        public void run() {
+            taskLatency.record(System.nanoTime() - probeStartNanos, TimeUnit.NANOSECONDS);
+            probing.set(false);
+        }
+    };
+
+    EventLoopMetrics(@NotNull String name, @NotNull EventExecutor eventLoop) {
+        this.name = name;
+        this.eventLoop = eventLoop;
+    }
+
+    /** Submits a probe task to the loop, unless the previous one is yet to run. */
+    public void probe() {
+        if (eventLoop.isShuttingDown() || !probing.compareAndSet(false, true)) {
+            return;
+        }
+        probeStartNanos = System.nanoTime();
+        try {
+            eventLoop.execute(probeTask);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            probing.set(false);
+        }
+    }
+
+    public @NotNull Snapshot snapshot() {
+        int pendingTasks = eventLoop instanceof SingleThreadEventExecutor
+            ? ((SingleThreadEventExecutor) eventLoop).pendingTasks()
+            : -1;
+        long probeWaitMicros = probing.get()
+            ? TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - probeStartNanos)
+            : 0;
+        return new Snapshot(name, pendingTasks, probeWaitMicros, taskLatency.snapshot());
+    }
+
+    /** The {@link EventLoopMetrics} of a loop at a point in time. */
+    public static final class Snapshot {
+
+        private final @NotNull String name;
+        private final int pendingTasks;
+        private final long probeWaitMicros;
+        private final @NotNull LatencyHistogram.Snapshot taskLatency;
+
+        Snapshot(
+            @NotNull String name,
+            int pendingTasks,
+            long probeWaitMicros,
+            @NotNull LatencyHistogram.Snapshot taskLatency
+        ) {
+            this.name = name;
+            this.pendingTasks = pendingTasks;
+            this.probeWaitMicros = probeWaitMicros;
+            this.taskLatency = taskLatency;
+        }
+
+        /** @return the name of the group of the loop, and its index in the group, e.g. {@code child-3} */
+        public @NotNull String getName() {
+            return name;
+        }
+
+        /** @return the tasks queued on the loop, or -1 if the loop does not tell */
+        public int getPendingTasks() {
+            return pendingTasks;
+        }
+
+        /** @return how long the probe in flight, if any, has been waiting to run, in microseconds */
+        public long getProbeWaitMicros() {
+            return probeWaitMicros;
+        }
+
+        /** @return how long the probes waited to run */
+        public @NotNull LatencyHistogram.Snapshot getTaskLatency() {
+            return taskLatency;
+        }
+    }
+}
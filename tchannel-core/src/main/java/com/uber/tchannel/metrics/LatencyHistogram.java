@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.metrics;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import io.netty.util.internal.MathUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A histogram of latencies in microseconds, in log-linear buckets like HdrHistogram: values below 32 are exact, and
+ * every power of two above is split in 32 buckets, which keeps every value within about 3% of its bucket. Values are
+ * capped at 2^36 microseconds (about 19 hours).
+ *
+ * Recording does not lock and does not allocate. Netty threads, which record most of the values, each write their own
+ * counts with ordered stores; other threads, which may come and go (one per request), share a few striped counts
+ * updated atomically. {@link #snapshot()} merges all of them.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private static final int SHARED_STRIPES =
+        MathUtil.findNextPositivePowerOfTwo(Math.min(Runtime.getRuntime().availableProcessors(), 8));
+
+    private final @NotNull Queue<Counts> threadCounts = new ConcurrentLinkedQueue<>();
+    private final @NotNull AtomicReferenceArray<Counts> sharedCounts = new AtomicReferenceArray<>(SHARED_STRIPES);
+
+    private final @NotNull FastThreadLocal<Counts> counts = new FastThreadLocal<Counts>() {
+        @Override
+        protected Counts initialValue() {
+            Counts counts = new Counts();
+            threadCounts.add(counts);
+            return counts;
+        }
+    };
+
+    public void record(long duration, @NotNull TimeUnit unit) {
+        record(unit.toMicros(duration));
+    }
+
+    public void record(long micros) {
+        long value = Math.max(0, Math.min(micros, MAX_VALUE));
+        Thread thread = Thread.currentThread();
+        if (thread instanceof FastThreadLocalThread) {
+            counts.get().recordOwned(value);
+        } else {
+            sharedCounts(thread).recordShared(value);
+        }
+    }
+
+    private @NotNull Counts sharedCounts(@NotNull Thread thread) {
+        int stripe = (int) (thread.getId() & (SHARED_STRIPES - 1));
+        Counts shared = sharedCounts.get(stripe);
+        if (shared == null) {
+            sharedCounts.compareAndSet(stripe, null, new Counts());
+            shared = sharedCounts.get(stripe);
+        }
+        return shared;
+    }
+
+    public @NotNull Snapshot snapshot() {
+        long[] merged = new long[BUCKETS];
+        long[] sumAndMax = new long[2];
+        for (Counts threadCount : threadCounts) {
+            threadCount.mergeInto(merged, sumAndMax);
+        }
+        for (int i = 0; i < SHARED_STRIPES; i++) {
+            Counts shared = sharedCounts.get(i);
+            if (shared != null) {
+                shared.mergeInto(merged, sumAndMax);
+            }
+        }
+        return new Snapshot(merged, sumAndMax[0], sumAndMax[1]);
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /** @return the largest value that falls in the bucket at {@code index} */
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /** Counts of the buckets, followed by the sum and the maximum of the values. */
+    private static final class Counts {
+
+        private static final int SUM = BUCKETS;
+        private static final int MAX = BUCKETS + 1;
+
+        private final @NotNull AtomicLongArray counts = new AtomicLongArray(BUCKETS + 2);
+
+        /** Only ever called by the thread owning these counts: plain reads, ordered writes. */
+        void recordOwned(long value) {
+            int index = index(value);
+            counts.lazySet(index, counts.get(index) + 1);
+            counts.lazySet(SUM, counts.get(SUM) + value);
+            if (value > counts.get(MAX)) {
+                counts.lazySet(MAX, value);
+            }
+        }
+
+        void recordShared(long value) {
+            counts.incrementAndGet(index(value));
+            counts.addAndGet(SUM, value);
+            long max;
+            while (value > (max = counts.get(MAX))) {
+                if (counts.compareAndSet(MAX, max, value)) {
+                    break;
+                }
+            }
+        }
+
+        void mergeInto(@NotNull long[] merged, @NotNull long[] sumAndMax) {
+            for (int i = 0; i < BUCKETS; i++) {
+                merged[i] += counts.get(i);
+            }
+            sumAndMax[0] += counts.get(SUM);
+            sumAndMax[1] = Math.max(sumAndMax[1], counts.get(MAX));
+        }
+    }
+
+    /** The values recorded up to the time of the snapshot. */
+    public static final class Snapshot {
+
+        private final @NotNull long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(@NotNull long[] counts, long sum, long max) {
+            this.counts = counts;
+            long count = 0;
+            for (long bucketCount : counts) {
+                count += bucketCount;
+            }
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /** @return the sum of the values, in microseconds */
+        public long getSum() {
+            return sum;
+        }
+
+        /** @return the mean of the values, in microseconds, or 0 if there is none */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /** @return the largest value, in microseconds */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the value, in microseconds, that {@code percentile}% of the values are lower than or equivalent to
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.metrics;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The metrics of a {@link com.uber.tchannel.api.TChannel}, enabled with
+ * {@link com.uber.tchannel.api.TChannel.Builder#setMetricsEnabled}:
+ * <ul>
+ *     <li>the latency and the errors of the calls, per endpoint, inbound and outbound;</li>
+ *     <li>the frames and bytes read and written;</li>
+ *     <li>the retries and timeouts of the outbound calls, and the connections reset after too many timeouts;</li>
+ *     <li>the health of the event loops and the executor: how long the tasks wait on each loop, how long the
+ *     inbound calls wait for the executor, and then for the loop to write their response, and how often the
+ *     connections stop and resume accepting writes.</li>
+ * </ul>
+ *
+ * Recording only increments counters that do not lock: it is cheap enough to be left on in production.
+ */
+public final class Metrics {
+
+    /** Endpoint of the inbound calls to endpoints that are not registered. */
+    public static final String UNKNOWN_ENDPOINT = "<unknown>";
+
+    /** Service of the inbound calls to services that have no sub channel, so that callers cannot add series. */
+    public static final String UNKNOWN_SERVICE = "<unknown>";
+
+    private final @NotNull ConcurrentMap<String, ConcurrentMap<String, EndpointMetrics>> inbound =
+        new ConcurrentHashMap<>();
+    private final @NotNull ConcurrentMap<String, ConcurrentMap<String, EndpointMetrics>> outbound =
+        new ConcurrentHashMap<>();
+
+    private final @NotNull LongCounter framesIn = PlatformDependent.newLongCounter();
+    private final @NotNull LongCounter framesOut = PlatformDependent.newLongCounter();
+    private final @NotNull LongCounter bytesIn = PlatformDependent.newLongCounter();
+    private final @NotNull LongCounter bytesOut = PlatformDependent.newLongCounter();
+    private final @NotNull LongCounter retries = PlatformDependent.newLongCounter();
+    private final @NotNull LongCounter timeouts = PlatformDependent.newLongCounter();
+    private final @NotNull LongCounter resets = PlatformDependent.newLongCounter();
+    private final @NotNull LongCounter unwritable = PlatformDependent.newLongCounter();
+    private final @NotNull LongCounter writable = PlatformDependent.newLongCounter();
+
+    private final @NotNull LatencyHistogram executorQueue = new LatencyHistogram();
+    private final @NotNull LatencyHistogram responseWrite = new LatencyHistogram();
+    private final @NotNull List<EventLoopMetrics> eventLoops = new CopyOnWriteArrayList<>();
+
+    public @NotNull EndpointMetrics getInbound(@NotNull String service, @NotNull String endpoint) {
+        return get(inbound, service, endpoint);
+    }
+
+    public @NotNull EndpointMetrics getOutbound(@NotNull String service, @NotNull String endpoint) {
+        return get(outbound, service, endpoint);
+    }
+
+    private static @NotNull EndpointMetrics get(
+        @NotNull ConcurrentMap<String, ConcurrentMap<String, EndpointMetrics>> services,
+        @NotNull String service,
+        @NotNull String endpoint
+    ) {
+        ConcurrentMap<String, EndpointMetrics> endpoints = services.get(service);
+        if (endpoints == null) {
+            ConcurrentMap<String, EndpointMetrics> created = new ConcurrentHashMap<>();
+            endpoints = services.putIfAbsent(service, created);
+            if (endpoints == null) {
+                endpoints = created;
+            }
+        }
+        EndpointMetrics metrics = endpoints.get(endpoint);
+        if (metrics == null) {
+            EndpointMetrics created = new EndpointMetrics(service, endpoint);
+            metrics = endpoints.putIfAbsent(endpoint, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    public void recordFrameIn(int bytes) {
+        framesIn.increment();
+        bytesIn.add(bytes);
+    }
+
+    public void recordFrameOut(int bytes) {
+        framesOut.increment();
+        bytesOut.add(bytes);
+    }
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    public void recordTimeout() {
+        timeouts.increment();
+    }
+
+    public void recordReset() {
+        resets.increment();
+    }
+
+    public void recordWritabilityChanged(boolean isWritable) {
+        (isWritable ? writable : unwritable).increment();
+    }
+
+    /** @param readNanos when the request was read off its connection, from {@link System#nanoTime()} */
+    public void recordHandlerStart(long readNanos) {
+        executorQueue.record(System.nanoTime() - readNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** @param completedNanos when the handler completed the response, from {@link System#nanoTime()} */
+    public void recordResponseWrite(long completedNanos) {
+        responseWrite.record(System.nanoTime() - completedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Watches the loops of {@code group}, named after {@code name} and their index. See {@link #probeEventLoops}. */
+    public void addEventLoops(@NotNull String name, @NotNull EventLoopGroup group) {
+        int index = 0;
+        for (EventExecutor eventLoop : group) {
+            eventLoops.add(new EventLoopMetrics(name + '-' + index++, eventLoop));
+        }
+    }
+
+    /** Submits a probe task to each of the loops watched. See {@link EventLoopMetrics}. */
+    public void probeEventLoops() {
+        for (EventLoopMetrics eventLoop : eventLoops) {
+            eventLoop.probe();
+        }
+    }
+
+    /**
+     * @param pendingRequests the outbound requests waiting for their response, by connection
+     */
+    public @NotNull MetricsSnapshot snapshot(@NotNull Map<String, Integer> pendingRequests) {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put("frames.in", framesIn.value());
+        counters.put("frames.out", framesOut.value());
+        counters.put("bytes.in", bytesIn.value());
+        counters.put("bytes.out", bytesOut.value());
+        counters.put("calls.retries", retries.value());
+        counters.put("calls.timeouts", timeouts.value());
+        counters.put("connections.resets", resets.value());
+        counters.put("connections.unwritable", unwritable.value());
+        counters.put("connections.writable", writable.value());
+        Map<String, LatencyHistogram.Snapshot> histograms = new LinkedHashMap<>();
+        histograms.put("calls.executor.queue", executorQueue.snapshot());
+        histograms.put("calls.response.write", responseWrite.snapshot());
+        List<EventLoopMetrics.Snapshot> eventLoopSnapshots = new ArrayList<>(eventLoops.size());
+        for (EventLoopMetrics eventLoop : eventLoops) {
+            eventLoopSnapshots.add(eventLoop.snapshot());
+        }
+        return new MetricsSnapshot(
+            System.currentTimeMillis(),
+            counters,
+            histograms,
+            pendingRequests,
+            snapshot(inbound),
+            snapshot(outbound),
+            eventLoopSnapshots
+        );
+    }
+
+    private static @NotNull List<EndpointMetrics.Snapshot> snapshot(
+        @NotNull ConcurrentMap<String, ConcurrentMap<String, EndpointMetrics>> services
+    ) {
+        List<EndpointMetrics.Snapshot> result = new ArrayList<>();
+        for (ConcurrentMap<String, EndpointMetrics> endpoints : services.values()) {
+            for (EndpointMetrics metrics : endpoints.values()) {
+                result.add(metrics.snapshot());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the metrics of a {@link com.uber.tchannel.api.TChannel} periodically, to hand them over to a monitoring
+ * system. Set up with {@link com.uber.tchannel.api.TChannel.Builder#addMetricsReporter}.
+ *
+ * Counters and histograms in the snapshots are cumulative, since the channel was created: reporters of systems that
+ * expect deltas keep the previous snapshot around. Reporters are all called on a single thread of the channel, and
+ * should not block it for long.
+ */
+public interface MetricsReporter {
+
+    void report(@NotNull MetricsSnapshot snapshot);
+}
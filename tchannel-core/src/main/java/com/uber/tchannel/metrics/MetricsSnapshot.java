@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/** The {@link Metrics} of a channel at a point in time. Counters and histograms are cumulative. */
+public final class MetricsSnapshot {
+
+    private final long timestamp;
+    private final @NotNull Map<String, Long> counters;
+    private final @NotNull Map<String, LatencyHistogram.Snapshot> histograms;
+    private final @NotNull Map<String, Integer> pendingRequests;
+    private final @NotNull List<EndpointMetrics.Snapshot> inbound;
+    private final @NotNull List<EndpointMetrics.Snapshot> outbound;
+    private final @NotNull List<EventLoopMetrics.Snapshot> eventLoops;
+
+    MetricsSnapshot(
+        long timestamp,
+        @NotNull Map<String, Long> counters,
+        @NotNull Map<String, LatencyHistogram.Snapshot> histograms,
+        @NotNull Map<String, Integer> pendingRequests,
+        @NotNull List<EndpointMetrics.Snapshot> inbound,
+        @NotNull List<EndpointMetrics.Snapshot> outbound,
+        @NotNull List<EventLoopMetrics.Snapshot> eventLoops
+    ) {
+        this.timestamp = timestamp;
+        this.counters = Collections.unmodifiableMap(counters);
+        this.histograms = Collections.unmodifiableMap(histograms);
+        this.pendingRequests = Collections.unmodifiableMap(pendingRequests);
+        this.inbound = Collections.unmodifiableList(inbound);
+        this.outbound = Collections.unmodifiableList(outbound);
+        this.eventLoops = Collections.unmodifiableList(eventLoops);
+    }
+
+    /** @return when the snapshot was taken, in milliseconds since the epoch */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return {@code frames.in}, {@code frames.out}, {@code bytes.in}, {@code bytes.out}, {@code calls.retries},
+     * {@code calls.timeouts}, {@code connections.resets}, and {@code connections.unwritable} and
+     * {@code connections.writable}, the times connections stopped and resumed accepting writes
+     */
+    public @NotNull Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    /**
+     * @return {@code calls.executor.queue}, from an inbound request read to its handler started, and
+     * {@code calls.response.write}, from its handler completed to the event loop picking the response up for writing
+     */
+    public @NotNull Map<String, LatencyHistogram.Snapshot> getHistograms() {
+        return histograms;
+    }
+
+    /** @return the outbound requests waiting for their response, by connection */
+    public @NotNull Map<String, Integer> getPendingRequests() {
+        return pendingRequests;
+    }
+
+    /** @return the calls received, by endpoint */
+    public @NotNull List<EndpointMetrics.Snapshot> getInbound() {
+        return inbound;
+    }
+
+    /** @return the calls sent, by endpoint */
+    public @NotNull List<EndpointMetrics.Snapshot> getOutbound() {
+        return outbound;
+    }
+
+    /** @return the health of the event loops of the channel */
+    public @NotNull List<EventLoopMetrics.Snapshot> getEventLoops() {
+        return eventLoops;
+    }
+
+    public @Nullable EndpointMetrics.Snapshot getInbound(@NotNull String service, @NotNull String endpoint) {
+        return find(inbound, service, endpoint);
+    }
+
+    public @Nullable EndpointMetrics.Snapshot getOutbound(@NotNull String service, @NotNull String endpoint) {
+        return find(outbound, service, endpoint);
+    }
+
+    private static @Nullable EndpointMetrics.Snapshot find(
+        @NotNull List<EndpointMetrics.Snapshot> endpoints,
+        @NotNull String service,
+        @NotNull String endpoint
+    ) {
+        for (EndpointMetrics.Snapshot snapshot : endpoints) {
+            if (snapshot.getService().equals(service) && snapshot.getEndpoint().equals(endpoint)) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+}
@@ -30,7 +30,8 @@ import java.util.Map;
  * tracing headers at the lower-level functions. This interface provides
  * a back door to update the headers, which is not as efficient.
  *
- * TODO this won't be needed if EncodedRequest performed lazy serialization.
+ * Tracing splices its headers into and out of the arg2 of an EncodedRequest
+ * directly; this interface is only used for other implementations.
  */
 public interface TraceableRequest {
     Map<String, String> getHeaders();
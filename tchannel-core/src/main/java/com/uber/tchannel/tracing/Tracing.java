@@ -25,20 +25,28 @@ package com.uber.tchannel.tracing;
 import com.google.common.collect.ImmutableMap;
 import com.uber.tchannel.api.handlers.TFutureCallback;
 import com.uber.tchannel.handlers.OutRequest;
+import com.uber.tchannel.messages.EncodedRequest;
 import com.uber.tchannel.messages.Request;
 import com.uber.tchannel.messages.Response;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
 import io.opentracing.propagation.Format;
 import io.opentracing.tag.Tags;
 import io.jaegertracing.internal.JaegerSpanContext;
+import io.jaegertracing.internal.JaegerTracer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 public final class Tracing {
 
@@ -52,9 +60,19 @@ public final class Tracing {
      */
     public static final String HEADER_KEY_PREFIX = "$tracing$";
 
+    /** The one tracing header of a call without baggage or debug id, as Jaeger's TextMapCodec names it. */
+    private static final String SPAN_CONTEXT_HEADER_KEY = HEADER_KEY_PREFIX + "uber-trace-id";
+
+    private static final ByteBuf HEADER_KEY_PREFIX_BYTES =
+        Unpooled.unreleasableBuffer(Unpooled.copiedBuffer(HEADER_KEY_PREFIX, CharsetUtil.UTF_8));
+
     private Tracing() {}
 
     /**
+     * Calls that are not sampled only get the {@link Trace} fields of their frame set: no span, no tracing headers
+     * and no callback. The sampling decision is that of the current span, if it is a Jaeger one without baggage, and
+     * otherwise that of the tracer, once the span is started.
+     *
      * @throws RuntimeException
      *     if the outbound request should fail immediately
      */
@@ -68,20 +86,37 @@ public final class Tracing {
         }
 
         Request request = outRequest.getRequest();
+        boolean intercepted = tracingContext instanceof RequestSpanInterceptor;
 
-        Tracer.SpanBuilder builder = tracer.buildSpan(request.getEndpoint());
-        if (tracingContext.hasSpan()) {
-            builder.asChildOf(tracingContext.currentSpan().context());
+        SpanContext parent = tracingContext.hasSpan() ? tracingContext.currentSpan().context() : null;
+        if (!intercepted && isUnsampled(parent)) {
+            JaegerSpanContext parentContext = (JaegerSpanContext) parent;
+            request.setTrace(new Trace(
+                newSpanId(),
+                parentContext.getSpanId(),
+                parentContext.getTraceIdLow(),
+                parentContext.getFlags()));
+            return;
         }
-        // TODO add tags for peer host:port
-        builder
-            .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CLIENT)
-            .withTag(Tags.PEER_SERVICE.getKey(), request.getService())
-            .withTag("as", request.getArgScheme().name());
 
+        Tracer.SpanBuilder builder = tracer.buildSpan(request.getEndpoint());
+        if (parent != null) {
+            builder.asChildOf(parent);
+        }
         final Span span = builder.startManual();
+        setTrace(request, span.context());
+        if (!intercepted && isUnsampled(span.context())) {
+            span.finish();
+            return;
+        }
 
-        if (tracingContext instanceof RequestSpanInterceptor) {
+        // TODO add tags for peer host:port
+        span
+            .setTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CLIENT)
+            .setTag(Tags.PEER_SERVICE.getKey(), request.getService())
+            .setTag("as", request.getArgScheme().name());
+
+        if (intercepted) {
             try {
                 ((RequestSpanInterceptor) tracingContext).interceptOutbound(request, span);
             } catch (RuntimeException e) {
@@ -91,20 +126,18 @@ public final class Tracing {
             }
         }
 
-        // if Jaeger span context, set Trace fields
-        if (span.context() instanceof JaegerSpanContext) {
-            JaegerSpanContext jaegerSpanContext = (JaegerSpanContext) span.context();
-            Trace trace = new Trace(
-                jaegerSpanContext.getSpanId(),
-                jaegerSpanContext.getParentId(),
-                // tchannel only support 64bit IDs, https://github.com/uber/tchannel/blob/master/docs/protocol.md#tracing
-                jaegerSpanContext.getTraceIdLow(),
-                jaegerSpanContext.getFlags());
-            request.setTrace(trace);
-        }
-
         // if request has headers, inject tracing context
-        if (request instanceof TraceableRequest) {
+        if (request instanceof EncodedRequest) {
+            // splice the tracing headers into the encoded headers, instead of encoding all of them again
+            Map<String, String> tracingHeaders = new HashMap<>();
+            PrefixedHeadersCarrier carrier = new PrefixedHeadersCarrier(tracingHeaders);
+            try {
+                tracer.inject(span.context(), Format.Builtin.TEXT_MAP, carrier);
+                ((EncodedRequest<?>) request).appendHeaders(tracingHeaders);
+            } catch (Exception e) {
+                logger.error("Failed to inject span context into headers", e);
+            }
+        } else if (request instanceof TraceableRequest) {
             TraceableRequest traceableRequest = (TraceableRequest) request;
             //Format.Builtin.TEXT_MAP
             Map<String, String> headers = traceableRequest.getHeaders();
@@ -129,6 +162,10 @@ public final class Tracing {
     }
 
     /**
+     * Calls whose {@link Trace} fields say they are not sampled get a span that records nothing, and only carries
+     * these fields over to the outbound calls of their handler. Their tracing headers are removed, and only extracted
+     * if they carry more than the span context, such as baggage or a debug id.
+     *
      * @throws RuntimeException
      *     if the inbound request should fail immediately
      */
@@ -138,10 +175,35 @@ public final class Tracing {
         @NotNull TracingContext tracingContext
     ) throws RuntimeException {
         tracingContext.clear();
-        Tracer.SpanBuilder builder = tracer.buildSpan(request.getEndpoint());
+
         SpanContext parent = null;
 
-        if (request instanceof TraceableRequest) {
+        Trace trace = request.getTrace();
+        if (trace != null
+            && trace.traceId != 0
+            && !trace.isTracingEnabled()
+            && tracer instanceof JaegerTracer
+            && !(tracingContext instanceof RequestSpanInterceptor)) {
+            Map<String, String> tracingHeaders = removeTracingHeaders(request);
+            if (tracingHeaders.isEmpty()
+                || (tracingHeaders.size() == 1 && tracingHeaders.containsKey(SPAN_CONTEXT_HEADER_KEY))) {
+                Span span = new UnsampledSpan(toSpanContext(trace));
+                tracingContext.pushSpan(span);
+                return span;
+            }
+            try {
+                parent = tracer.extract(Format.Builtin.TEXT_MAP, new PrefixedHeadersCarrier(tracingHeaders));
+            } catch (RuntimeException e) {
+                logger.error("Failed to extract span context from headers", e);
+            }
+        } else if (request instanceof EncodedRequest) {
+            try {
+                Map<String, String> tracingHeaders = ((EncodedRequest<?>) request).removeHeaders(HEADER_KEY_PREFIX);
+                parent = tracer.extract(Format.Builtin.TEXT_MAP, new PrefixedHeadersCarrier(tracingHeaders));
+            } catch (RuntimeException e) {
+                logger.error("Failed to extract span context from headers", e);
+            }
+        } else if (request instanceof TraceableRequest) {
             TraceableRequest traceableRequest = (TraceableRequest) request;
             Map<String, String> headers = traceableRequest.getHeaders();
             PrefixedHeadersCarrier carrier = new PrefixedHeadersCarrier(headers);
@@ -157,17 +219,11 @@ public final class Tracing {
         }
 
         // if parent isn't in headers, try to extract parent from request Trace fields
-        if (parent == null && request.getTrace() != null) {
-            Trace trace = request.getTrace();
-            parent = new JaegerSpanContext(
-                // tchannel only support 64bit IDs, https://github.com/uber/tchannel/blob/master/docs/protocol.md#tracing
-                0,
-                trace.traceId,
-                trace.spanId,
-                trace.parentId,
-                trace.traceFlags);
+        if (parent == null && trace != null) {
+            parent = toSpanContext(trace);
         }
 
+        Tracer.SpanBuilder builder = tracer.buildSpan(request.getEndpoint());
         builder
             .asChildOf(parent)
             .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_SERVER)
@@ -195,4 +251,66 @@ public final class Tracing {
         return span;
     }
 
+    private static boolean isUnsampled(@Nullable SpanContext context) {
+        return context instanceof JaegerSpanContext
+            && !((JaegerSpanContext) context).isSampled()
+            && !context.baggageItems().iterator().hasNext();
+    }
+
+    private static void setTrace(@NotNull Request request, @NotNull SpanContext context) {
+        // if Jaeger span context, set Trace fields
+        if (context instanceof JaegerSpanContext) {
+            JaegerSpanContext jaegerSpanContext = (JaegerSpanContext) context;
+            request.setTrace(new Trace(
+                jaegerSpanContext.getSpanId(),
+                jaegerSpanContext.getParentId(),
+                // tchannel only support 64bit IDs, https://github.com/uber/tchannel/blob/master/docs/protocol.md#tracing
+                jaegerSpanContext.getTraceIdLow(),
+                jaegerSpanContext.getFlags()));
+        }
+    }
+
+    private static @NotNull JaegerSpanContext toSpanContext(@NotNull Trace trace) {
+        // tchannel only support 64bit IDs, https://github.com/uber/tchannel/blob/master/docs/protocol.md#tracing
+        return new JaegerSpanContext(0, trace.traceId, trace.spanId, trace.parentId, trace.traceFlags);
+    }
+
+    private static long newSpanId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    /**
+     * Removes the tracing headers of a call that is not sampled, that its caller may have sent anyway.
+     *
+     * @return the removed headers
+     */
+    private static @NotNull Map<String, String> removeTracingHeaders(@NotNull Request request) {
+        Map<String, String> tracingHeaders = new HashMap<>();
+        try {
+            if (request instanceof EncodedRequest) {
+                // only splice arg2 when it may have some
+                ByteBuf arg2 = request.getArg2();
+                if (arg2 == null || ByteBufUtil.indexOf(HEADER_KEY_PREFIX_BYTES, arg2) >= 0) {
+                    tracingHeaders = ((EncodedRequest<?>) request).removeHeaders(HEADER_KEY_PREFIX);
+                }
+            } else if (request instanceof TraceableRequest) {
+                TraceableRequest traceableRequest = (TraceableRequest) request;
+                Map<String, String> headers = traceableRequest.getHeaders();
+                Map<String, String> nonTracingHeaders = new PrefixedHeadersCarrier(headers).getNonTracingHeaders();
+                if (nonTracingHeaders.size() < headers.size()) {
+                    tracingHeaders.putAll(headers);
+                    tracingHeaders.keySet().removeAll(nonTracingHeaders.keySet());
+                    traceableRequest.setHeaders(nonTracingHeaders);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to remove tracing headers", e);
+        }
+        return tracingHeaders;
+    }
+
 }
@@ -21,10 +21,11 @@
  */
 package com.uber.tchannel.tracing;
 
+import io.netty.util.concurrent.FastThreadLocal;
 import io.opentracing.Span;
 
+import java.util.ArrayDeque;
 import java.util.EmptyStackException;
-import java.util.Stack;
 
 public interface TracingContext {
     /**
@@ -91,22 +92,33 @@ public interface TracingContext {
         }
     }
 
+    /**
+     * Keeps the spans of each thread in a stack of its own, that is never shared: it does not need to synchronize.
+     * The stack is an indexed lookup on Netty event loop threads; on other threads, such as those of the executor
+     * running the request handlers, it falls back to a {@link java.lang.ThreadLocal}.
+     *
+     * Null spans are rejected, as they could not be told apart from an empty stack.
+     */
     class ThreadLocal implements TracingContext {
 
-        private final java.lang.ThreadLocal<Stack<Span>> stack =
-                new java.lang.ThreadLocal<Stack<Span>>() {
+        private final FastThreadLocal<ArrayDeque<Span>> stack =
+                new FastThreadLocal<ArrayDeque<Span>>() {
                     @Override
-                    protected Stack<Span> initialValue() {
-                        return new Stack<>();
+                    protected ArrayDeque<Span> initialValue() {
+                        return new ArrayDeque<>(4);
                     }
                 };
 
-        private Stack<Span> stack() {
+        private ArrayDeque<Span> stack() {
             return stack.get();
         }
 
+        /** @throws NullPointerException if {@code span} is null */
         @Override
         public void pushSpan(Span span) {
+            if (span == null) {
+                throw new NullPointerException("`span` cannot be null");
+            }
             stack().push(span);
         }
 
@@ -117,7 +129,11 @@ public interface TracingContext {
 
         @Override
         public Span popSpan() {
-            return stack().pop();
+            Span span = stack().poll();
+            if (span == null) {
+                throw new EmptyStackException();
+            }
+            return span;
         }
 
         @Override
@@ -127,7 +143,11 @@ public interface TracingContext {
 
         @Override
         public Span currentSpan() {
-            return stack().peek();
+            Span span = stack().peek();
+            if (span == null) {
+                throw new EmptyStackException();
+            }
+            return span;
         }
     }
 
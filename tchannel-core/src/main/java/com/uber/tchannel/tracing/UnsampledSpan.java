@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.tracing;
+
+import io.jaegertracing.internal.JaegerSpanContext;
+import io.opentracing.Span;
+import io.opentracing.tag.Tag;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Stands for the span of an inbound call that is not sampled, in the {@link TracingContext} of its handler: it only
+ * carries the context of the caller, so that the outbound calls of the handler propagate it, and records nothing.
+ *
+ * Baggage set on it is kept in its context, and then propagated in the headers of the outbound calls.
+ */
+final class UnsampledSpan implements Span {
+
+    private @NotNull JaegerSpanContext context;
+
+    UnsampledSpan(@NotNull JaegerSpanContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public @NotNull JaegerSpanContext context() {
+        return context;
+    }
+
+    @Override
+    public Span setTag(String key, String value) {
+        return this;
+    }
+
+    @Override
+    public Span setTag(String key, boolean value) {
+        return this;
+    }
+
+    @Override
+    public Span setTag(String key, Number value) {
+        return this;
+    }
+
+    @Override
+    public <T> Span setTag(Tag<T> tag, T value) {
+        return this;
+    }
+
+    @Override
+    public Span log(Map<String, ?> fields) {
+        return this;
+    }
+
+    @Override
+    public Span log(long timestampMicroseconds, Map<String, ?> fields) {
+        return this;
+    }
+
+    @Override
+    public Span log(String event) {
+        return this;
+    }
+
+    @Override
+    public Span log(long timestampMicroseconds, String event) {
+        return this;
+    }
+
+    @Override
+    public Span setBaggageItem(String key, String value) {
+        context = context.withBaggageItem(key, value);
+        return this;
+    }
+
+    @Override
+    public String getBaggageItem(String key) {
+        return context.getBaggageItem(key);
+    }
+
+    @Override
+    public Span setOperationName(String operationName) {
+        return this;
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    @Override
+    public void finish(long finishMicros) {
+    }
+}
@@ -25,15 +25,20 @@ package com.uber.tchannel.utils;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.util.Enumeration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public final class TChannelUtilities {
 
@@ -96,4 +101,22 @@ public final class TChannelUtilities {
 
         return bestAddr;
     }
+
+    /**
+     * Returns a new executor starting one virtual thread per task, or {@code null} if the running JVM has no
+     * virtual threads (before JDK 21).
+     *
+     * The factory method is looked up reflectively since the library itself is compiled for older JDKs.
+     */
+    public static @Nullable ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            logger.warn("Failed to create a virtual thread executor", e);
+            return null;
+        }
+    }
 }
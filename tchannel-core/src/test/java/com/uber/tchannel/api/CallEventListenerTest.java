@@ -0,0 +1,178 @@
+package com.uber.tchannel.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import com.uber.tchannel.metrics.CallEvent;
+import com.uber.tchannel.metrics.CallEventListener;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CallEventListenerTest {
+
+    private final RecordingListener serverEvents = new RecordingListener();
+    private final RecordingListener clientEvents = new RecordingListener();
+    private InetAddress host;
+    private TChannel server;
+    private TChannel client;
+
+    @Before
+    public void setUp() throws Exception {
+        host = InetAddress.getByName(null);
+
+        server = new TChannel.Builder("server")
+            .setServerHost(host)
+            .setCallEventListener(serverEvents)
+            .build();
+        server.makeSubChannel("server")
+            .register("echo", new EchoHandler());
+
+        client = new TChannel.Builder("client")
+            .setServerHost(host)
+            .setCallEventListener(clientEvents)
+            .build();
+        client.makeSubChannel("server");
+
+        server.listen();
+        client.listen();
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+        client.shutdown();
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        TChannel channel = new TChannel.Builder("other").build();
+        assertNull(channel.getCallEventListener());
+        channel.shutdown();
+    }
+
+    @Test
+    public void testEventsAreReported() throws Exception {
+        RawRequest request = new RawRequest.Builder("server", "echo")
+            .setTimeout(1000)
+            .setBody("hello")
+            .build();
+        RawResponse response = client.getSubChannel("server")
+            .send(request, host, server.getListeningPort())
+            .get();
+        assertEquals(ResponseCode.OK, response.getResponseCode());
+        response.release();
+
+        // the server reports the write of the response before the client reads it
+        assertEquals(
+            EnumSet.of(
+                CallEvent.MESSAGE_DECODED,
+                CallEvent.HANDLER_DISPATCHED,
+                CallEvent.HANDLER_COMPLETED,
+                CallEvent.RESPONSE_WRITTEN
+            ),
+            serverEvents.events()
+        );
+        for (Event event : serverEvents.received()) {
+            assertEquals("server", event.service);
+            assertEquals("echo", event.endpoint);
+            assertNotNull(event.peer);
+            assertTrue(event.durationNanos >= 0);
+        }
+
+        assertEquals(
+            EnumSet.of(CallEvent.REQUEST_QUEUED, CallEvent.REQUEST_WRITTEN, CallEvent.MESSAGE_DECODED),
+            clientEvents.events()
+        );
+        for (Event event : clientEvents.received()) {
+            assertEquals(request.getId(), event.id);
+            // responses carry no service nor endpoint
+            assertEquals(event.type == CallEvent.MESSAGE_DECODED ? null : "echo", event.endpoint);
+        }
+    }
+
+    private static final class Event {
+
+        private final @NotNull CallEvent type;
+        private final @Nullable String service;
+        private final @Nullable String endpoint;
+        private final long id;
+        private final @Nullable SocketAddress peer;
+        private final long durationNanos;
+
+        Event(
+            @NotNull CallEvent type,
+            @Nullable String service,
+            @Nullable String endpoint,
+            long id,
+            @Nullable SocketAddress peer,
+            long durationNanos
+        ) {
+            this.type = type;
+            this.service = service;
+            this.endpoint = endpoint;
+            this.id = id;
+            this.peer = peer;
+            this.durationNanos = durationNanos;
+        }
+    }
+
+    private static final class RecordingListener implements CallEventListener {
+
+        private final @NotNull List<Event> received = new ArrayList<>();
+
+        @Override
+        public boolean isEnabled(@NotNull CallEvent event) {
+            return true;
+        }
+
+        @Override
+        public synchronized void onEvent(
+            @NotNull CallEvent event,
+            @Nullable String service,
+            @Nullable String endpoint,
+            long id,
+            @Nullable SocketAddress peer,
+            long durationNanos
+        ) {
+            received.add(new Event(event, service, endpoint, id, peer, durationNanos));
+        }
+
+        synchronized @NotNull List<Event> received() {
+            return new ArrayList<>(received);
+        }
+
+        synchronized @NotNull Set<CallEvent> events() {
+            Set<CallEvent> events = EnumSet.noneOf(CallEvent.class);
+            for (Event event : received) {
+                events.add(event.type);
+            }
+            return events;
+        }
+    }
+
+    private static final class EchoHandler implements RequestHandler {
+
+        @Override
+        public Response handle(Request request) {
+            return new RawResponse.Builder(request)
+                .setArg3(request.getArg3().retain())
+                .build();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.uber.tchannel.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.errors.ErrorType;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import com.uber.tchannel.metrics.EndpointMetrics;
+import com.uber.tchannel.metrics.EventLoopMetrics;
+import com.uber.tchannel.metrics.Metrics;
+import com.uber.tchannel.metrics.MetricsReporter;
+import com.uber.tchannel.metrics.MetricsSnapshot;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricsTest {
+
+    private final CountDownLatch reported = new CountDownLatch(1);
+    private InetAddress host;
+    private TChannel server;
+    private TChannel client;
+
+    @Before
+    public void setUp() throws Exception {
+        host = InetAddress.getByName(null);
+
+        server = new TChannel.Builder("server")
+            .setServerHost(host)
+            .setMetricsEnabled(true)
+            .build();
+        server.makeSubChannel("server")
+            .register("echo", new EchoHandler());
+
+        client = new TChannel.Builder("client")
+            .setServerHost(host)
+            .addMetricsReporter(new MetricsReporter() {
+                @Override
+                public void report(@NotNull MetricsSnapshot snapshot) {
+                    reported.countDown();
+                }
+            }, 10, TimeUnit.MILLISECONDS)
+            .build();
+        client.makeSubChannel("server");
+
+        server.listen();
+        client.listen();
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+        client.shutdown();
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        TChannel channel = new TChannel.Builder("other").build();
+        assertNull(channel.getMetrics());
+        assertNull(channel.getMetricsSnapshot());
+        channel.shutdown();
+    }
+
+    @Test
+    public void testCallsAreRecorded() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            RawResponse response = sendRequest("echo").get();
+            assertEquals(ResponseCode.OK, response.getResponseCode());
+            response.release();
+        }
+        RawResponse response = sendRequest("missing").get();
+        assertEquals(ErrorType.BadRequest, response.getError().getErrorType());
+        response.release();
+
+        MetricsSnapshot clientMetrics = client.getMetricsSnapshot();
+        assertNotNull(clientMetrics);
+        EndpointMetrics.Snapshot echo = clientMetrics.getOutbound("server", "echo");
+        assertNotNull(echo);
+        assertEquals(3, echo.getCalls());
+        assertEquals(3, echo.getLatency().getCount());
+        assertTrue(echo.getErrors().isEmpty());
+        EndpointMetrics.Snapshot missing = clientMetrics.getOutbound("server", "missing");
+        assertNotNull(missing);
+        assertEquals(1L, (long) missing.getErrors().get(ErrorType.BadRequest));
+        assertTrue(clientMetrics.getCounters().get("frames.out") >= 4);
+        assertTrue(clientMetrics.getCounters().get("bytes.in") > 0);
+
+        // the server completes its side as it writes the response, before the client reads it
+        MetricsSnapshot serverMetrics = server.getMetricsSnapshot();
+        assertNotNull(serverMetrics);
+        assertEquals(3, serverMetrics.getInbound("server", "echo").getCalls());
+        assertEquals(
+            1L,
+            (long) serverMetrics.getInbound("server", Metrics.UNKNOWN_ENDPOINT).getErrors().get(ErrorType.BadRequest)
+        );
+
+        assertTrue(reported.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testUnknownServicesShareASeries() throws Exception {
+        for (String service : new String[] {"first", "second"}) {
+            RawRequest request = new RawRequest.Builder(service, "echo")
+                .setTimeout(1000)
+                .build();
+            RawResponse response = client.makeSubChannel(service).send(request, host, server.getListeningPort()).get();
+            assertEquals(ErrorType.BadRequest, response.getError().getErrorType());
+            response.release();
+        }
+
+        MetricsSnapshot serverMetrics = server.getMetricsSnapshot();
+        assertNotNull(serverMetrics);
+        assertNull(serverMetrics.getInbound("first", Metrics.UNKNOWN_ENDPOINT));
+        assertNull(serverMetrics.getInbound("second", Metrics.UNKNOWN_ENDPOINT));
+        assertEquals(
+            2L,
+            (long) serverMetrics.getInbound(Metrics.UNKNOWN_SERVICE, Metrics.UNKNOWN_ENDPOINT)
+                .getErrors().get(ErrorType.BadRequest)
+        );
+    }
+
+    @Test
+    public void testEventLoopsAreRecorded() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            sendRequest("echo").get().release();
+        }
+        assertTrue(reported.await(1, TimeUnit.SECONDS));
+        Thread.sleep(300);
+
+        MetricsSnapshot serverMetrics = server.getMetricsSnapshot();
+        assertNotNull(serverMetrics);
+        assertEquals(3, serverMetrics.getHistograms().get("calls.executor.queue").getCount());
+        assertEquals(3, serverMetrics.getHistograms().get("calls.response.write").getCount());
+        assertEquals(0L, (long) serverMetrics.getCounters().get("connections.unwritable"));
+
+        assertFalse(serverMetrics.getEventLoops().isEmpty());
+        long probes = 0;
+        for (EventLoopMetrics.Snapshot eventLoop : serverMetrics.getEventLoops()) {
+            assertTrue(eventLoop.getPendingTasks() >= 0);
+            probes += eventLoop.getTaskLatency().getCount();
+        }
+        assertTrue(probes > 0);
+    }
+
+    private TFuture<RawResponse> sendRequest(String endpoint) {
+        RawRequest request = new RawRequest.Builder("server", endpoint)
+            .setTimeout(1000)
+            .setBody("hello")
+            .build();
+        return client.getSubChannel("server").send(request, host, server.getListeningPort());
+    }
+
+    private static final class EchoHandler implements RequestHandler {
+
+        @Override
+        public Response handle(Request request) {
+            return new RawResponse.Builder(request)
+                .setArg3(request.getArg3().retain())
+                .build();
+        }
+    }
+}
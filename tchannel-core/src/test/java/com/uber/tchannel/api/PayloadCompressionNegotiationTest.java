@@ -0,0 +1,121 @@
+package com.uber.tchannel.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.channels.Connection;
+import com.uber.tchannel.channels.ConnectionState;
+import com.uber.tchannel.codecs.PayloadCompression;
+import com.uber.tchannel.handlers.MessageFragmenter;
+import com.uber.tchannel.headers.TransportHeaders;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Test;
+
+public class PayloadCompressionNegotiationTest {
+
+    private final AtomicBoolean flagSeen = new AtomicBoolean();
+    private TChannel server;
+    private TChannel client;
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+        client.shutdown();
+    }
+
+    @Test
+    public void testLargeArgsAreCompressedWhenBothSidesAgree() throws Exception {
+        start(true, true);
+
+        String body = largeBody();
+        RawResponse response = sendRequest(body).get();
+        assertEquals(ResponseCode.OK, response.getResponseCode());
+        assertEquals(body, response.getBody());
+        assertNull(response.getTransportHeaders().get(TransportHeaders.COMPRESSION_KEY));
+        response.release();
+
+        assertEquals(PayloadCompression.SNAPPY, clientFragmenter().getCompression());
+        assertFalse(flagSeen.get());
+    }
+
+    @Test
+    public void testNoCompressionWhenThePeerDoesNotOfferIt() throws Exception {
+        start(true, false);
+
+        String body = largeBody();
+        RawResponse response = sendRequest(body).get();
+        assertEquals(body, response.getBody());
+        response.release();
+
+        assertNull(clientFragmenter().getCompression());
+    }
+
+    private void start(boolean serverCompression, boolean clientCompression) throws Exception {
+        InetAddress host = InetAddress.getByName(null);
+
+        TChannel.Builder serverBuilder = new TChannel.Builder("server").setServerHost(host);
+        if (serverCompression) {
+            serverBuilder.setPayloadCompression(PayloadCompression.SNAPPY, 1024);
+        }
+        server = serverBuilder.build();
+        server.makeSubChannel("server").register("echo", new EchoHandler());
+
+        TChannel.Builder clientBuilder = new TChannel.Builder("client").setServerHost(host);
+        if (clientCompression) {
+            clientBuilder.setPayloadCompression(PayloadCompression.SNAPPY, 1024);
+        }
+        client = clientBuilder.build();
+        client.makeSubChannel("server");
+
+        server.listen();
+        client.listen();
+    }
+
+    private TFuture<RawResponse> sendRequest(String body) throws Exception {
+        RawRequest request = new RawRequest.Builder("server", "echo")
+            .setTimeout(1000)
+            .setHeader("")
+            .setBody(body)
+            .build();
+        return client.getSubChannel("server").send(request, InetAddress.getByName(null), server.getListeningPort());
+    }
+
+    private MessageFragmenter clientFragmenter() throws Exception {
+        Connection connection = client.getPeerManager()
+            .getPeer(new InetSocketAddress(InetAddress.getByName(null), server.getListeningPort()))
+            .getConnection(ConnectionState.IDENTIFIED);
+        return connection.channel().pipeline().get(MessageFragmenter.class);
+    }
+
+    private static String largeBody() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 4000; i++) {
+            body.append("{\"name\":\"item-").append(i % 20).append("\"},");
+        }
+        return body.toString();
+    }
+
+    private final class EchoHandler implements RequestHandler {
+
+        @Override
+        public Response handle(Request request) {
+            if (request.getTransportHeaders().containsKey(TransportHeaders.COMPRESSION_KEY)) {
+                flagSeen.set(true);
+            }
+            return new RawResponse.Builder(request)
+                .setTransportHeaders(request.getTransportHeaders())
+                .setArg2(request.getArg2().retain())
+                .setArg3(request.getArg3().retain())
+                .build();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.uber.tchannel.api;
+
+import static org.junit.Assert.assertEquals;
+
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.headers.TransportHeaders;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SubChannelResponseCacheTest {
+
+    private final AtomicInteger handled = new AtomicInteger();
+    private InetAddress host;
+    private TChannel server;
+    private TChannel client;
+    private SubChannel subClient;
+
+    @Before
+    public void setUp() throws Exception {
+        host = InetAddress.getByName(null);
+
+        server = new TChannel.Builder("server")
+            .setServerHost(host)
+            .build();
+        server.makeSubChannel("server")
+            .register("echo", new CountingEchoHandler());
+
+        client = new TChannel.Builder("client")
+            .setServerHost(host)
+            .build();
+        subClient = client.makeSubChannel("server")
+            .enableResponseCache("echo", 1024, 1, TimeUnit.MINUTES);
+
+        server.listen();
+        client.listen();
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+        client.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invariant_ttlNotPositive() {
+        subClient.enableResponseCache("echo", 1024, 0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testRepeatedRequestsAreServedFromCache() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            RawResponse response = sendRequest("same", false).get();
+            assertEquals(ResponseCode.OK, response.getResponseCode());
+            assertEquals("same", response.getBody());
+            response.release();
+        }
+        sendRequest("other", false).get().release();
+
+        assertEquals(2, handled.get());
+        assertEquals(2L, (long) subClient.getResponseCacheStats("echo").get("cache.hits"));
+        assertEquals(2L, (long) subClient.getResponseCacheStats("echo").get("cache.misses"));
+    }
+
+    @Test
+    public void testNoCacheHeaderBypassesCache() throws Exception {
+        sendRequest("same", false).get().release();
+        sendRequest("same", true).get().release();
+        sendRequest("same", false).get().release();
+
+        assertEquals(2, handled.get());
+        assertEquals(1L, (long) subClient.getResponseCacheStats("echo").get("cache.hits"));
+    }
+
+    private TFuture<RawResponse> sendRequest(String body, boolean noCache) {
+        RawRequest.Builder builder = new RawRequest.Builder("server", "echo")
+            .setTimeout(1000)
+            .setBody(body);
+        if (noCache) {
+            builder.setTransportHeader(TransportHeaders.NO_CACHE_KEY, "1");
+        }
+        return subClient.send(builder.build(), host, server.getListeningPort());
+    }
+
+    private final class CountingEchoHandler implements RequestHandler {
+
+        @Override
+        public Response handle(Request request) {
+            handled.incrementAndGet();
+            return new RawResponse.Builder(request)
+                .setArg3(request.getArg3().retain())
+                .build();
+        }
+    }
+}
@@ -23,13 +23,23 @@
 package com.uber.tchannel.api;
 
 import com.uber.tchannel.api.TChannel.Builder;
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.util.concurrent.MultithreadEventExecutorGroup;
 import org.junit.Test;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -92,4 +102,55 @@ public class TChannelBuilderTest {
         assertSame(bossGroup, builder.getBossGroup());
         assertSame(childGroup, builder.getChildGroup());
     }
+
+    @Test
+    public void testThreadPerRequest() throws Exception {
+
+        // more concurrent blocking handlers than there are processors
+        final int concurrency = Runtime.getRuntime().availableProcessors() * 4;
+        final CountDownLatch allStarted = new CountDownLatch(concurrency);
+
+        TChannel tchannel = new Builder("some-service")
+            .setServerHost(InetAddress.getLoopbackAddress())
+            .setThreadPerRequest(true)
+            .build();
+        tchannel.makeSubChannel("some-service").register("block", new RequestHandler() {
+            @Override
+            public Response handle(Request request) {
+                allStarted.countDown();
+                try {
+                    // only completes if every request is being handled at the same time
+                    if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("The requests were not handled concurrently");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+                return new RawResponse.Builder(request).build();
+            }
+        });
+        tchannel.listen();
+
+        try {
+            SubChannel subChannel = tchannel.makeSubChannel("some-service");
+            List<TFuture<RawResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(subChannel.send(
+                    new RawRequest.Builder("some-service", "block").setTimeout(10000).build(),
+                    tchannel.getHost(),
+                    tchannel.getListeningPort()
+                ));
+            }
+
+            for (TFuture<RawResponse> future : futures) {
+                try (RawResponse response = future.get()) {
+                    assertNull(response.getError());
+                }
+            }
+            assertEquals(0, allStarted.getCount());
+        } finally {
+            tchannel.shutdown();
+        }
+    }
 }
@@ -35,6 +35,9 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.times;
@@ -104,6 +107,71 @@ public class CodecUtilsTest {
 
     }
 
+    @Test
+    public void testAppendRemoveHeaders() throws Exception {
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Tracing", "on");
+        headers.put("Host", "foo");
+        Map<String, String> tracingHeaders = new HashMap<>();
+        tracingHeaders.put("$tracing$uber-trace-id", "1:2:3:1");
+        tracingHeaders.put("$tracing$uberctx-x", "y");
+
+        ByteBuf arg2 = ByteBufAllocator.DEFAULT.buffer();
+        CodecUtils.encodeHeaders(headers, arg2);
+        ByteBuf appended = CodecUtils.appendHeaders(arg2, tracingHeaders);
+        Map<String, String> allHeaders = new HashMap<>(headers);
+        allHeaders.putAll(tracingHeaders);
+        assertEquals(allHeaders, CodecUtils.decodeHeaders(appended.duplicate()));
+
+        Map<String, String> removed = new HashMap<>();
+        ByteBuf kept = CodecUtils.removeHeaders(appended, "$tracing$", removed);
+        assertEquals(tracingHeaders, removed);
+        assertEquals(headers, CodecUtils.decodeHeaders(kept.duplicate()));
+
+        removed.clear();
+        assertSame(arg2, CodecUtils.removeHeaders(arg2, "$tracing$", removed));
+        assertTrue(removed.isEmpty());
+
+        appended.release();
+        kept.release();
+        assertEquals(1, arg2.refCnt());
+        arg2.release();
+    }
+
+    @Test
+    public void testAppendHeadersCollision() throws Exception {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("$tracing$uber-trace-id", "1:2:3:1");
+        headers.put("Host", "foo");
+        ByteBuf arg2 = ByteBufAllocator.DEFAULT.buffer();
+        CodecUtils.encodeHeaders(headers, arg2);
+
+        Map<String, String> added = new HashMap<>();
+        added.put("$tracing$uber-trace-id", "4:5:6:1");
+        assertNull(CodecUtils.appendHeaders(arg2, added));
+
+        added.clear();
+        added.put("$tracing$uber-trace", "4:5:6:1");
+        ByteBuf appended = CodecUtils.appendHeaders(arg2, added);
+        assertEquals(3, CodecUtils.decodeHeaders(appended.duplicate()).size());
+        appended.release();
+
+        assertEquals(1, arg2.refCnt());
+        arg2.release();
+    }
+
+    @Test
+    public void testRemoveHeadersMalformed() throws Exception {
+        ByteBuf arg2 = Unpooled.buffer();
+        arg2.writeShort(2);
+        CodecUtils.encodeString("$tracing$x", arg2);
+        CodecUtils.encodeString("1", arg2);
+        arg2.writeShort(4);
+        assertNull(CodecUtils.removeHeaders(arg2, "$tracing$", new HashMap<String, String>()));
+        assertEquals(1, arg2.refCnt());
+    }
+
     @Test
     public void testEncodeDecodeSmallHeaders() throws Exception {
         Map<String, String> headers = new HashMap<>();
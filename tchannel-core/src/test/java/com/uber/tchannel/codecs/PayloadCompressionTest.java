@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.codecs;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PayloadCompressionTest {
+
+    @Test
+    public void testNegotiation() {
+        assertSame(PayloadCompression.SNAPPY, PayloadCompression.toCompression("snappy"));
+        assertNull(PayloadCompression.toCompression("zstd"));
+        assertTrue(PayloadCompression.SNAPPY.isOffered("zstd, snappy"));
+        assertEquals(false, PayloadCompression.SNAPPY.isOffered(null));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        // spans several chunks
+        ByteBuf arg = ByteBufAllocator.DEFAULT.directBuffer();
+        for (int i = 0; i < 5000; i++) {
+            arg.writeBytes(("{\"key\":\"value-" + (i % 50) + "\"}").getBytes(CharsetUtil.UTF_8));
+        }
+
+        ByteBuf compressed = PayloadCompression.SNAPPY.compress(ByteBufAllocator.DEFAULT, arg);
+        assertEquals(0, arg.readerIndex());
+        assertTrue(compressed.readableBytes() < arg.readableBytes() / 4);
+
+        ByteBuf decompressed = PayloadCompression.SNAPPY.decompress(ByteBufAllocator.DEFAULT, compressed);
+        assertEquals(arg, decompressed);
+
+        arg.release();
+        compressed.release();
+        decompressed.release();
+    }
+
+    @Test
+    public void testRoundTripComposite() {
+        CompositeByteBuf arg = Unpooled.compositeBuffer();
+        arg.addComponent(true, Unpooled.copiedBuffer("hello hello hello ", CharsetUtil.UTF_8));
+        arg.addComponent(true, Unpooled.copiedBuffer("world world world", CharsetUtil.UTF_8));
+
+        ByteBuf compressed = PayloadCompression.SNAPPY.compress(ByteBufAllocator.DEFAULT, arg);
+        ByteBuf decompressed = PayloadCompression.SNAPPY.decompress(ByteBufAllocator.DEFAULT, compressed);
+        assertEquals("hello hello hello world world world", decompressed.toString(CharsetUtil.UTF_8));
+
+        arg.release();
+        compressed.release();
+        decompressed.release();
+    }
+
+    @Test
+    public void testEmpty() {
+        ByteBuf compressed = PayloadCompression.SNAPPY.compress(ByteBufAllocator.DEFAULT, Unpooled.EMPTY_BUFFER);
+        assertEquals(0, compressed.readableBytes());
+        ByteBuf decompressed = PayloadCompression.SNAPPY.decompress(ByteBufAllocator.DEFAULT, compressed);
+        assertEquals(0, decompressed.readableBytes());
+        compressed.release();
+        decompressed.release();
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testInvalidChunkLength() {
+        ByteBuf compressed = Unpooled.buffer().writeInt(100).writeByte(1);
+        PayloadCompression.SNAPPY.decompress(ByteBufAllocator.DEFAULT, compressed);
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testDeclaredLengthTooLarge() {
+        // the preamble declares 64 KiB, more than a chunk holds
+        ByteBuf compressed = Unpooled.buffer().writeInt(3).writeByte(0x80).writeByte(0x80).writeByte(0x04);
+        PayloadCompression.SNAPPY.decompress(ByteBufAllocator.DEFAULT, compressed);
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testDeclaredLengthTooSmall() {
+        ByteBuf arg = Unpooled.copiedBuffer("hello hello hello world world world", CharsetUtil.UTF_8);
+        ByteBuf compressed = PayloadCompression.SNAPPY.compress(ByteBufAllocator.DEFAULT, arg);
+        // declare one byte less than the chunk decodes to
+        compressed.setByte(4, compressed.getByte(4) - 1);
+        PayloadCompression.SNAPPY.decompress(ByteBufAllocator.DEFAULT, compressed);
+    }
+}
@@ -0,0 +1,71 @@
+package com.uber.tchannel.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invariant_minLimitLessThanOne() {
+        new AdaptiveConcurrencyLimiter.Builder()
+            .setMinLimit(0)
+            .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invariant_initialLimitAboveMax() {
+        new AdaptiveConcurrencyLimiter.Builder()
+            .setInitialLimit(100)
+            .setMaxLimit(10)
+            .build();
+    }
+
+    @Test
+    public void testRejectsAtLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter.Builder()
+            .setInitialLimit(2)
+            .build();
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1L, (long) limiter.getStats().get("requests.rejected"));
+
+        limiter.release(-1);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testLimitFollowsLatency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter.Builder()
+            .setInitialLimit(20)
+            .setWindowSize(10)
+            .build();
+
+        // Steady latency under full load: the limit grows
+        runWindows(limiter, 20, TimeUnit.MILLISECONDS.toNanos(1));
+        int grown = limiter.getLimit();
+        assertTrue("limit should grow, got " + grown, grown > 20);
+
+        // Latency goes up tenfold: the limit shrinks
+        runWindows(limiter, 20, TimeUnit.MILLISECONDS.toNanos(10));
+        assertTrue("limit should shrink, got " + limiter.getLimit(), limiter.getLimit() < grown);
+        assertTrue(limiter.getLimit() >= 1);
+    }
+
+    private static void runWindows(AdaptiveConcurrencyLimiter limiter, int windows, long latencyNanos) {
+        for (int w = 0; w < windows; w++) {
+            int limit = limiter.getLimit();
+            while (limiter.tryAcquire()) {
+                // fill up to the limit
+            }
+            for (int i = 0; i < limit; i++) {
+                limiter.release(latencyNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.uber.tchannel.handlers;
+
+import static org.junit.Assert.assertEquals;
+
+import com.uber.tchannel.api.ResponseCode;
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.api.TFuture;
+import com.uber.tchannel.errors.ErrorType;
+import com.uber.tchannel.messages.RawResponse;
+import java.util.ArrayList;
+import org.junit.Test;
+
+public class AdaptiveLoadControlHandlerTest {
+
+    @Test
+    public void testReject() throws Exception {
+        try (GatedEchoScenario scenario = newScenario(OverloadPolicy.REJECT)) {
+            ArrayList<TFuture<RawResponse>> futures = new ArrayList<>();
+            futures.add(scenario.sendRequest(0, ""));
+            futures.add(scenario.sendRequest(0, ""));
+            Thread.sleep(100);
+
+            // The third request is over the limit
+            RawResponse rejected = scenario.sendRequest(0, "").get();
+            assertEquals(ErrorType.Busy, rejected.getError().getErrorType());
+            assertEquals(2, scenario.responseGate.getQueueLength());
+
+            scenario.releaseResponses(futures.size());
+            for (TFuture<RawResponse> future : futures) {
+                assertEquals(ResponseCode.OK, future.get().getResponseCode());
+            }
+            assertEquals(0, scenario.server.getConcurrencyLimiter().getInFlight());
+        }
+    }
+
+    @Test
+    public void testPauseReads() throws Exception {
+        try (GatedEchoScenario scenario = newScenario(OverloadPolicy.PAUSE_READS)) {
+            ArrayList<TFuture<RawResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(scenario.sendRequest(0, ""));
+                Thread.sleep(100); // required to avoid write batching
+            }
+
+            // The third request was read (and paused the connection), the fourth one was not
+            assertEquals(3, scenario.responseGate.getQueueLength());
+
+            scenario.releaseResponses(futures.size());
+            for (TFuture<RawResponse> future : futures) {
+                assertEquals(ResponseCode.OK, future.get().getResponseCode());
+            }
+        }
+    }
+
+    private static GatedEchoScenario newScenario(OverloadPolicy policy) throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter.Builder()
+            .setInitialLimit(2)
+            .setMaxLimit(2)
+            .build();
+        return new GatedEchoScenario(new TChannel.Builder("server").setChildAdaptiveLoadControl(limiter, policy), 1);
+    }
+}
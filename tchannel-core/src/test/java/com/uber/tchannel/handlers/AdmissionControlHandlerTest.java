@@ -0,0 +1,95 @@
+package com.uber.tchannel.handlers;
+
+import static org.junit.Assert.assertEquals;
+
+import com.uber.tchannel.api.ResponseCode;
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.api.TFuture;
+import com.uber.tchannel.errors.ErrorType;
+import com.uber.tchannel.messages.RawResponse;
+import java.util.ArrayList;
+import org.junit.Test;
+
+public class AdmissionControlHandlerTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invariant_maxRequestsLessThanOne() {
+        new TChannel.Builder("server")
+            .setChildAdmissionControl(0, 1024, OverloadPolicy.REJECT)
+            .build();
+    }
+
+    @Test
+    public void testRejectAcrossConnections() throws Exception {
+        try (GatedEchoScenario scenario = newScenario(2, 1024 * 1024, OverloadPolicy.REJECT)) {
+            ArrayList<TFuture<RawResponse>> futures = new ArrayList<>();
+            futures.add(scenario.sendRequest(0, ""));
+            futures.add(scenario.sendRequest(0, ""));
+            Thread.sleep(100);
+
+            // The budget is shared: the other connection is over it too
+            RawResponse rejected = scenario.sendRequest(1, "").get();
+            assertEquals(ErrorType.Busy, rejected.getError().getErrorType());
+            assertEquals(2, scenario.responseGate.getQueueLength());
+
+            scenario.releaseResponses(futures.size());
+            for (TFuture<RawResponse> future : futures) {
+                assertEquals(ResponseCode.OK, future.get().getResponseCode());
+            }
+            assertEquals(0L, (long) scenario.server.getAdmissionControlStats().get("requests.inflight"));
+            assertEquals(0L, (long) scenario.server.getAdmissionControlStats().get("bytes.inflight"));
+            assertEquals(1L, (long) scenario.server.getAdmissionControlStats().get("requests.rejected"));
+        }
+    }
+
+    @Test
+    public void testRejectOverByteBudget() throws Exception {
+        String payload = new String(new char[600]).replace('\0', 'x');
+        try (GatedEchoScenario scenario = newScenario(100, 1000, OverloadPolicy.REJECT)) {
+            TFuture<RawResponse> admitted = scenario.sendRequest(0, payload);
+            Thread.sleep(100);
+
+            RawResponse rejected = scenario.sendRequest(1, payload).get();
+            assertEquals(ErrorType.Busy, rejected.getError().getErrorType());
+
+            scenario.releaseResponses(1);
+            assertEquals(ResponseCode.OK, admitted.get().getResponseCode());
+        }
+    }
+
+    @Test
+    public void testPauseReadsAcrossConnections() throws Exception {
+        try (GatedEchoScenario scenario = newScenario(2, 1024 * 1024, OverloadPolicy.PAUSE_READS)) {
+            ArrayList<TFuture<RawResponse>> futures = new ArrayList<>();
+            futures.add(scenario.sendRequest(0, ""));
+            Thread.sleep(100); // required to avoid write batching
+            futures.add(scenario.sendRequest(0, ""));
+            Thread.sleep(100);
+            futures.add(scenario.sendRequest(0, ""));
+            Thread.sleep(100);
+
+            // The budget is used up: the third request is not read
+            assertEquals(2, scenario.responseGate.getQueueLength());
+
+            // A connection opened afterwards gets paused by its first request
+            futures.add(scenario.sendRequest(1, ""));
+            Thread.sleep(100);
+            futures.add(scenario.sendRequest(1, ""));
+            Thread.sleep(100);
+            assertEquals(3, scenario.responseGate.getQueueLength());
+
+            scenario.releaseResponses(futures.size());
+            for (TFuture<RawResponse> future : futures) {
+                assertEquals(ResponseCode.OK, future.get().getResponseCode());
+            }
+            assertEquals(0L, (long) scenario.server.getAdmissionControlStats().get("requests.inflight"));
+        }
+    }
+
+    private static GatedEchoScenario newScenario(int maxRequests, long maxBytes, OverloadPolicy policy)
+        throws Exception {
+        TChannel.Builder serverBuilder = new TChannel.Builder("server")
+            .setChildAdmissionControl(maxRequests, maxBytes, policy);
+        return new GatedEchoScenario(serverBuilder, 2);
+    }
+}
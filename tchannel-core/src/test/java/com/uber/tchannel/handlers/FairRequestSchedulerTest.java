@@ -0,0 +1,207 @@
+package com.uber.tchannel.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.uber.tchannel.api.SubChannel;
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.errors.ErrorType;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Test;
+
+public class FairRequestSchedulerTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invariant_maxConcurrencyLessThanOne() {
+        new FairRequestScheduler.Builder(0);
+    }
+
+    @Test
+    public void testRoundRobinBetweenCallers() {
+        FairRequestScheduler scheduler = new FairRequestScheduler.Builder(1).build();
+        List<String> order = new ArrayList<>();
+
+        // Occupy the only slot, then let "noisy" queue up ahead of "quiet"
+        assertTrue(scheduler.submit(key("noisy"), record(order, "noisy"), MoreExecutors.directExecutor()));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(scheduler.submit(key("noisy"), record(order, "noisy"), MoreExecutors.directExecutor()));
+        }
+        assertTrue(scheduler.submit(key("quiet"), record(order, "quiet"), MoreExecutors.directExecutor()));
+        assertEquals(1, order.size());
+
+        drain(scheduler, order, 4);
+        assertEquals("quiet", order.get(2));
+        assertEquals(0L, (long) scheduler.getStats().get("requests.queued"));
+    }
+
+    @Test
+    public void testWeights() {
+        FairRequestScheduler scheduler = new FairRequestScheduler.Builder(1)
+            .setQuota("heavy", new FairRequestScheduler.Quota.Builder().setWeight(2).build())
+            .build();
+        List<String> order = new ArrayList<>();
+
+        assertTrue(scheduler.submit(key("light"), record(order, "light"), MoreExecutors.directExecutor()));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(scheduler.submit(key("heavy"), record(order, "heavy"), MoreExecutors.directExecutor()));
+            assertTrue(scheduler.submit(key("light"), record(order, "light"), MoreExecutors.directExecutor()));
+        }
+
+        drain(scheduler, order, 8);
+        assertEquals(
+            "[light, light, heavy, heavy, light, heavy, heavy, light, light]",
+            order.toString()
+        );
+    }
+
+    @Test
+    public void testConcurrencyQuota() {
+        FairRequestScheduler scheduler = new FairRequestScheduler.Builder(10)
+            .setDefaultQuota(new FairRequestScheduler.Quota.Builder().setMaxConcurrency(1).build())
+            .build();
+        List<String> order = new ArrayList<>();
+
+        assertTrue(scheduler.submit(key("a"), record(order, "a"), MoreExecutors.directExecutor()));
+        assertTrue(scheduler.submit(key("a"), record(order, "a"), MoreExecutors.directExecutor()));
+        assertTrue(scheduler.submit(key("b"), record(order, "b"), MoreExecutors.directExecutor()));
+        assertEquals("[a, b]", order.toString());
+
+        scheduler.release(key("a"));
+        assertEquals("[a, b, a]", order.toString());
+    }
+
+    @Test
+    public void testRateAndQueueQuota() {
+        FairRequestScheduler scheduler = new FairRequestScheduler.Builder(1)
+            .setQuota("limited", new FairRequestScheduler.Quota.Builder().setMaxRate(2).build())
+            .setQuota("short", new FairRequestScheduler.Quota.Builder().setMaxQueueLength(1).build())
+            .build();
+        List<String> order = new ArrayList<>();
+
+        assertTrue(scheduler.submit(key("limited"), record(order, "limited"), MoreExecutors.directExecutor()));
+        assertTrue(scheduler.submit(key("limited"), record(order, "limited"), MoreExecutors.directExecutor()));
+        assertFalse(scheduler.submit(key("limited"), record(order, "limited"), MoreExecutors.directExecutor()));
+
+        assertTrue(scheduler.submit(key("short"), record(order, "short"), MoreExecutors.directExecutor()));
+        assertFalse(scheduler.submit(key("short"), record(order, "short"), MoreExecutors.directExecutor()));
+        assertEquals(2L, (long) scheduler.getStats().get("requests.rejected"));
+    }
+
+    @Test
+    public void testRejectOverWire() throws Exception {
+        InetAddress host = InetAddress.getByName(null);
+        TChannel server = new TChannel.Builder("server")
+            .setServerHost(host)
+            .setRequestScheduler(new FairRequestScheduler.Builder(4)
+                .setQuota("client", new FairRequestScheduler.Quota.Builder().setMaxRate(1).build())
+                .build())
+            .build();
+        server.makeSubChannel("server").register("echo", new EchoHandler());
+        server.listen();
+
+        TChannel client = new TChannel.Builder("client")
+            .setServerHost(host)
+            .build();
+        SubChannel subClient = client.makeSubChannel("server");
+
+        try {
+            RawResponse first = subClient.send(
+                new RawRequest.Builder("server", "echo").setTimeout(1000).build(),
+                host,
+                server.getListeningPort()
+            ).get();
+            assertNull(first.getError());
+            first.release();
+
+            RawResponse second = subClient.send(
+                new RawRequest.Builder("server", "echo").setTimeout(1000).build(),
+                host,
+                server.getListeningPort()
+            ).get();
+            assertEquals(ErrorType.Busy, second.getError().getErrorType());
+            assertEquals(0L, (long) server.getRequestScheduler().getStats().get("requests.active"));
+        } finally {
+            client.shutdown();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testReleaseHandsOverToTheExecutor() {
+        FairRequestScheduler scheduler = new FairRequestScheduler.Builder(1).build();
+        List<String> order = new ArrayList<>();
+        final List<Runnable> executed = new ArrayList<>();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executed.add(command);
+            }
+        };
+
+        assertTrue(scheduler.submit(key("a"), record(order, "a"), executor));
+        assertTrue(scheduler.submit(key("b"), record(order, "b"), executor));
+        assertEquals("[a]", order.toString());
+
+        // the queued request runs on its executor, not on the stack of the released one
+        scheduler.release(key("a"));
+        assertEquals("[a]", order.toString());
+        assertEquals(1, executed.size());
+        executed.get(0).run();
+        assertEquals("[a, b]", order.toString());
+    }
+
+    @Test
+    public void testPerEndpointKeys() {
+        FairRequestScheduler scheduler = new FairRequestScheduler.Builder(10)
+            .setPerEndpoint(true)
+            .setQuota("a::b", new FairRequestScheduler.Quota.Builder().setMaxQueueLength(0).build())
+            .build();
+        List<String> order = new ArrayList<>();
+
+        // callers and endpoints are not joined into one string: caller "a::b" is not caller "a" on endpoint "b"
+        Executor executor = MoreExecutors.directExecutor();
+        assertTrue(scheduler.submit(new FairRequestScheduler.Key("a", "b"), record(order, "a"), executor));
+        assertFalse(scheduler.submit(new FairRequestScheduler.Key("a::b", "c"), record(order, "a::b"), executor));
+        assertEquals("[a]", order.toString());
+        assertEquals(2L, (long) scheduler.getStats().get("callers"));
+    }
+
+    private static FairRequestScheduler.Key key(String caller) {
+        return new FairRequestScheduler.Key(caller, null);
+    }
+
+    private static Runnable record(final List<String> order, final String key) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(key);
+            }
+        };
+    }
+
+    /** Completes the dispatched requests one by one, in order. */
+    private static void drain(FairRequestScheduler scheduler, List<String> order, int count) {
+        for (int i = 0; i < count; i++) {
+            scheduler.release(key(order.get(i)));
+        }
+    }
+
+    private static final class EchoHandler implements RequestHandler {
+
+        @Override
+        public Response handle(Request request) {
+            return new RawResponse.Builder(request).build();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.handlers;
+
+import com.uber.tchannel.api.SubChannel;
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.api.TFuture;
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A server whose "echo" endpoint holds every response until {@link #releaseResponses} lets it through, and clients
+ * connected to it over a connection each. Used by the load control and request coalescing tests.
+ *
+ * The server runs each handler on a thread of its own, so held responses don't starve the shared executor on hosts
+ * with few cores.
+ */
+final class GatedEchoScenario implements AutoCloseable {
+
+    final Semaphore responseGate = new Semaphore(0);
+    final AtomicInteger handled = new AtomicInteger();
+    final InetAddress host;
+    final TChannel server;
+    final List<SubChannel> subClients = new ArrayList<>();
+    private final List<TChannel> clients = new ArrayList<>();
+
+    /** @param serverBuilder builder of the server, with the load control under test */
+    GatedEchoScenario(TChannel.Builder serverBuilder, int clientCount) throws Exception {
+        host = InetAddress.getByName(null);
+
+        server = serverBuilder
+            .setServerHost(host)
+            .setThreadPerRequest(true)
+            .build();
+        server.makeSubChannel("server")
+            .register("echo", new GatedResponseHandler(responseGate, handled));
+        server.listen();
+
+        for (int i = 0; i < clientCount; i++) {
+            TChannel client = new TChannel.Builder("client" + i)
+                .setServerHost(host)
+                .build();
+            clients.add(client);
+            subClients.add(client.makeSubChannel("server"));
+            client.listen();
+        }
+    }
+
+    void releaseResponses(int amount) {
+        responseGate.release(amount);
+    }
+
+    TFuture<RawResponse> sendRequest(int client, String body) {
+        RawRequest request = new RawRequest.Builder("server", "echo")
+            .setTimeout(1000)
+            .setBody(body)
+            .build();
+        return subClients.get(client).send(request, host, server.getListeningPort());
+    }
+
+    @Override
+    public void close() {
+        // let the handlers still held finish rather than outlive the scenario
+        responseGate.release(Short.MAX_VALUE);
+        server.shutdown();
+        for (TChannel client : clients) {
+            client.shutdown();
+        }
+    }
+
+    private static final class GatedResponseHandler implements RequestHandler {
+
+        private final Semaphore responseGate;
+        private final AtomicInteger handled;
+
+        GatedResponseHandler(Semaphore responseGate, AtomicInteger handled) {
+            this.responseGate = responseGate;
+            this.handled = handled;
+        }
+
+        @Override
+        public Response handle(Request request) {
+            handled.incrementAndGet();
+            try {
+                responseGate.acquire();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            return new RawResponse.Builder(request)
+                .setArg3(request.getArg3().retain())
+                .build();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.uber.tchannel.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.tchannel.api.SubChannel;
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import java.net.InetSocketAddress;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class OutRequestTest {
+
+    private static TChannel tchannel;
+    private static SubChannel subChannel;
+
+    @BeforeClass
+    public static void setUp() {
+        tchannel = new TChannel.Builder("tchannel-name").build();
+        subChannel = new SubChannel("service", tchannel);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        tchannel.shutdown();
+    }
+
+    @Test
+    public void testUsedPeers() {
+        OutRequest<RawResponse> outRequest = createOutRequest();
+        InetSocketAddress first = new InetSocketAddress("127.0.0.1", 8888);
+        InetSocketAddress second = new InetSocketAddress("127.0.0.1", 8889);
+        assertFalse(outRequest.isUsedPeer(first));
+
+        outRequest.setUsedPeer(first);
+        outRequest.setUsedPeer(first);
+        assertTrue(outRequest.isUsedPeer(first));
+        assertFalse(outRequest.isUsedPeer(second));
+
+        outRequest.setUsedPeer(second);
+        assertTrue(outRequest.isUsedPeer(first));
+        assertTrue(outRequest.isUsedPeer(second));
+        outRequest.getRequest().release();
+    }
+
+    @Test
+    public void testRetryCount() {
+        OutRequest<RawResponse> outRequest = createOutRequest();
+        assertTrue(outRequest.shouldRetry());
+        assertEquals(1, outRequest.getRetryCount());
+
+        // no error to retry on
+        assertFalse(outRequest.shouldRetry());
+        assertEquals(2, outRequest.getRetryCount());
+
+        outRequest.disableRetry();
+        assertEquals(1, outRequest.getRetryCount());
+        assertFalse(outRequest.shouldRetry());
+        outRequest.getRequest().release();
+    }
+
+    private static OutRequest<RawResponse> createOutRequest() {
+        RawRequest request = new RawRequest.Builder("service", "endpoint")
+            .setTimeout(100)
+            .build();
+        return new OutRequest<>(subChannel, request, null);
+    }
+}
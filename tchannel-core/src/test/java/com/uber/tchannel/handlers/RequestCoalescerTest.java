@@ -0,0 +1,112 @@
+package com.uber.tchannel.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.uber.tchannel.api.ResponseCode;
+import com.uber.tchannel.api.SubChannel;
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.api.TFuture;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestCoalescerTest {
+
+    private GatedEchoScenario scenario;
+    private SubChannel subClient;
+
+    @Before
+    public void setUp() throws Exception {
+        scenario = new GatedEchoScenario(new TChannel.Builder("server"), 1);
+        subClient = scenario.subClients.get(0)
+            .enableRequestCoalescing("echo");
+    }
+
+    @After
+    public void tearDown() {
+        scenario.close();
+    }
+
+    @Test
+    public void testIdenticalRequestsAreCoalesced() throws Exception {
+        List<TFuture<RawResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(sendRequest("same"));
+        }
+        TFuture<RawResponse> other = sendRequest("other");
+        Thread.sleep(100);
+
+        scenario.releaseResponses(2);
+        for (TFuture<RawResponse> future : futures) {
+            RawResponse response = future.get();
+            assertEquals(ResponseCode.OK, response.getResponseCode());
+            assertEquals("same", response.getBody());
+            response.release();
+        }
+        RawResponse response = other.get();
+        assertEquals("other", response.getBody());
+        response.release();
+
+        assertEquals(2, scenario.handled.get());
+        assertEquals(2L, (long) subClient.getRequestCoalescingStats().get("requests.sent"));
+        assertEquals(4L, (long) subClient.getRequestCoalescingStats().get("requests.coalesced"));
+        assertEquals(0L, (long) subClient.getRequestCoalescingStats().get("requests.inflight"));
+    }
+
+    @Test
+    public void testLaterRequestsAreSent() throws Exception {
+        scenario.releaseResponses(2);
+        sendRequest("same").get().release();
+        sendRequest("same").get().release();
+
+        assertEquals(2, scenario.handled.get());
+        assertEquals(0L, (long) subClient.getRequestCoalescingStats().get("requests.coalesced"));
+    }
+
+    @Test
+    public void testFailedSendFailsTheFlight() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        coalescer.enable("echo");
+        final List<TFuture<RawResponse>> joined = new ArrayList<>();
+        final RuntimeException failure = new IllegalStateException("cannot send");
+
+        RawRequest request = new RawRequest.Builder("server", "echo").setBody("same").build();
+        try {
+            coalescer.send(request, scenario.host, 0, null, new RequestCoalescer.Sender() {
+                @Override
+                public <V extends Response> TFuture<V> send(Request request) {
+                    // an identical request joins the flight while the first one is being sent
+                    RawRequest other = new RawRequest.Builder("server", "echo").setBody("same").build();
+                    joined.add(coalescer.<RawResponse>send(other, scenario.host, 0, null, this));
+                    request.release();
+                    throw failure;
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+
+        assertEquals(1, joined.size());
+        try {
+            joined.get(0).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(0L, (long) coalescer.getStats().get("requests.inflight"));
+    }
+
+    private TFuture<RawResponse> sendRequest(String body) {
+        return scenario.sendRequest(0, body);
+    }
+}
@@ -2,10 +2,13 @@ package com.uber.tchannel.handlers;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.uber.tchannel.api.EndpointOptions;
 import com.uber.tchannel.api.SubChannel;
 import com.uber.tchannel.api.TChannel;
 import com.uber.tchannel.api.TFuture;
 import com.uber.tchannel.api.handlers.AsyncRequestHandler;
+import com.uber.tchannel.api.handlers.InlineRequestHandler;
+import com.uber.tchannel.api.handlers.RequestHandler;
 import com.uber.tchannel.errors.BadRequestError;
 import com.uber.tchannel.errors.BusyError;
 import com.uber.tchannel.errors.ErrorType;
@@ -17,10 +20,16 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.StringContains.containsString;
 import static org.junit.Assert.assertThat;
 
 public class RequestRouterTest {
@@ -31,16 +40,34 @@ public class RequestRouterTest {
 
     private static ThrowingAsyncHandler handler;
 
+    private static InlineHandler inlineHandler;
+
+    private static GatedHandler gatedHandler;
+
     @BeforeClass
     public static void setUp() throws Exception {
         handler = new ThrowingAsyncHandler();
+        inlineHandler = new InlineHandler();
+        gatedHandler = new GatedHandler();
+        ExecutorService rejectingExecutor = Executors.newSingleThreadExecutor();
+        rejectingExecutor.shutdown();
 
         tchannel = new TChannel.Builder("tchannel-name")
             .setServerHost(InetAddress.getByName(null))
             .build();
 
         subChannel = tchannel.makeSubChannel("service")
-            .register("endpoint", handler);
+            .register("endpoint", handler)
+            .register("inline", inlineHandler)
+            .register("bulkhead", gatedHandler, new EndpointOptions.Builder()
+                .setMaxConcurrency(1)
+                .setMaxQueueLength(0)
+                .build())
+            .register("rejecting", new EchoHandler(), new EndpointOptions.Builder()
+                .setExecutorService(rejectingExecutor)
+                .setMaxConcurrency(1)
+                .setMaxQueueLength(0)
+                .build());
 
         tchannel.listen();
     }
@@ -146,6 +173,107 @@ public class RequestRouterTest {
         );
     }
 
+    @Test
+    public void inlineHandlerRunsOnEventLoop() throws Exception {
+        inlineHandler.setError(null);
+
+        RawRequest req = new RawRequest.Builder("service", "inline").build();
+
+        RawResponse response = subChannel.send(
+            req,
+            tchannel.getHost(),
+            tchannel.getListeningPort()
+        ).get();
+
+        assertThat(
+            "Inline handler must produce a regular response",
+            response.getError(),
+            nullValue()
+        );
+
+        assertThat(
+            "Inline handler must be called on the channel's event loop",
+            inlineHandler.getThreadName(),
+            containsString("child-group")
+        );
+    }
+
+    @Test
+    public void inlineHandlerPropagatesErrorCode() throws Exception {
+        inlineHandler.setError(new RuntimeException(new BusyError("inline busy", null, 0)));
+
+        RawRequest req = new RawRequest.Builder("service", "inline").build();
+
+        RawResponse response = subChannel.send(
+            req,
+            tchannel.getHost(),
+            tchannel.getListeningPort()
+        ).get();
+
+        assertThat(
+            "ProtocolError must be mapped to its ErrorType",
+            response.getError().getErrorType(),
+            equalTo(ErrorType.Busy)
+        );
+
+        assertThat(
+            "ProtocolError must be mapped to its message",
+            response.getError().getMessage(),
+            equalTo("inline busy")
+        );
+    }
+
+    @Test
+    public void bulkheadRejectsWhenFull() throws Exception {
+        RawRequest first = new RawRequest.Builder("service", "bulkhead").build();
+        TFuture<RawResponse> firstFuture = subChannel.send(
+            first,
+            tchannel.getHost(),
+            tchannel.getListeningPort()
+        );
+        assertThat(gatedHandler.entered.await(5, TimeUnit.SECONDS), equalTo(true));
+
+        RawRequest second = new RawRequest.Builder("service", "bulkhead").build();
+        RawResponse rejected = subChannel.send(
+            second,
+            tchannel.getHost(),
+            tchannel.getListeningPort()
+        ).get();
+
+        assertThat(
+            "A full bulkhead must reject with ErrorType.Busy",
+            rejected.getError().getErrorType(),
+            equalTo(ErrorType.Busy)
+        );
+        assertThat(subChannel.getEndpointStats("bulkhead").get("requests.active"), equalTo(1L));
+        assertThat(subChannel.getEndpointStats("bulkhead").get("requests.rejected"), equalTo(1L));
+
+        gatedHandler.gate.countDown();
+        RawResponse response = firstFuture.get();
+        assertThat(response.getError(), nullValue());
+        response.release();
+    }
+
+    @Test
+    public void bulkheadReleasesWhenTheExecutorRejects() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            RawRequest req = new RawRequest.Builder("service", "rejecting").build();
+            RawResponse response = subChannel.send(
+                req,
+                tchannel.getHost(),
+                tchannel.getListeningPort()
+            ).get();
+
+            assertThat(
+                "A rejected task must result in an error",
+                response.getError().getErrorType(),
+                equalTo(ErrorType.UnexpectedError)
+            );
+        }
+        assertThat(subChannel.getEndpointStats("rejecting").get("requests.active"), equalTo(0L));
+        assertThat(subChannel.getEndpointStats("rejecting").get("requests.rejected"), equalTo(0L));
+    }
+
     private static class ThrowingAsyncHandler implements AsyncRequestHandler {
 
         private Throwable throwable;
@@ -164,4 +292,52 @@ public class RequestRouterTest {
             this.throwable = throwable;
         }
     }
+
+    private static class InlineHandler implements InlineRequestHandler {
+
+        private volatile RuntimeException error;
+        private volatile String threadName;
+
+        @Override
+        public Response handle(Request request) {
+            threadName = Thread.currentThread().getName();
+            if (error != null) {
+                throw error;
+            }
+            return new RawResponse.Builder(request).build();
+        }
+
+        public void setError(RuntimeException error) {
+            this.error = error;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+    }
+
+    private static class EchoHandler implements RequestHandler {
+
+        @Override
+        public Response handle(Request request) {
+            return new RawResponse.Builder(request).build();
+        }
+    }
+
+    private static class GatedHandler implements RequestHandler {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch gate = new CountDownLatch(1);
+
+        @Override
+        public Response handle(Request request) {
+            entered.countDown();
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new RawResponse.Builder(request).build();
+        }
+    }
 }
@@ -0,0 +1,161 @@
+package com.uber.tchannel.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.uber.tchannel.api.EndpointOptions;
+import com.uber.tchannel.api.ResponseCode;
+import com.uber.tchannel.messages.JsonRequest;
+import com.uber.tchannel.messages.JsonResponse;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import io.netty.util.CharsetUtil;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ResponseCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invariant_cacheMaxBytesNegative() {
+        new EndpointOptions.Builder()
+            .setResponseCache(-1, 1, TimeUnit.SECONDS)
+            .build();
+    }
+
+    @Test
+    public void testHitAfterFill() {
+        ResponseCache cache = newCache(1024, 1, TimeUnit.MINUTES);
+
+        Request request = newRequest("key", "value");
+        assertNull(cache.get(request));
+        cache.miss(request).fill(newResponse(request, "cached"));
+        request.release();
+
+        request = newRequest("key", "value");
+        request.setId(42);
+        Response response = cache.get(request);
+        assertNotNull(response);
+        assertEquals(42, response.getId());
+        assertEquals(ResponseCode.OK, response.getResponseCode());
+        assertEquals("cached", response.getArg3().toString(CharsetUtil.UTF_8));
+        response.release();
+
+        // arg2 and arg3 are compared separately
+        assertNull(cache.get(newRequest("keyv", "alue")));
+        assertEquals(1L, (long) cache.getStats().get("cache.hits"));
+        assertEquals(2L, (long) cache.getStats().get("cache.misses"));
+
+        cache.clear();
+        assertEquals(0L, (long) cache.getStats().get("cache.bytes"));
+    }
+
+    @Test
+    public void testTracingHeadersAreNotKeys() {
+        ResponseCache cache = newCache(1024, 1, TimeUnit.MINUTES);
+
+        JsonRequest<String> request = newJsonRequest("1:2:3:1");
+        cache.miss(request).fill(new JsonResponse.Builder<String>(request).setBody("cached").build());
+        request.release();
+
+        request = newJsonRequest("4:5:6:1");
+        Response response = cache.get(request);
+        assertNotNull(response);
+        response.release();
+        // the request still has its tracing headers, for the handler to extract
+        assertEquals("4:5:6:1", request.getHeader("$tracing$uber-trace-id"));
+        request.release();
+    }
+
+    @Test
+    public void testFillAfterClear() {
+        ResponseCache cache = newCache(1024, 1, TimeUnit.MINUTES);
+
+        Request request = newRequest("key", "value");
+        ResponseCache.Miss miss = cache.miss(request);
+        cache.clear();
+        miss.fill(newResponse(request, "cached"));
+
+        assertNull(cache.get(request));
+        assertEquals(0L, (long) cache.getStats().get("cache.entries"));
+        assertEquals(0L, (long) cache.getStats().get("cache.bytes"));
+        request.release();
+    }
+
+    @Test
+    public void testErrorsAreNotCached() {
+        ResponseCache cache = newCache(1024, 1, TimeUnit.MINUTES);
+
+        Request request = newRequest("key", "value");
+        cache.miss(request).fill(new RawResponse.Builder(request)
+            .setResponseCode(ResponseCode.Error)
+            .setBody("error")
+            .build());
+
+        assertNull(cache.get(request));
+        assertEquals(0L, (long) cache.getStats().get("cache.entries"));
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        ResponseCache cache = newCache(1024, 10, TimeUnit.MILLISECONDS);
+
+        Request request = newRequest("key", "value");
+        cache.miss(request).fill(newResponse(request, "cached"));
+        Thread.sleep(50);
+
+        assertNull(cache.get(request));
+        assertEquals(0L, (long) cache.getStats().get("cache.bytes"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        // room for two entries of 10 bytes each
+        ResponseCache cache = newCache(20, 1, TimeUnit.MINUTES);
+
+        Request first = newRequest("a", "1");
+        Request second = newRequest("b", "2");
+        Request third = newRequest("c", "3");
+        cache.miss(first).fill(newResponse(first, "12345678"));
+        cache.miss(second).fill(newResponse(second, "12345678"));
+        cache.get(first).release();
+        cache.miss(third).fill(newResponse(third, "12345678"));
+
+        Response response = cache.get(first);
+        assertNotNull(response);
+        response.release();
+        assertNull(cache.get(second));
+        assertEquals(1L, (long) cache.getStats().get("cache.evictions"));
+        assertEquals(20L, (long) cache.getStats().get("cache.bytes"));
+    }
+
+    private static ResponseCache newCache(long maxBytes, long ttl, TimeUnit unit) {
+        return new ResponseCache(new EndpointOptions.Builder()
+            .setResponseCache(maxBytes, ttl, unit)
+            .build());
+    }
+
+    private static Request newRequest(String header, String body) {
+        return new RawRequest.Builder("service", "endpoint")
+            .setHeader(header)
+            .setBody(body)
+            .build();
+    }
+
+    private static JsonRequest<String> newJsonRequest(String traceId) {
+        return new JsonRequest.Builder<String>("service", "endpoint")
+            .setHeader("key", "value")
+            .setHeader("$tracing$uber-trace-id", traceId)
+            .setBody("body")
+            .build();
+    }
+
+    private static Response newResponse(Request request, String body) {
+        return new RawResponse.Builder(request)
+            .setHeader("")
+            .setBody(body)
+            .build();
+    }
+}
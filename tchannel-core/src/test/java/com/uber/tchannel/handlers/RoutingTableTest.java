@@ -0,0 +1,94 @@
+package com.uber.tchannel.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.uber.tchannel.api.EndpointOptions;
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import com.uber.tchannel.messages.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+public class RoutingTableTest {
+
+    @Test
+    public void testLookup() {
+        RoutingTable.Builder builder = new RoutingTable.Builder();
+        RequestHandler[] handlers = new RequestHandler[100];
+        for (int i = 0; i < handlers.length; i++) {
+            handlers[i] = new EchoHandler();
+            builder.add("service", "endpoint" + i, handlers[i], null, null, Serializer.getDefault());
+        }
+        RoutingTable table = builder.build();
+
+        for (int i = 0; i < handlers.length; i++) {
+            RoutingTable.Route route = table.lookup("service", bytes("endpoint" + i));
+            assertSame(handlers[i], route.getHandler());
+            assertEquals("endpoint" + i, route.getEndpoint());
+        }
+
+        assertNull(table.lookup("service", bytes("endpoint100")));
+        assertNull(table.lookup("service", bytes("endpoint")));
+        assertNull(table.lookup("other", bytes("endpoint0")));
+        assertNull(RoutingTable.EMPTY.lookup("service", bytes("endpoint0")));
+    }
+
+    @Test
+    public void testLookupLeavesReaderIndex() {
+        RequestHandler handler = new EchoHandler();
+        RoutingTable table = new RoutingTable.Builder()
+            .add("service", "Meta::health", handler, null, null, Serializer.getDefault())
+            .build();
+
+        ByteBuf arg1 = Unpooled.buffer();
+        arg1.writeBytes("xxMeta::health".getBytes(CharsetUtil.UTF_8));
+        arg1.skipBytes(2);
+
+        assertSame(handler, table.lookup("service", arg1).getHandler());
+        assertEquals(2, arg1.readerIndex());
+    }
+
+    @Test
+    public void testPublishedOnRegister() {
+        TChannel tchannel = new TChannel.Builder("tchannel-name").build();
+        try {
+            RequestHandler first = new EchoHandler();
+            RequestHandler second = new EchoHandler();
+            tchannel.makeSubChannel("service")
+                .register("first", first)
+                .register("second", second, new EndpointOptions.Builder().setMaxConcurrency(1).build());
+
+            RoutingTable.Route route = tchannel.getRoutingTable().lookup("service", bytes("first"));
+            assertSame(first, route.getHandler());
+            assertNull(route.getBulkhead());
+
+            route = tchannel.getRoutingTable().lookup("service", bytes("second"));
+            assertSame(second, route.getHandler());
+            assertSame(
+                tchannel.getSubChannel("service").getEndpointBulkhead("second"),
+                route.getBulkhead()
+            );
+        } finally {
+            tchannel.shutdown();
+        }
+    }
+
+    private static ByteBuf bytes(String value) {
+        return Unpooled.wrappedBuffer(value.getBytes(CharsetUtil.UTF_8));
+    }
+
+    private static final class EchoHandler implements RequestHandler {
+
+        @Override
+        public Response handle(Request request) {
+            return new RawResponse.Builder(request).build();
+        }
+    }
+}
@@ -23,14 +23,18 @@ package com.uber.tchannel.handlers;
 
 import com.uber.tchannel.Fixtures;
 import com.uber.tchannel.codecs.MessageCodec;
+import com.uber.tchannel.codecs.PayloadCompression;
 import com.uber.tchannel.codecs.TFrame;
+import com.uber.tchannel.errors.ErrorType;
 import com.uber.tchannel.frames.CallFrame;
 import com.uber.tchannel.frames.CallRequestContinueFrame;
 import com.uber.tchannel.frames.CallRequestFrame;
 import com.uber.tchannel.frames.CallResponseContinueFrame;
 import com.uber.tchannel.frames.CallResponseFrame;
+import com.uber.tchannel.frames.ErrorFrame;
 import com.uber.tchannel.headers.ArgScheme;
 import com.uber.tchannel.headers.TransportHeaders;
+import com.uber.tchannel.messages.ErrorResponse;
 import com.uber.tchannel.messages.RawMessage;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
@@ -363,4 +367,100 @@ public class TestMessageMultiplexer {
         assertNull(channel.readInbound());
 
     }
+
+    @Test
+    public void testUndecompressableResponseFailsTheRequest() {
+
+        MessageDefragmenter mux = new MessageDefragmenter();
+        EmbeddedChannel channel = new EmbeddedChannel(mux);
+        long id = 42;
+
+        CallResponseFrame callResponseFrame = Fixtures.callResponse(id,
+            false,
+            new HashMap<String, String>() {{
+                put(TransportHeaders.ARG_SCHEME_KEY, ArgScheme.RAW.getScheme());
+                put(TransportHeaders.COMPRESSION_KEY, PayloadCompression.SNAPPY.getName());
+            }},
+            Unpooled.wrappedBuffer(
+                // arg1 size
+                new byte[]{0x00, 0x00},
+                // arg2: a chunk that declares 64 KiB once decompressed
+                new byte[]{0x00, 0x07, 0x00, 0x00, 0x00, 0x03, (byte) 0x80, (byte) 0x80, 0x04},
+                // arg3 size
+                new byte[]{0x00, 0x00}
+            ));
+
+        channel.writeInbound(
+            MessageCodec.encode(
+                MessageCodec.encode(callResponseFrame)
+            )
+        );
+
+        ErrorResponse error = channel.readInbound();
+        assertNotNull(error);
+        assertEquals(id, error.getId());
+        assertEquals(ErrorType.FatalProtocolError, error.getErrorType());
+        assertEquals(0, callResponseFrame.refCnt());
+        assertNull(channel.readInbound());
+    }
+
+    @Test
+    public void testUnknownThriftProtocolRequestIsRejected() throws Exception {
+
+        MessageDefragmenter mux = new MessageDefragmenter();
+        EmbeddedChannel channel = new EmbeddedChannel(mux);
+        long id = 42;
+
+        CallRequestFrame callRequestFrame = Fixtures.callRequest(id,
+            false,
+            new HashMap<String, String>() {{
+                put(TransportHeaders.ARG_SCHEME_KEY, ArgScheme.THRIFT.getScheme());
+                put(TransportHeaders.THRIFT_PROTOCOL_KEY, "json");
+            }},
+            Unpooled.wrappedBuffer(new byte[]{0x00, 0x00, 0x00, 0x00, 0x00, 0x00}));
+
+        channel.writeInbound(
+            MessageCodec.encode(
+                MessageCodec.encode(callRequestFrame)
+            )
+        );
+
+        assertNull(channel.readInbound());
+        assertEquals(0, callRequestFrame.refCnt());
+
+        ByteBuf buf = channel.readOutbound();
+        ErrorFrame error = (ErrorFrame) MessageCodec.decode(MessageCodec.decode(buf));
+        assertEquals(id, error.getId());
+        assertEquals(ErrorType.BadRequest, error.getErrorType());
+        assertEquals("Thrift protocol unsupported: json", error.getMessage());
+    }
+
+    @Test
+    public void testUnknownThriftProtocolResponseFailsTheRequest() {
+
+        MessageDefragmenter mux = new MessageDefragmenter();
+        EmbeddedChannel channel = new EmbeddedChannel(mux);
+        long id = 42;
+
+        CallResponseFrame callResponseFrame = Fixtures.callResponse(id,
+            false,
+            new HashMap<String, String>() {{
+                put(TransportHeaders.ARG_SCHEME_KEY, ArgScheme.THRIFT.getScheme());
+                put(TransportHeaders.THRIFT_PROTOCOL_KEY, "json");
+            }},
+            Unpooled.wrappedBuffer(new byte[]{0x00, 0x00, 0x00, 0x00, 0x00, 0x00}));
+
+        channel.writeInbound(
+            MessageCodec.encode(
+                MessageCodec.encode(callResponseFrame)
+            )
+        );
+
+        ErrorResponse error = channel.readInbound();
+        assertNotNull(error);
+        assertEquals(id, error.getId());
+        assertEquals(ErrorType.FatalProtocolError, error.getErrorType());
+        assertEquals(0, callResponseFrame.refCnt());
+        assertNull(channel.readInbound());
+    }
 }
@@ -22,7 +22,11 @@
 
 package com.uber.tchannel.messages;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.util.CharsetUtil;
 import org.junit.After;
@@ -32,7 +36,12 @@ import org.junit.Test;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class JSONSerializerTest {
 
@@ -66,6 +75,8 @@ public class JSONSerializerTest {
         Map<String, String> emptyHeaders = new HashMap<>();
         Map<String, String> decodedHeaders = serializer.decodeHeaders(Unpooled.EMPTY_BUFFER);
         assertEquals(emptyHeaders, decodedHeaders);
+        decodedHeaders = serializer.decodeHeaders(Unpooled.copiedBuffer("\"\"", CharsetUtil.UTF_8));
+        assertEquals(emptyHeaders, decodedHeaders);
     }
 
     @Test
@@ -80,10 +91,197 @@ public class JSONSerializerTest {
     @Test
     public void testEncodeDecodeBody() throws Exception {
 
+        Body body = new Body("h\u00e9llo", 42);
+        ByteBuf encodedBody = serializer.encodeBody(body);
+        assertEquals("{\"name\":\"h\u00e9llo\",\"count\":42}", encodedBody.toString(CharsetUtil.UTF_8));
+
+        Body decodedBody = serializer.decodeBody(encodedBody, Body.class);
+        assertEquals(body.name, decodedBody.name);
+        assertEquals(body.count, decodedBody.count);
+        // decoding leaves the arg readable
+        assertEquals(0, encodedBody.readerIndex());
+        encodedBody.release();
+    }
+
+    @Test
+    public void testDecodeCompositeBody() throws Exception {
+
+        byte[] json = "{\"name\":\"split\",\"count\":7}".getBytes(CharsetUtil.UTF_8);
+        CompositeByteBuf arg3 = Unpooled.compositeBuffer();
+        arg3.addComponent(true, Unpooled.wrappedBuffer(json, 0, 10));
+        arg3.addComponent(true, Unpooled.directBuffer().writeBytes(json, 10, json.length - 10));
+
+        Body decodedBody = serializer.decodeBody(arg3, Body.class);
+        assertEquals("split", decodedBody.name);
+        assertEquals(7, decodedBody.count);
+        arg3.release();
+    }
+
+    @Test
+    public void testDecodeBlankBody() throws Exception {
+        assertNull(serializer.decodeBody(Unpooled.EMPTY_BUFFER, Body.class));
+        assertNull(serializer.decodeBody(Unpooled.copiedBuffer("  ", CharsetUtil.UTF_8), Body.class));
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testDecodeTrailingGarbage() throws Exception {
+        serializer.decodeBody(Unpooled.copiedBuffer("{} {}", CharsetUtil.UTF_8), Body.class);
+    }
+
+    @Test
+    public void testAppendHeaders() throws Exception {
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("foo", "bar");
+        Map<String, String> added = new HashMap<>();
+        added.put("$tracing$uber-trace-id", "a\"b");
+
+        ByteBuf arg2 = serializer.encodeHeaders(headers);
+        ByteBuf appended = ((JSONSerializer) serializer).appendHeaders(arg2, added);
+        assertEquals("{\"foo\":\"bar\",\"$tracing$uber-trace-id\":\"a\\\"b\"}", appended.toString(CharsetUtil.UTF_8));
+        appended.release();
+
+        ByteBuf empty = Unpooled.copiedBuffer(" {} ", CharsetUtil.UTF_8);
+        appended = ((JSONSerializer) serializer).appendHeaders(empty, added);
+        headers.putAll(added);
+        headers.remove("foo");
+        assertEquals(headers, serializer.decodeHeaders(appended));
+        appended.release();
+
+        ByteBuf emptyString = Unpooled.copiedBuffer("\"\"", CharsetUtil.UTF_8);
+        assertNull(((JSONSerializer) serializer).appendHeaders(emptyString, added));
+        assertEquals(1, arg2.refCnt());
+        arg2.release();
+    }
+
+    @Test
+    public void testAppendHeadersCollision() throws Exception {
+        Map<String, String> added = new HashMap<>();
+        added.put("$tracing$uber-trace-id", "4:5:6:1");
+
+        ByteBuf arg2 = Unpooled.copiedBuffer(
+            "{\"foo\":\"bar\",\"$tracing$uber-trace-id\":\"1:2:3:1\"}", CharsetUtil.UTF_8);
+        assertNull(((JSONSerializer) serializer).appendHeaders(arg2, added));
+
+        ByteBuf escaped = Unpooled.copiedBuffer("{\"f\\u006fo\":\"bar\"}", CharsetUtil.UTF_8);
+        assertNull(((JSONSerializer) serializer).appendHeaders(escaped, added));
+
+        ByteBuf other = Unpooled.copiedBuffer("{\"$tracing$uber-trace\":\"1:2:3:1\"}", CharsetUtil.UTF_8);
+        ByteBuf appended = ((JSONSerializer) serializer).appendHeaders(other, added);
+        assertEquals(2, serializer.decodeHeaders(appended).size());
+        appended.release();
+
+        assertEquals(1, arg2.refCnt());
+        arg2.release();
+        escaped.release();
+        other.release();
+    }
+
+    @Test
+    public void testRemoveHeaders() throws Exception {
+
+        JSONSerializer jsonSerializer = (JSONSerializer) serializer;
+        ByteBuf arg2 = Unpooled.copiedBuffer(
+            "{\"a\":\"1\", \"$tracing$x\" : \"2\",\"b\":\"3\",\"c\":\"4\",\"$tracing$y\":\"\\u00e9\"}",
+            CharsetUtil.UTF_8
+        );
+        Map<String, String> removed = new HashMap<>();
+        ByteBuf kept = jsonSerializer.removeHeaders(arg2, "$tracing$", removed);
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("$tracing$x", "2");
+        expected.put("$tracing$y", "\u00e9");
+        assertEquals(expected, removed);
+        assertEquals("{\"a\":\"1\",\"b\":\"3\",\"c\":\"4\"}", kept.toString(CharsetUtil.UTF_8));
+        kept.release();
+
+        removed.clear();
+        ByteBuf onlyTracing = Unpooled.copiedBuffer("{\"$tracing$x\":\"2\"}", CharsetUtil.UTF_8);
+        kept = jsonSerializer.removeHeaders(onlyTracing, "$tracing$", removed);
+        assertEquals("{}", kept.toString(CharsetUtil.UTF_8));
+        kept.release();
+
+        // nothing to remove, or not spliceable
+        removed.clear();
+        ByteBuf noTracing = serializer.encodeHeaders(new HashMap<String, String>());
+        assertSame(noTracing, jsonSerializer.removeHeaders(noTracing, "$tracing$", removed));
+        assertNull(jsonSerializer.removeHeaders(Unpooled.copiedBuffer("{\"a\":1}", CharsetUtil.UTF_8), "$", removed));
+        ByteBuf unterminated = Unpooled.copiedBuffer("{\"a\":\"1\"", CharsetUtil.UTF_8);
+        assertNull(jsonSerializer.removeHeaders(unterminated, "$", removed));
+
+        assertEquals(1, arg2.refCnt());
+        arg2.release();
+        onlyTracing.release();
+        noTracing.release();
+    }
+
+    @Test
+    public void testOverrideDirectBufferPreferred() throws Exception {
+        System.setProperty("com.uber.tchannel.thrift_serializer.noPreferDirect", "true");
+        try {
+            ThriftSerializer.init();
+            ByteBuf encodedHeaders = serializer.encodeHeaders(new HashMap<String, String>());
+            assertTrue(encodedHeaders.hasArray());
+            assertFalse(encodedHeaders.isDirect());
+            encodedHeaders.release();
+
+            ByteBuf encodedBody = serializer.encodeBody(new Body("hello", 1));
+            assertFalse(encodedBody.isDirect());
+            encodedBody.release();
+        } finally {
+            System.clearProperty("com.uber.tchannel.thrift_serializer.noPreferDirect");
+            ThriftSerializer.init();
+        }
+    }
+
+    @Test
+    public void testEncodeLargeBodies() throws Exception {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            name.append("h\u00e9llo ");
+        }
+        // a body larger than the builder kept by the thread, and a small one after it
+        for (Body body : new Body[] {new Body(name.toString(), 1), new Body("h\u00e9llo", 2)}) {
+            ByteBuf encodedBody = serializer.encodeBody(body);
+            Body decodedBody = serializer.decodeBody(encodedBody, Body.class);
+            assertEquals(body.name, decodedBody.name);
+            assertEquals(body.count, decodedBody.count);
+            encodedBody.release();
+        }
+    }
+
+    @Test
+    public void testEncodeExactLength() throws Exception {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            name.append("hello ");
+        }
+        // ASCII, 2, 3 and 4 byte chars, and unpaired surrogates
+        String[] names = {name.toString(), "h\u00e9llo \u20ac \ud83d\ude00", "a\ud800b\udc00c\ud83d"};
+        for (String value : names) {
+            Body body = new Body(value, 1);
+            byte[] expected = new Gson().toJson(body).getBytes(CharsetUtil.UTF_8);
+            ByteBuf encodedBody = serializer.encodeBody(body);
+            assertArrayEquals(expected, ByteBufUtil.getBytes(encodedBody));
+            // sized for the encoded bytes, not for 3 bytes per char
+            assertTrue(encodedBody.capacity() < 2 * expected.length);
+            encodedBody.release();
+        }
     }
 
     @After
     public void tearDown() throws Exception {
         this.serializer = null;
     }
+
+    private static final class Body {
+
+        private final String name;
+        private final int count;
+
+        Body(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+    }
 }
@@ -309,6 +309,30 @@ public class RequestFormatTest {
         assertEquals(req1.getArg3(), req2.getArg3());
     }
 
+    @Test
+    public void testAppendHeadersOverwrites() throws Exception {
+        Map<String, String> added = new HashMap<>();
+        added.put("$tracing$uber-trace-id", "4:5:6:1");
+
+        ThriftRequest<Example> thriftRequest = new ThriftRequest.Builder<Example>("keyvalue-service", "KeyValue::get")
+            .setHeader("$tracing$uber-trace-id", "1:2:3:1")
+            .setHeader("foo", "bar")
+            .build();
+        thriftRequest.appendHeaders(added);
+        assertEquals("4:5:6:1", thriftRequest.getHeaders().get("$tracing$uber-trace-id"));
+        assertEquals(2, thriftRequest.getHeaders().size());
+        thriftRequest.release();
+
+        JsonRequest<Example> jsonRequest = new JsonRequest.Builder<Example>("keyvalue-service", "KeyValue::get")
+            .setHeader("$tracing$uber-trace-id", "1:2:3:1")
+            .setHeader("foo", "bar")
+            .build();
+        jsonRequest.appendHeaders(added);
+        assertEquals("4:5:6:1", jsonRequest.getHeaders().get("$tracing$uber-trace-id"));
+        assertEquals(2, jsonRequest.getHeaders().size());
+        jsonRequest.release();
+    }
+
     public static class NonSerializable extends Example {
 
         @Override
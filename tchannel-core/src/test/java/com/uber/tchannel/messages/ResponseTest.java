@@ -1,6 +1,8 @@
 package com.uber.tchannel.messages;
 
 import com.uber.tchannel.api.ResponseCode;
+import com.uber.tchannel.headers.ThriftProtocol;
+import com.uber.tchannel.headers.TransportHeaders;
 import com.uber.tchannel.messages.generated.Example;
 import io.netty.util.IllegalReferenceCountException;
 import org.apache.thrift.TException;
@@ -53,6 +55,44 @@ public class ResponseTest {
         assertTrue(builder.arg3 == response.arg3);
     }
 
+    @Test
+    public void testResponseFollowsRequestThriftProtocol() throws Exception {
+        Example example = new Example("Hello, World!", 42);
+        ThriftRequest<Example> request = new ThriftRequest.Builder<Example>("keyvalue-service", "KeyValue::setValue")
+            .setThriftProtocol(ThriftProtocol.COMPACT)
+            .setBody(example)
+            .build();
+        assertEquals("compact", request.getTransportHeaders().get(TransportHeaders.THRIFT_PROTOCOL_KEY));
+        assertEquals(example, request.getBody(Example.class));
+
+        ThriftResponse<Example> response = new ThriftResponse.Builder<Example>(request)
+            .setBody(example)
+            .build();
+        assertEquals("compact", response.getTransportHeaders().get(TransportHeaders.THRIFT_PROTOCOL_KEY));
+        assertEquals(example, response.getBody(Example.class));
+
+        request.release();
+        response.release();
+    }
+
+    @Test
+    public void testResponseToUnknownThriftProtocolIsBinary() throws Exception {
+        Example example = new Example("Hello, World!", 42);
+        ThriftRequest<Example> request = new ThriftRequest.Builder<Example>("keyvalue-service", "KeyValue::setValue")
+            .setBody(example)
+            .build();
+        request.setTransportHeader(TransportHeaders.THRIFT_PROTOCOL_KEY, "json");
+
+        ThriftResponse<Example> response = new ThriftResponse.Builder<Example>(request)
+            .setBody(example)
+            .build();
+        assertNull(response.getTransportHeaders().get(TransportHeaders.THRIFT_PROTOCOL_KEY));
+        assertEquals(example, response.getBody(Example.class));
+
+        request.release();
+        response.release();
+    }
+
     @Test
     public void testMissingResponseCode() throws Exception {
         ThriftRequest<Example> request = new ThriftRequest.Builder<Example>("keyvalue-service", "KeyValue::setValue")
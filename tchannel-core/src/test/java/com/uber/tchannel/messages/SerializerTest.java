@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.uber.tchannel.messages;
+
+import com.uber.tchannel.api.SubChannel;
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.api.handlers.RawRequestHandler;
+import com.uber.tchannel.codecs.CodecUtils;
+import com.uber.tchannel.errors.ErrorType;
+import com.uber.tchannel.headers.ArgScheme;
+import com.uber.tchannel.headers.TransportHeaders;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SerializerTest {
+
+    @Test
+    public void testCustomArgScheme() {
+        Serializer serializer = new Serializer.Builder()
+            .register("upper", new UpperCaseSerializer())
+            .build();
+        assertTrue(serializer.supports("upper"));
+        assertEquals(Collections.singleton("upper"), serializer.getCustomArgSchemes());
+        assertNull(ArgScheme.toScheme("upper"));
+
+        Map<String, String> transportHeaders = new HashMap<>();
+        transportHeaders.put(TransportHeaders.ARG_SCHEME_KEY, "upper");
+        Request request = Request.build(
+            ArgScheme.RAW,
+            42,
+            1000,
+            null,
+            "service",
+            transportHeaders,
+            Unpooled.copiedBuffer("endpoint", CharsetUtil.UTF_8),
+            serializer.encodeHeaders(new HashMap<String, String>(), "upper"),
+            serializer.encodeBody("hello", "upper")
+        );
+
+        assertTrue(request instanceof RawRequest);
+        assertEquals(ArgScheme.RAW, request.getArgScheme());
+        assertEquals("HELLO", serializer.decodeBody(request, String.class));
+        request.release();
+    }
+
+    @Test
+    public void testCustomArgSchemeIsPerChannel() throws Exception {
+        final Serializer serializer = new Serializer.Builder()
+            .register("upper", new UpperCaseSerializer())
+            .build();
+        InetAddress host = InetAddress.getByName(null);
+        TChannel server = new TChannel.Builder("server")
+            .setServerHost(host)
+            .setSerializer(serializer)
+            .build();
+        server.makeSubChannel("server").register("echo", new RawRequestHandler() {
+            @Override
+            public RawResponse handleImpl(RawRequest request) {
+                return new RawResponse.Builder(request)
+                    .setBody(serializer.decodeBody(request, String.class))
+                    .build();
+            }
+        });
+        TChannel client = new TChannel.Builder("client")
+            .setServerHost(host)
+            .build();
+        SubChannel subClient = client.makeSubChannel("server");
+        server.listen();
+        client.listen();
+
+        try {
+            // the client channel does not know the arg scheme yet
+            RawResponse response = subClient.send(newRequest(), host, server.getListeningPort()).get();
+            assertEquals(ErrorType.BadRequest, response.getError().getErrorType());
+            response.release();
+
+            subClient.setSerializer(serializer);
+            response = subClient.send(newRequest(), host, server.getListeningPort()).get();
+            assertNull(response.getError());
+            assertEquals("HELLO", response.getBody());
+            response.release();
+        } finally {
+            client.shutdown();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testReplaceBuiltInSerializer() {
+        Serializer serializer = new Serializer.Builder()
+            .register("json", new UpperCaseSerializer())
+            .build();
+
+        JsonRequest<String> request = new JsonRequest.Builder<String>("service", "endpoint")
+            .setSerializer(serializer)
+            .setBody("hello")
+            .build();
+        assertEquals("hello", request.getArg3().toString(CharsetUtil.UTF_8));
+
+        // as received, with the serializers of the receiving sub channel
+        JsonRequest<String> received = (JsonRequest<String>) Request.build(
+            ArgScheme.JSON,
+            42,
+            1000,
+            null,
+            "service",
+            request.getTransportHeaders(),
+            request.getArg1().retain(),
+            request.getArg2().retain(),
+            request.getArg3().retain()
+        );
+        received.setSerializer(serializer);
+        assertEquals("HELLO", received.getBody(String.class));
+
+        JsonResponse<String> response = new JsonResponse.Builder<String>(received)
+            .setBody("world")
+            .build();
+        assertEquals(serializer, response.getSerializer());
+        assertEquals("world", response.getArg3().toString(CharsetUtil.UTF_8));
+        response.release();
+        received.release();
+        request.release();
+    }
+
+    @Test
+    public void testEncodeWithSubChannelSerializer() {
+        Serializer serializer = new Serializer.Builder()
+            .register("json", new UpperCaseSerializer())
+            .build();
+
+        JsonRequest<String> request = new JsonRequest.Builder<String>("service", "endpoint")
+            .setBody("hello")
+            .build();
+        assertEquals("\"hello\"", request.getArg3().toString(CharsetUtil.UTF_8));
+
+        request.setSerializerAndEncode(serializer);
+        assertEquals(serializer, request.getSerializer());
+        assertEquals("hello", request.getArg3().toString(CharsetUtil.UTF_8));
+        request.release();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRawIsNotEncoded() {
+        new Serializer.Builder().register("raw", new UpperCaseSerializer());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownArgScheme() {
+        Serializer.getDefault().encodeBody("hello", "unknown");
+    }
+
+    private static RawRequest newRequest() {
+        return new RawRequest.Builder("server", "echo")
+            .setTransportHeader(TransportHeaders.ARG_SCHEME_KEY, "upper")
+            .setTimeout(1000)
+            .setBody("hello")
+            .build();
+    }
+
+    /** Bodies are UTF-8 strings, upper-cased once decoded. */
+    private static final class UpperCaseSerializer implements Serializer.SerializerInterface {
+
+        @Override
+        public @NotNull String decodeEndpoint(@NotNull ByteBuf arg1) {
+            return arg1.toString(CharsetUtil.UTF_8);
+        }
+
+        @Override
+        public @NotNull Map<String, String> decodeHeaders(@NotNull ByteBuf arg2) {
+            return CodecUtils.decodeHeaders(arg2);
+        }
+
+        @Override
+        public <T> T decodeBody(@NotNull ByteBuf arg3, @NotNull Class<T> bodyType) {
+            return bodyType.cast(arg3.toString(CharsetUtil.UTF_8).toUpperCase());
+        }
+
+        @Override
+        public ByteBuf encodeEndpoint(String method) {
+            return Unpooled.copiedBuffer(method, CharsetUtil.UTF_8);
+        }
+
+        @Override
+        public ByteBuf encodeHeaders(Map<String, String> applicationHeaders) {
+            ByteBuf buf = Unpooled.buffer();
+            CodecUtils.encodeHeaders(applicationHeaders, buf);
+            return buf;
+        }
+
+        @Override
+        public ByteBuf encodeBody(Object body) {
+            return Unpooled.copiedBuffer((String) body, CharsetUtil.UTF_8);
+        }
+    }
+}
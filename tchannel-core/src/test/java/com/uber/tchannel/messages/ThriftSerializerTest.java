@@ -22,8 +22,11 @@
 
 package com.uber.tchannel.messages;
 
+import com.uber.tchannel.headers.ThriftProtocol;
 import com.uber.tchannel.messages.generated.Example;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.util.internal.PlatformDependent;
 import org.junit.After;
 import org.junit.Rule;
@@ -37,6 +40,7 @@ import java.util.Map;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -160,6 +164,80 @@ public class ThriftSerializerTest {
         bodyBuf.release();
     }
 
+    @Test
+    public void testEncodeDecodeBodyCompact() {
+        ThriftSerializer thriftSerializer = new ThriftSerializer();
+        Example obj = new Example("Hello, World!", 42);
+
+        ByteBuf binary = thriftSerializer.encodeBody(obj, ThriftProtocol.BINARY);
+        ByteBuf compact = thriftSerializer.encodeBody(obj, ThriftProtocol.COMPACT);
+        assertTrue(compact.readableBytes() < binary.readableBytes());
+
+        // the transport never exposes the backing array, heap buffers decode like direct ones
+        ByteBuf heapCompact = Unpooled.copiedBuffer(compact);
+        assertEquals(obj, thriftSerializer.decodeBody(compact, Example.class, ThriftProtocol.COMPACT));
+        assertEquals(obj, thriftSerializer.decodeBody(heapCompact, Example.class, ThriftProtocol.COMPACT));
+
+        binary.release();
+        compact.release();
+        heapCompact.release();
+    }
+
+    @Test
+    public void testEncodeBodyIntoPooledBuffer() {
+        ByteBuf bodyBuf = this.serializer.encodeBody(new Example("Hello, World!", 42));
+        assertTrue(bodyBuf.isDirect());
+        assertEquals(Example.class, this.serializer.decodeBody(bodyBuf, Example.class).getClass());
+        bodyBuf.release();
+
+        System.setProperty("com.uber.tchannel.thrift_serializer.noPreferDirect", "true");
+        ThriftSerializer.init();
+        bodyBuf = this.serializer.encodeBody(new Example("Hello, World!", 42));
+        assertFalse(bodyBuf.isDirect());
+        bodyBuf.release();
+    }
+
+    @Test
+    public void testEncodedSizeEstimate() {
+        ThriftSerializer.EncodedSize encodedSize = new ThriftSerializer.EncodedSize();
+        assertEquals(256, encodedSize.estimate());
+
+        encodedSize.update(1000);
+        assertTrue(encodedSize.estimate() > 1000);
+
+        for (int i = 0; i < 100; i++) {
+            encodedSize.update(100);
+        }
+        assertTrue(encodedSize.estimate() > 100);
+        assertTrue(encodedSize.estimate() < 200);
+    }
+
+    @Test
+    public void testDecodeBodyFromCompositeBuffer() throws Exception {
+        Example obj = new Example("Hello, World!", 42);
+        ByteBuf bodyBuf = this.serializer.encodeBody(obj);
+
+        // split the payload across a heap and a direct component
+        int half = bodyBuf.readableBytes() / 2;
+        ByteBuf direct = Unpooled.directBuffer().writeBytes(bodyBuf, half, bodyBuf.readableBytes() - half);
+        CompositeByteBuf composite = Unpooled.compositeBuffer()
+            .addComponent(true, Unpooled.copiedBuffer(bodyBuf.slice(0, half)))
+            .addComponent(true, direct);
+
+        Example decodedObj = this.serializer.decodeBody(composite, Example.class);
+        assertEquals(obj, decodedObj);
+        assertFalse(composite.isReadable());
+
+        composite.release();
+        bodyBuf.release();
+    }
+
+    @Test
+    public void testDecodeBodyWithoutNoArgConstructor() {
+        ByteBuf bodyBuf = Unpooled.wrappedBuffer(new byte[] {0});
+        assertNull(this.serializer.decodeBody(bodyBuf, Integer.class));
+    }
+
     @org.junit.After
     public void tearDown() {
         this.serializer = null;
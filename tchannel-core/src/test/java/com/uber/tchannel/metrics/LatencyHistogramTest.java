@@ -0,0 +1,70 @@
+package com.uber.tchannel.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long value = 0; value < 1 << 20; value++) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(value <= LatencyHistogram.highestValue(index));
+            if (index > 0) {
+                assertTrue(value > LatencyHistogram.highestValue(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500500, snapshot.getSum());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(1, snapshot.getValueAtPercentile(0));
+        assertWithinBucket(500, snapshot.getValueAtPercentile(50));
+        assertWithinBucket(990, snapshot.getValueAtPercentile(99));
+        assertEquals(1000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testThreadsAreMerged() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Runnable recorder = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 1000; i++) {
+                    histogram.record(2, TimeUnit.MILLISECONDS);
+                }
+            }
+        };
+
+        // a FastThreadLocalThread records into its own counts, any other thread into the shared ones
+        Thread owned = new DefaultThreadFactory("histogram").newThread(recorder);
+        Thread shared = new Thread(recorder);
+        owned.start();
+        shared.start();
+        owned.join();
+        shared.join();
+        recorder.run();
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(3000, snapshot.getCount());
+        assertEquals(2000, snapshot.getMax());
+        assertEquals(2000.0, snapshot.getMean(), 0.0);
+    }
+
+    private static void assertWithinBucket(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 32);
+    }
+}
@@ -23,6 +23,7 @@ package com.uber.tchannel.tracing;
 
 import io.opentracing.Tracer;
 import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
 
 /**
  * Tests {@link TracingContext.ThreadLocal} implementation of {@link TracingContext} interface.
@@ -34,4 +35,9 @@ public class TracingContextTest extends TracingContextTestBase {
         return new TracingContext.ThreadLocal();
     }
 
+    @Test(expected = NullPointerException.class)
+    public void testTracingContextRejectsNull() {
+        new TracingContext.ThreadLocal().pushSpan(null);
+    }
+
 }
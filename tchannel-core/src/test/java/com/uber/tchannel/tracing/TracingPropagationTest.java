@@ -180,7 +180,7 @@ public class TracingPropagationTest {
             String encodings = request.getBody(Example.class).getAString();
             TraceResponse response = observeSpanAndDownstream(encodings, request.getTrace());
             ByteBuf bytes = new JSONSerializer().encodeBody(response);
-            Example thriftResponse = new Example(new String(bytes.array(), StandardCharsets.UTF_8), 0);
+            Example thriftResponse = new Example(bytes.toString(StandardCharsets.UTF_8), 0);
             bytes.release();
             return new ThriftResponse.Builder<Example>(request)
                     .setTransportHeaders(request.getTransportHeaders())
@@ -205,7 +205,7 @@ public class TracingPropagationTest {
                         String encodings = request.getBody(Example.class).getAString();
                         TraceResponse traceResponse = observeSpanAndDownstream(encodings, request.getTrace());
                         ByteBuf bytes = new JSONSerializer().encodeBody(traceResponse);
-                        Example thriftResponse = new Example(new String(bytes.array(), StandardCharsets.UTF_8), 0);
+                        Example thriftResponse = new Example(bytes.toString(StandardCharsets.UTF_8), 0);
                         bytes.release();
                         ThriftResponse<Example> response = new ThriftResponse.Builder<Example>(request)
                                 .setTransportHeaders(request.getTransportHeaders())
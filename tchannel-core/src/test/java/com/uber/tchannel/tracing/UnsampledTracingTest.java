@@ -0,0 +1,162 @@
+package com.uber.tchannel.tracing;
+
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.handlers.OutRequest;
+import com.uber.tchannel.messages.JsonRequest;
+import com.uber.tchannel.messages.JsonResponse;
+import io.jaegertracing.internal.JaegerSpan;
+import io.jaegertracing.internal.JaegerSpanContext;
+import io.jaegertracing.internal.JaegerTracer;
+import io.jaegertracing.internal.reporters.InMemoryReporter;
+import io.jaegertracing.internal.samplers.ConstSampler;
+import io.opentracing.Span;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class UnsampledTracingTest {
+
+    private final InMemoryReporter reporter = new InMemoryReporter();
+    private final TracingContext tracingContext = new TracingContext.ThreadLocal();
+    private JaegerTracer tracer;
+    private TChannel tchannel;
+
+    @Before
+    public void setUp() {
+        tracer = new JaegerTracer.Builder("tchannel-name")
+            .withReporter(reporter)
+            .withSampler(new ConstSampler(false))
+            .build();
+        tchannel = new TChannel.Builder("tchannel-name")
+            .setTracer(tracer)
+            .setTracingContext(tracingContext)
+            .build();
+        tchannel.makeSubChannel("tchannel-name");
+    }
+
+    @After
+    public void tearDown() {
+        tracingContext.clear();
+        tchannel.shutdown();
+        tracer.close();
+    }
+
+    @Test
+    public void testInboundRequestIsNotTraced() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("key", "value");
+        headers.put(Tracing.HEADER_KEY_PREFIX + "uber-trace-id", "2a:2a:0:0");
+        JsonRequest<String> request = newRequest(headers);
+        request.setTrace(new Trace(42, 0, 42, (byte) 0));
+
+        Span span = Tracing.startInboundSpan(request, tracer, tracingContext);
+        assertFalse(span instanceof JaegerSpan);
+        assertSame(span, tracingContext.currentSpan());
+        JaegerSpanContext context = (JaegerSpanContext) span.context();
+        assertEquals(42, context.getTraceIdLow());
+        assertEquals(42, context.getSpanId());
+        assertFalse(context.isSampled());
+
+        Map<String, String> expectedHeaders = new HashMap<>();
+        expectedHeaders.put("key", "value");
+        assertEquals(expectedHeaders, request.getHeaders());
+        request.release();
+    }
+
+    @Test
+    public void testOutboundRequestPropagatesTraceFields() {
+        JsonRequest<String> inbound = newRequest(new HashMap<String, String>());
+        inbound.setTrace(new Trace(42, 0, 42, (byte) 0));
+        Tracing.startInboundSpan(inbound, tracer, tracingContext);
+        inbound.release();
+
+        JsonRequest<String> request = newRequest(new HashMap<String, String>());
+        OutRequest<JsonResponse<String>> outRequest =
+            new OutRequest<>(tchannel.getSubChannel("tchannel-name"), request, tracingContext);
+        Tracing.startOutboundSpan(outRequest, tracer, tracingContext);
+
+        Trace trace = request.getTrace();
+        assertNotNull(trace);
+        assertEquals(42, trace.traceId);
+        assertEquals(42, trace.parentId);
+        assertNotEquals(42, trace.spanId);
+        assertFalse(trace.isTracingEnabled());
+        assertTrue(request.getHeaders().isEmpty());
+        assertTrue(reporter.getSpans().isEmpty());
+        request.release();
+    }
+
+    @Test
+    public void testBaggageIsPropagated() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("key", "value");
+        headers.put(Tracing.HEADER_KEY_PREFIX + "uber-trace-id", "2a:2a:0:0");
+        headers.put(Tracing.HEADER_KEY_PREFIX + "uberctx-baggage-key", "baggage-value");
+        JsonRequest<String> inbound = newRequest(headers);
+        inbound.setTrace(new Trace(42, 0, 42, (byte) 0));
+
+        Span span = Tracing.startInboundSpan(inbound, tracer, tracingContext);
+        assertEquals("baggage-value", span.getBaggageItem("baggage-key"));
+        assertEquals(42, ((JaegerSpanContext) span.context()).getTraceIdLow());
+        Map<String, String> expectedHeaders = new HashMap<>();
+        expectedHeaders.put("key", "value");
+        assertEquals(expectedHeaders, inbound.getHeaders());
+        inbound.release();
+
+        JsonRequest<String> request = newRequest(new HashMap<String, String>());
+        OutRequest<JsonResponse<String>> outRequest =
+            new OutRequest<>(tchannel.getSubChannel("tchannel-name"), request, tracingContext);
+        Tracing.startOutboundSpan(outRequest, tracer, tracingContext);
+
+        assertEquals(42, request.getTrace().traceId);
+        assertEquals("baggage-value", request.getHeaders().get(Tracing.HEADER_KEY_PREFIX + "uberctx-baggage-key"));
+        request.release();
+    }
+
+    @Test
+    public void testDebugIdIsExtracted() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(Tracing.HEADER_KEY_PREFIX + "jaeger-debug-id", "debug");
+        JsonRequest<String> request = newRequest(headers);
+        request.setTrace(new Trace(42, 0, 42, (byte) 0));
+
+        Span span = Tracing.startInboundSpan(request, tracer, tracingContext);
+        assertTrue(span instanceof JaegerSpan);
+        assertTrue(((JaegerSpanContext) span.context()).isDebug());
+        assertTrue(request.getHeaders().isEmpty());
+        span.finish();
+        request.release();
+    }
+
+    @Test
+    public void testRootRequestIsNotTraced() {
+        JsonRequest<String> request = newRequest(new HashMap<String, String>());
+        OutRequest<JsonResponse<String>> outRequest =
+            new OutRequest<>(tchannel.getSubChannel("tchannel-name"), request, tracingContext);
+        Tracing.startOutboundSpan(outRequest, tracer, tracingContext);
+
+        Trace trace = request.getTrace();
+        assertNotNull(trace);
+        assertNotEquals(0, trace.traceId);
+        assertFalse(trace.isTracingEnabled());
+        assertTrue(request.getHeaders().isEmpty());
+        request.release();
+    }
+
+    private static JsonRequest<String> newRequest(Map<String, String> headers) {
+        return new JsonRequest.Builder<String>("tchannel-name", "endpoint")
+            .setHeaders(headers)
+            .setBody("foo")
+            .build();
+    }
+}
@@ -94,7 +94,7 @@ class ThriftHandler extends ThriftRequestHandler<Call_args, Call_result> {
 
     private static String objectToJSON(Object obj) {
         ByteBuf bytes = new JSONSerializer().encodeBody(obj);
-        String json = new String(bytes.array(), StandardCharsets.UTF_8);
+        String json = bytes.toString(StandardCharsets.UTF_8);
         bytes.release();
         return json;
     }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.jfr;
+
+import com.uber.tchannel.metrics.CallEvent;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** The JDK Flight Recorder events of the {@link CallEvent}s, one type per event, in the "TChannel" category. */
+public final class CallEvents {
+
+    private CallEvents() {}
+
+    @Category("TChannel")
+    @StackTrace(false)
+    public abstract static class Base extends Event {
+
+        @Label("Service")
+        String service;
+
+        @Label("Endpoint")
+        String endpoint;
+
+        @Label("Message Id")
+        long id;
+
+        @Label("Peer")
+        String peer;
+
+        /** Time taken by the phase of the call the event ends; JFR reserves the name duration for its own field. */
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("tchannel.MessageDecoded")
+    @Label("Message Decoded")
+    @Description("A message was decoded from its frames; elapsed is the decoding of its last frame")
+    public static final class MessageDecoded extends Base {}
+
+    @Name("tchannel.HandlerDispatched")
+    @Label("Handler Dispatched")
+    @Description("An inbound request was handed to its handler; elapsed from the request read to the handler start")
+    public static final class HandlerDispatched extends Base {}
+
+    @Name("tchannel.HandlerCompleted")
+    @Label("Handler Completed")
+    @Description("The handler of an inbound request completed; elapsed is the run of the handler")
+    public static final class HandlerCompleted extends Base {}
+
+    @Name("tchannel.ResponseWritten")
+    @Label("Response Written")
+    @Description("The response to an inbound request was written; elapsed from the request read to its write")
+    public static final class ResponseWritten extends Base {}
+
+    @Name("tchannel.RequestQueued")
+    @Label("Request Queued")
+    @Description("An outbound request was queued; elapsed from the request sent to the request queued")
+    public static final class RequestQueued extends Base {}
+
+    @Name("tchannel.RequestWritten")
+    @Label("Request Written")
+    @Description("An outbound request was written; elapsed from the request queued to the request written")
+    public static final class RequestWritten extends Base {}
+
+    @Name("tchannel.RequestTimedOut")
+    @Label("Request Timed Out")
+    @Description("An outbound request timed out; elapsed from the request queued to the timeout")
+    public static final class RequestTimedOut extends Base {}
+
+    @Name("tchannel.RequestRetried")
+    @Label("Request Retried")
+    @Description("An outbound request is retried after an error; elapsed from the request sent to the retry")
+    public static final class RequestRetried extends Base {}
+}
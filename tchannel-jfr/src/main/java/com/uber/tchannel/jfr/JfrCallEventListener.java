@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.jfr;
+
+import com.uber.tchannel.metrics.CallEvent;
+import com.uber.tchannel.metrics.CallEventListener;
+import jdk.jfr.EventType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.SocketAddress;
+
+/**
+ * Commits the {@link CallEvent}s of a channel as JDK Flight Recorder events, see {@link CallEvents}. Set up with
+ * {@link com.uber.tchannel.api.TChannel.Builder#setCallEventListener}.
+ *
+ * The events are disabled until a recording enables them, e.g. with {@code jcmd <pid> JFR.start} and a settings file
+ * that enables the {@code tchannel.*} events; until then each point of the lifecycle of the calls costs a check of
+ * whether its event is enabled.
+ */
+public final class JfrCallEventListener implements CallEventListener {
+
+    private final @NotNull EventType[] eventTypes = new EventType[CallEvent.values().length];
+
+    public JfrCallEventListener() {
+        for (CallEvent event : CallEvent.values()) {
+            eventTypes[event.ordinal()] = EventType.getEventType(eventClass(event));
+        }
+    }
+
+    @Override
+    public boolean isEnabled(@NotNull CallEvent event) {
+        return eventTypes[event.ordinal()].isEnabled();
+    }
+
+    @Override
+    public void onEvent(
+        @NotNull CallEvent event,
+        @Nullable String service,
+        @Nullable String endpoint,
+        long id,
+        @Nullable SocketAddress peer,
+        long durationNanos
+    ) {
+        CallEvents.Base jfrEvent = newEvent(event);
+        if (!jfrEvent.shouldCommit()) {
+            return;
+        }
+        jfrEvent.service = service;
+        jfrEvent.endpoint = endpoint;
+        jfrEvent.id = id;
+        jfrEvent.peer = peer == null ? null : peer.toString();
+        jfrEvent.elapsed = durationNanos;
+        jfrEvent.commit();
+    }
+
+    static @NotNull Class<? extends CallEvents.Base> eventClass(@NotNull CallEvent event) {
+        switch (event) {
+            case MESSAGE_DECODED:
+                return CallEvents.MessageDecoded.class;
+            case HANDLER_DISPATCHED:
+                return CallEvents.HandlerDispatched.class;
+            case HANDLER_COMPLETED:
+                return CallEvents.HandlerCompleted.class;
+            case RESPONSE_WRITTEN:
+                return CallEvents.ResponseWritten.class;
+            case REQUEST_QUEUED:
+                return CallEvents.RequestQueued.class;
+            case REQUEST_WRITTEN:
+                return CallEvents.RequestWritten.class;
+            case REQUEST_TIMED_OUT:
+                return CallEvents.RequestTimedOut.class;
+            case REQUEST_RETRIED:
+                return CallEvents.RequestRetried.class;
+            default:
+                throw new IllegalArgumentException("Unknown call event " + event);
+        }
+    }
+
+    private static @NotNull CallEvents.Base newEvent(@NotNull CallEvent event) {
+        switch (event) {
+            case MESSAGE_DECODED:
+                return new CallEvents.MessageDecoded();
+            case HANDLER_DISPATCHED:
+                return new CallEvents.HandlerDispatched();
+            case HANDLER_COMPLETED:
+                return new CallEvents.HandlerCompleted();
+            case RESPONSE_WRITTEN:
+                return new CallEvents.ResponseWritten();
+            case REQUEST_QUEUED:
+                return new CallEvents.RequestQueued();
+            case REQUEST_WRITTEN:
+                return new CallEvents.RequestWritten();
+            case REQUEST_TIMED_OUT:
+                return new CallEvents.RequestTimedOut();
+            case REQUEST_RETRIED:
+                return new CallEvents.RequestRetried();
+            default:
+                throw new IllegalArgumentException("Unknown call event " + event);
+        }
+    }
+}
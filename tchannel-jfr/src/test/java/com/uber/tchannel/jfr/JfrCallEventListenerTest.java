@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2015 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.tchannel.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.tchannel.api.ResponseCode;
+import com.uber.tchannel.api.TChannel;
+import com.uber.tchannel.api.handlers.RequestHandler;
+import com.uber.tchannel.messages.RawRequest;
+import com.uber.tchannel.messages.RawResponse;
+import com.uber.tchannel.messages.Request;
+import com.uber.tchannel.messages.Response;
+import com.uber.tchannel.metrics.CallEvent;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+public class JfrCallEventListenerTest {
+
+    @Test
+    public void testDisabledOutsideOfRecordings() {
+        JfrCallEventListener listener = new JfrCallEventListener();
+        for (CallEvent event : CallEvent.values()) {
+            assertFalse(listener.isEnabled(event));
+        }
+    }
+
+    @Test
+    public void testElapsedIsRecorded() throws Exception {
+        JfrCallEventListener listener = new JfrCallEventListener();
+        InetSocketAddress peer = new InetSocketAddress(InetAddress.getByName(null), 4040);
+
+        Path file = Files.createTempFile("tchannel", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(CallEvents.RequestWritten.class).withoutThreshold();
+            recording.start();
+            assertTrue(listener.isEnabled(CallEvent.REQUEST_WRITTEN));
+            listener.onEvent(CallEvent.REQUEST_WRITTEN, "server", "echo", 42, peer, 12345L);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(1, events.size());
+            RecordedEvent event = events.get(0);
+            assertEquals("tchannel.RequestWritten", event.getEventType().getName());
+            assertEquals("server", event.getString("service"));
+            assertEquals("echo", event.getString("endpoint"));
+            assertEquals(42L, event.getLong("id"));
+            assertEquals(peer.toString(), event.getString("peer"));
+            assertEquals(Duration.ofNanos(12345L), event.getDuration("elapsed"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testEventsAreRecorded() throws Exception {
+        InetAddress host = InetAddress.getByName(null);
+        TChannel server = new TChannel.Builder("server")
+            .setServerHost(host)
+            .setCallEventListener(new JfrCallEventListener())
+            .build();
+        server.makeSubChannel("server").register("echo", new EchoHandler());
+        TChannel client = new TChannel.Builder("client")
+            .setServerHost(host)
+            .setCallEventListener(new JfrCallEventListener())
+            .build();
+        client.makeSubChannel("server");
+        server.listen();
+        client.listen();
+
+        Path file = Files.createTempFile("tchannel", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (CallEvent event : CallEvent.values()) {
+                recording.enable(JfrCallEventListener.eventClass(event)).withoutThreshold();
+            }
+            recording.start();
+
+            RawRequest request = new RawRequest.Builder("server", "echo")
+                .setTimeout(1000)
+                .setBody("hello")
+                .build();
+            RawResponse response = client.getSubChannel("server")
+                .send(request, host, server.getListeningPort())
+                .get();
+            assertEquals(ResponseCode.OK, response.getResponseCode());
+            response.release();
+
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            client.shutdown();
+            server.shutdown();
+        }
+
+        Set<String> names = new HashSet<>();
+        try {
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                names.add(event.getEventType().getName());
+                if (!event.getEventType().getName().equals("tchannel.MessageDecoded")) {
+                    assertEquals("echo", event.getString("endpoint"));
+                }
+                assertTrue(event.getDuration("elapsed").toNanos() >= 0);
+            }
+        } finally {
+            Files.delete(file);
+        }
+        for (CallEvent event : CallEvent.values()) {
+            if (event != CallEvent.REQUEST_TIMED_OUT && event != CallEvent.REQUEST_RETRIED) {
+                String name = JfrCallEventListener.eventClass(event).getAnnotation(Name.class).value();
+                assertTrue(name, names.contains(name));
+            }
+        }
+    }
+
+    private static final class EchoHandler implements RequestHandler {
+
+        @Override
+        public Response handle(Request request) {
+            return new RawResponse.Builder(request)
+                .setArg3(request.getArg3().retain())
+                .build();
+        }
+    }
+}